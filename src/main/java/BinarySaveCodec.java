@@ -0,0 +1,498 @@
+import com.google.gson.Gson;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * {@code BinarySaveCodec} writes a {@code Game} in a compact binary format and reads it back.
+ * The save starts with {@link #MAGIC}, the format version, the size of the static text dictionary and its checksum.
+ * Then come a string table, the rooms, the items (each one after the objects it refers to, as in
+ * {@link SaveGraph}), the content of the storages, the map with its directions and the player, so the save is
+ * read in a single pass.
+ * <ul>
+ *     <li>references to rooms and items are varints holding the position of the object in the save plus one,
+ *     {@code 0} being {@code null}</li>
+ *     <li>every string is a varint: the texts found in the dictionary {@link #DICTIONARY} are indexes into it,
+ *     any other text is an index into the string table of the save</li>
+ *     <li>visible, collectable and unlocked are packed in bitsets</li>
+ * </ul>
+ * The dictionary is a resource of its own and not the texts of the world, so editing the world doesn't change it:
+ * a text that is not in the dictionary, like the new version of a description, goes to the string table of the save.
+ * New texts may only be added at the end of the dictionary. A save can be read by any dictionary that starts with
+ * the entries it was written with, which the size and the checksum verify.
+ *
+ * @see S3bucket
+ */
+public class BinarySaveCodec {
+    /**
+     * First bytes of every binary save
+     */
+    public static final byte[] MAGIC = {'C', 'E', 'S', 'V'};
+    /**
+     * Version of the binary format. Saves of version 1 only have the checksum of the dictionary, saves before
+     * version 3 don't have the directions of the world and are games of the castle.
+     */
+    public static final int VERSION = 3;
+    /**
+     * Resource holding the static texts of the saves, as a JSON array
+     */
+    public static final String DICTIONARY = "/save-dictionary.json";
+
+    private static final int ITEM = 0;
+    private static final int CONTAINER_ITEM = 1;
+    private static final int LOCKED_ITEM = 2;
+    private static final int BLOCKS_LOCATION = 4;
+
+    private static Dictionary shared;
+
+    private final Dictionary dictionary;
+
+    /**
+     * The static texts with their positions, and the checksum of every prefix of the list
+     *
+     * @param texts the texts, in the order of the resource
+     * @param index the position of every text
+     * @param prefixes the number of texts, by the checksum of the texts before it
+     */
+    private record Dictionary(List<String> texts, Map<String, Integer> index, Map<Integer, Integer> prefixes) {
+        static Dictionary of(List<String> texts) {
+            Map<String, Integer> index = new HashMap<>();
+            Map<Integer, Integer> prefixes = new HashMap<>();
+            CRC32 crc = new CRC32();
+            prefixes.put((int) crc.getValue(), 0);
+            for (int i = 0; i < texts.size(); i++) {
+                index.putIfAbsent(texts.get(i), i);
+                crc.update(texts.get(i).getBytes(StandardCharsets.UTF_8));
+                crc.update(0);
+                prefixes.put((int) crc.getValue(), i + 1);
+            }
+            return new Dictionary(List.copyOf(texts), index, prefixes);
+        }
+
+        int checksum() {
+            CRC32 crc = new CRC32();
+            for (String text : texts) {
+                crc.update(text.getBytes(StandardCharsets.UTF_8));
+                crc.update(0);
+            }
+            return (int) crc.getValue();
+        }
+    }
+
+    /**
+     * First constructor of the class, the static texts are read from {@link #DICTIONARY}
+     */
+    public BinarySaveCodec() {
+        this(null);
+    }
+
+    /**
+     * Second constructor of the class
+     *
+     * @param dictionary the static texts, or {@code null} to read them from {@link #DICTIONARY}
+     */
+    BinarySaveCodec(List<String> dictionary) {
+        this.dictionary = dictionary == null ? null : Dictionary.of(dictionary);
+    }
+
+    /**
+     * Returns whether the content starts like a binary save
+     *
+     * @param content the content of a save
+     * @return {@code true} if the content starts with {@link #MAGIC}
+     */
+    public static boolean isBinary(byte[] content) {
+        if (content.length < MAGIC.length)
+            return false;
+        for (int i = 0; i < MAGIC.length; i++)
+            if (content[i] != MAGIC[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the dictionary of the codec, reading {@link #DICTIONARY} the first time it is needed
+     */
+    private Dictionary dictionary() {
+        if (dictionary != null)
+            return dictionary;
+        synchronized (BinarySaveCodec.class) {
+            if (shared == null) {
+                InputStream stream = BinarySaveCodec.class.getResourceAsStream(DICTIONARY);
+                if (stream == null)
+                    throw new UncheckedIOException(new FileNotFoundException("No dictionary found at " + DICTIONARY));
+                try (java.io.Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+                    shared = Dictionary.of(Arrays.asList(new Gson().fromJson(reader, String[].class)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return shared;
+        }
+    }
+
+    /**
+     * Encodes a game
+     *
+     * @param game the game to encode
+     * @return the binary save
+     */
+    public byte[] encode(Game game) {
+        Dictionary dictionary = dictionary();
+        try {
+            Writer body = new Writer(dictionary.index());
+            SaveGraph graph = SaveGraph.of(game);
+            Map<Location, Integer> locations = new HashMap<>();
+            Map<Item, Integer> items = new HashMap<>();
+            for (Location location : graph.getLocations())
+                locations.put(location, locations.size() + 1);
+            for (Item item : graph.getItems())
+                items.put(item, items.size() + 1);
+
+            body.varint(locations.size());
+            BitSet unlocked = new BitSet();
+            int position = 0;
+            for (Location location : graph.getLocations())
+                unlocked.set(position++, location.isUnlocked());
+            body.bits(unlocked, locations.size());
+            for (Location location : graph.getLocations()) {
+                body.uuid(location.getId());
+                body.string(location.getName());
+                body.string(location.getDescription());
+                body.varint(location.getExit().size());
+                for (String exit : location.getExit())
+                    body.string(exit);
+                body.out.writeDouble(location.getStorage().getMaxWeight());
+            }
+
+            body.varint(items.size());
+            BitSet visible = new BitSet();
+            BitSet collectable = new BitSet();
+            position = 0;
+            for (Item item : graph.getItems()) {
+                visible.set(position, item.isVisible());
+                collectable.set(position++, item.isCollectable());
+            }
+            body.bits(visible, items.size());
+            body.bits(collectable, items.size());
+            for (Item item : graph.getItems()) {
+                if (item instanceof ContainerItem containerItem) {
+                    body.out.writeByte(CONTAINER_ITEM);
+                    writeHeader(body, item);
+                    body.reference(items, containerItem.getItemContained());
+                    body.string(containerItem.getAltDescription());
+                } else if (item instanceof LockedItem lockedItem) {
+                    boolean blocksLocation = lockedItem.getItemBlocked() instanceof Location;
+                    body.out.writeByte(LOCKED_ITEM | (blocksLocation ? BLOCKS_LOCATION : 0));
+                    writeHeader(body, item);
+                    body.varint(lockedItem.getObjects().size());
+                    for (Item object : lockedItem.getObjects())
+                        body.reference(items, object);
+                    if (blocksLocation)
+                        body.reference(locations, (Location) lockedItem.getItemBlocked());
+                    else
+                        body.reference(items, (Item) lockedItem.getItemBlocked());
+                    body.string(lockedItem.getAction());
+                    body.string(lockedItem.getAltDescription());
+                } else {
+                    body.out.writeByte(ITEM);
+                    writeHeader(body, item);
+                }
+            }
+
+            for (Location location : graph.getLocations())
+                body.references(items, location.getStorage().getItems());
+            body.varint(game.getMap().getRooms().size());
+            for (Location room : game.getMap().getRooms())
+                body.reference(locations, room);
+            Map<String, Map<String, String>> directions = game.getMap().getRoomGraph().directions();
+            List<Location> routed = new ArrayList<>();
+            for (Location room : game.getMap().getRooms())
+                if (directions.containsKey(room.getName()))
+                    routed.add(room);
+            body.varint(routed.size());
+            for (Location room : routed) {
+                Map<String, String> ways = directions.get(room.getName());
+                body.reference(locations, room);
+                body.varint(ways.size());
+                for (Map.Entry<String, String> way : ways.entrySet()) {
+                    body.string(way.getKey());
+                    body.string(way.getValue());
+                }
+            }
+
+            Player player = game.getPlayer();
+            body.string(player.getName());
+            body.varint((player.getLifePoints() << 1) ^ (player.getLifePoints() >> 31));
+            body.reference(locations, player.getLocation());
+            body.out.writeDouble(player.getInventory().getMaxWeight());
+            body.references(items, player.getInventory().getItems());
+            body.varint(player.getLastLocations().size());
+            for (Location location : player.getLastLocations())
+                body.reference(locations, location);
+            body.reference(items, game.getLastItemUsed());
+            body.out.writeBoolean(game.isWinCondition());
+
+            Writer save = new Writer(dictionary.index());
+            save.out.write(MAGIC);
+            save.out.writeByte(VERSION);
+            save.varint(dictionary.texts().size());
+            save.out.writeInt(dictionary.checksum());
+            save.varint(body.strings.size());
+            for (String string : body.strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                save.varint(bytes.length);
+                save.out.write(bytes);
+            }
+            body.bytes.writeTo(save.out);
+            return save.bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeHeader(Writer body, Item item) throws IOException {
+        body.uuid(item.getId());
+        body.string(item.getName());
+        body.string(item.getDescription());
+    }
+
+    /**
+     * Decodes a game
+     *
+     * @param content the binary save
+     * @return the game
+     * @throws IOException if the content is not a valid binary save
+     */
+    public Game decode(byte[] content) throws IOException {
+        Dictionary dictionary = dictionary();
+        if (!isBinary(content))
+            throw new IOException("Not a binary save");
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(content));
+        header.skipBytes(MAGIC.length);
+        int version = header.readUnsignedByte();
+        if (version < 1 || version > VERSION)
+            throw new IOException("Unsupported binary save version: " + version);
+        Reader in = new Reader(header);
+        int size = version == 1 ? -1 : in.varint();
+        Integer prefix = dictionary.prefixes().get(header.readInt());
+        if (prefix == null || (size >= 0 && prefix != size))
+            throw new IOException("The save was written with a dictionary this version of the game doesn't have");
+        in.dictionary = dictionary.texts().subList(0, prefix);
+        int stringCount = in.varint();
+        for (int i = 0; i < stringCount; i++) {
+            byte[] bytes = new byte[in.varint()];
+            in.in.readFully(bytes);
+            in.strings.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        int locationCount = in.varint();
+        BitSet unlocked = in.bits(locationCount);
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < locationCount; i++) {
+            UUID id = in.uuid();
+            String name = in.string();
+            String description = in.string();
+            int exitCount = in.varint();
+            List<String> exits = new ArrayList<>();
+            for (int j = 0; j < exitCount; j++)
+                exits.add(in.string());
+            Storage storage = new Storage(in.in.readDouble());
+            locations.add(new Location(id, name, description, storage, exits, unlocked.get(i)));
+        }
+
+        int itemCount = in.varint();
+        BitSet visible = in.bits(itemCount);
+        BitSet collectable = in.bits(itemCount);
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            int kind = in.in.readUnsignedByte();
+            UUID id = in.uuid();
+            String name = in.string();
+            String description = in.string();
+            if ((kind & 3) == CONTAINER_ITEM) {
+                Item itemContained = in.reference(items);
+                items.add(new ContainerItem(id, name, description, visible.get(i), collectable.get(i),
+                        itemContained, in.string()));
+            } else if ((kind & 3) == LOCKED_ITEM) {
+                int objectCount = in.varint();
+                List<Item> objects = new ArrayList<>();
+                for (int j = 0; j < objectCount; j++)
+                    objects.add(in.reference(items));
+                Object itemBlocked = (kind & BLOCKS_LOCATION) != 0 ? in.reference(locations) : in.reference(items);
+                String action = in.string();
+                items.add(new LockedItem(id, name, description, visible.get(i), collectable.get(i),
+                        objects, itemBlocked, action, in.string()));
+            } else if (kind == ITEM) {
+                items.add(new Item(id, name, description, visible.get(i), collectable.get(i)));
+            } else {
+                throw new IOException("Unknown item kind " + kind);
+            }
+        }
+
+        for (Location location : locations)
+            for (Item item : in.references(items))
+                location.getStorage().add(item);
+        int roomCount = in.varint();
+        List<Location> rooms = new ArrayList<>();
+        for (int i = 0; i < roomCount; i++)
+            rooms.add(in.reference(locations));
+        Map<String, Map<String, String>> directions = null;
+        if (version >= 3) {
+            directions = new LinkedHashMap<>();
+            int routedCount = in.varint();
+            for (int i = 0; i < routedCount; i++) {
+                Location room = in.reference(locations);
+                Map<String, String> ways = new LinkedHashMap<>();
+                int wayCount = in.varint();
+                for (int j = 0; j < wayCount; j++)
+                    ways.put(in.string(), in.string());
+                if (room == null || directions.put(room.getName(), ways) != null)
+                    throw new IOException("Invalid directions in the save");
+            }
+        }
+
+        String name = in.string();
+        int zigzag = in.varint();
+        int lifePoints = (zigzag >>> 1) ^ -(zigzag & 1);
+        Location location = in.reference(locations);
+        Storage inventory = new Storage(in.in.readDouble());
+        for (Item item : in.references(items))
+            inventory.add(item);
+        int historySize = in.varint();
+        List<Location> lastLocations = new ArrayList<>();
+        for (int i = 0; i < historySize; i++)
+            lastLocations.add(in.reference(locations));
+        Item lastItemUsed = in.reference(items);
+        boolean winCondition = in.in.readBoolean();
+
+        GameMap map;
+        try {
+            map = directions == null ? new GameMap(rooms) : new GameMap(rooms, directions);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        return new Game(map, new Player(name, inventory, lifePoints, location, lastLocations),
+                lastItemUsed, winCondition);
+    }
+
+    /**
+     * Output buffer with the string table of the save being written
+     */
+    private static class Writer {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final Map<String, Integer> dictionaryIndex;
+        final List<String> strings = new ArrayList<>();
+        final Map<String, Integer> stringIndex = new HashMap<>();
+
+        Writer(Map<String, Integer> dictionaryIndex) {
+            this.dictionaryIndex = dictionaryIndex;
+        }
+
+        void varint(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        void string(String value) throws IOException {
+            Integer index = dictionaryIndex.get(value);
+            if (index != null) {
+                varint(index << 1);
+                return;
+            }
+            index = stringIndex.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.add(value);
+                stringIndex.put(value, index);
+            }
+            varint((index << 1) | 1);
+        }
+
+        void uuid(UUID id) throws IOException {
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+        }
+
+        <T> void reference(Map<T, Integer> positions, T value) throws IOException {
+            varint(value == null ? 0 : positions.get(value));
+        }
+
+        void references(Map<Item, Integer> positions, List<Item> values) throws IOException {
+            varint(values.size());
+            for (Item value : values)
+                reference(positions, value);
+        }
+
+        void bits(BitSet bits, int size) throws IOException {
+            byte[] packed = Arrays.copyOf(bits.toByteArray(), (size + 7) / 8);
+            out.write(packed);
+        }
+    }
+
+    /**
+     * Input buffer with the string table of the save being read
+     */
+    private static class Reader {
+        final DataInputStream in;
+        final List<String> strings = new ArrayList<>();
+        List<String> dictionary = List.of();
+
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        int varint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        String string() throws IOException {
+            int value = varint();
+            List<String> table = (value & 1) == 0 ? dictionary : strings;
+            int index = value >>> 1;
+            if (index >= table.size())
+                throw new IOException("Unknown string " + index);
+            return table.get(index);
+        }
+
+        UUID uuid() throws IOException {
+            return new UUID(in.readLong(), in.readLong());
+        }
+
+        <T> T reference(List<T> values) throws IOException {
+            int position = varint();
+            if (position == 0)
+                return null;
+            if (position > values.size())
+                throw new IOException("Unknown reference " + position);
+            return values.get(position - 1);
+        }
+
+        List<Item> references(List<Item> items) throws IOException {
+            int count = varint();
+            List<Item> values = new ArrayList<>();
+            for (int i = 0; i < count; i++)
+                values.add(reference(items));
+            return values;
+        }
+
+        BitSet bits(int size) throws IOException {
+            byte[] packed = new byte[(size + 7) / 8];
+            in.readFully(packed);
+            return BitSet.valueOf(packed);
+        }
+    }
+}
@@ -1,13 +1,28 @@
 import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * This is the starting point of the game.
  * This class doesn't do much more than create
  * a new Controller that will handle the graphics
  * and the rest of the game.
+ * <p>
+ * With {@code --server [port]} no window is opened: the game is hosted by a {@link GameServer}
+ * and the players connect over TCP. {@code --gateway [port]} hosts them with a {@link SessionGateway} instead.
+ * Both save the games in {@link S3bucket#SAVE_DIRECTORY}, or in memory when {@link S3bucket#SAVE_STORE_PROPERTY} is {@code memory}.
  */
 public class CastleEscape {
     public static void main(String[] args) throws IOException {
+        if (args.length > 0 && (args[0].equals("--server") || args[0].equals("--gateway"))) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+            SaveStore store = "memory".equals(System.getProperty(S3bucket.SAVE_STORE_PROPERTY))
+                    ? new MemorySaveStore() : new LocalSaveStore(Paths.get(S3bucket.SAVE_DIRECTORY));
+            if (args[0].equals("--server"))
+                new GameServer(port, new S3bucket(store, null)).start();
+            else
+                new SessionGateway(port, new S3bucket(store, null), Runtime.getRuntime().availableProcessors()).start();
+            return;
+        }
         new Controller();
     }
-}
\ No newline at end of file
+}
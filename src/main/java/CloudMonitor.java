@@ -0,0 +1,98 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * {@code CloudMonitor} checks in the background whether the cloud bucket can be reached.
+ * The probe runs on a daemon thread at a fixed delay and the result is kept in an atomic flag,
+ * so saving and loading only read the last known state and never wait for the network.
+ *
+ * @see S3bucket
+ */
+public class CloudMonitor {
+    /**
+     * Delay between two probes, in seconds
+     */
+    public static final long PROBE_PERIOD_SECONDS = 30;
+
+    private static CloudMonitor instance;
+
+    private final BooleanSupplier probe;
+    private final long periodSeconds;
+    private final AtomicBoolean online = new AtomicBoolean(false);
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Constructor of the class. The monitor does nothing until {@link #start()} is called.
+     *
+     * @param probe the check to run, {@code true} if the cloud is reachable
+     * @param periodSeconds the delay between two probes, in seconds
+     */
+    public CloudMonitor(BooleanSupplier probe, long periodSeconds) {
+        this.probe = probe;
+        this.periodSeconds = periodSeconds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cloud-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the monitor of the process, starting it the first time. The first probe is done
+     * on the calling thread so that the state is known as soon as the game starts.
+     *
+     * @return the monitor of the process
+     */
+    public static synchronized CloudMonitor get() {
+        if (instance == null) {
+            instance = new CloudMonitor(S3bucket::probeCloudConnection, PROBE_PERIOD_SECONDS);
+            instance.start();
+        }
+        return instance;
+    }
+
+    /**
+     * Runs a first probe and schedules the next ones
+     */
+    public void start() {
+        probeNow();
+        scheduler.scheduleWithFixedDelay(this::probeNow, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Runs the probe and updates the state
+     *
+     * @return the new state
+     */
+    public boolean probeNow() {
+        boolean result;
+        try {
+            result = probe.getAsBoolean();
+        } catch (Exception e) {
+            System.err.println("Cloud connection check failed: " + e.getMessage());
+            result = false;
+        }
+        if (online.getAndSet(result) != result)
+            System.out.println(result ? "Cloud connection available." : "Cloud connection lost.");
+        return result;
+    }
+
+    /**
+     * Returns the last known state of the cloud connection
+     *
+     * @return {@code true} if the last probe reached the cloud, {@code false} otherwise
+     */
+    public boolean isOnline() {
+        return online.get();
+    }
+
+    /**
+     * Stops the background probes
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+}
@@ -1,120 +1,135 @@
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 /**
- * The CommandReader class processes user input commands and interacts with the Game and Controller classes.
+ * The CommandReader class processes user input commands and interacts with the Game and its output.
  *
  * @see Game
- * @see Controller
+ * @see GameOutput
  */
 public class CommandReader
 {
     private Game game = null;
-    private Controller controller = null;
+    private GameOutput output = null;
     protected String lastCommandUsed = "";
+    private final CommandTokens tokens = new CommandTokens();
+
+    /**
+     * What a command does
+     */
+    @FunctionalInterface
+    private interface Action {
+        /**
+         * Runs the command
+         *
+         * @param reader the reader of the session
+         * @param item the second word of the command, lowercase, or {@code null}
+         * @return a non-null object if the command succeeded and has to be remembered as the last one used
+         */
+        Object run(CommandReader reader, String item);
+    }
+
+    /**
+     * An entry of the command table
+     *
+     * @param verb the verb or alias of the command, remembered as the last command used
+     * @param suffixes the accepted texts after the verb ("" for the verb alone)
+     * @param takesItem if the verb can be followed by an item
+     * @param afterVictory if the command is still available once the game is won
+     * @param action what the command does
+     */
+    private record Command(String verb, List<String> suffixes, boolean takesItem, boolean afterVictory, Action action) {
+        boolean accepts(CommandTokens tokens) {
+            if (tokens.hasItem() && takesItem)
+                return true;
+            for (int i = 0; i < suffixes.size(); i++)
+                if (tokens.restEquals(suffixes.get(i)))
+                    return true;
+            return false;
+        }
+    }
+
+    /**
+     * The commands, by verb and alias. The table is built once and shared by every session.
+     */
+    private static final WordTable<Command> COMMANDS = createCommands();
+
+    private static WordTable<Command> createCommands()
+    {
+        WordTable<Command> commands = new WordTable<>();
+        List<String> alone = List.of("");
+        List<String> game = List.of("", "game");
+        Action status = (r, item) -> { r.output.show(r.game.getPlayer().status()); return null; };
+
+        add(commands, new Command("exit", game, false, true, CommandReader::exit));
+        add(commands, new Command("restart", game, false, true, (r, item) -> { r.output.restart(); return null; }));
+        add(commands, new Command("help", alone, false, false, (r, item) -> { r.game.help(); return null; }));
+        add(commands, new Command("save", game, false, false, CommandReader::save));
+        add(commands, new Command("sv", alone, false, false, CommandReader::save));
+        add(commands, new Command("status", alone, false, false, status));
+        add(commands, new Command("st", alone, false, false, status));
+        add(commands, new Command("look", List.of("", "around"), false, false, (r, item) -> r.look("look")));
+        add(commands, new Command("lk", alone, false, false, (r, item) -> r.look("lk")));
+        add(commands, new Command("go", alone, true, false, CommandReader::go));
+        add(commands, new Command("pick", List.of(), true, false, CommandReader::pick));
+        add(commands, new Command("pk", List.of(), true, false, CommandReader::pick));
+        add(commands, new Command("drop", List.of(), true, false, CommandReader::drop));
+        add(commands, new Command("dp", List.of(), true, false, CommandReader::drop));
+        add(commands, new Command("interact", List.of(), true, false, CommandReader::interact));
+        add(commands, new Command("ic", List.of(), true, false, CommandReader::interact));
+        add(commands, new Command("use", List.of(), true, false, CommandReader::use));
+        return commands;
+    }
+
+    private static void add(WordTable<Command> commands, Command command)
+    {
+        commands.putIfAbsent(command.verb(), command);
+    }
 
     //*************************************************************************************
     //Metodi pubblici
     //*************************************************************************************
 
     /**
-     * Constructor to initialize the CommandReader with a Controller and a Game instance.
+     * Constructor to initialize the CommandReader with an output and a Game instance.
      *
-     * @param contr the controller to interact with the user interface
+     * @param output the output of the game, e.g. the window
      * @param gam   the game instance to control the game logic
      */
-    public CommandReader(Controller contr,Game gam)
+    public CommandReader(GameOutput output,Game gam)
     {
-        controller=contr;
+        this.output=output;
         game=gam;
     }
     /**
      * Reads and processes the user input command.
+     * The first word selects the command in the {@link #COMMANDS} table, the rest is either a fixed suffix
+     * (e.g. "look around") or the item the command applies to. The text is read in place by {@link CommandTokens},
+     * so a command only allocates the text of its response.
      *
      * @param text the command input from the user
      */
     public void read(String text)  //lettore input utente
     {
-        Object checkCorrectCall = null; //oggetto usato per verificare che le operazioni siano andate a buon fine
-        text = text.toLowerCase().trim();
-        String[] splitText = text.split(" ");
+        tokens.parse(text);
 
-        if(text.equals("exit") || text.equals("exit game"))
-        {
-            if(game.isWinCondition() || lastCommandUsed.equals(text))
-            {
-                game.exit();
-            }
-            else
-            {
-                controller.show("Save game?\nEnter save or exit");
-                updateLastCommand(text);
-            }
-        }
-        else if(text.equals("restart") || text.equals("restart game"))  {   controller.restart(); }
-        else if (game.isWinCondition()) {controller.show("The game is come to an end. \nEnter: restart or exit");}
-        else if(text.equals("help"))   {   game.help();    }
-        else if(text.equals("save") || text.equals("save game") || text.equals("sv"))
-        {
-            if(lastCommandUsed.equals("exit"))
-            {
-                controller.save();
-                game.exit();
-            }
-            else    {   controller.save();  }
+        Command command = tokens.verb(COMMANDS);
+        if (command != null && !command.accepts(tokens))
+            command = null;
 
-        }
-        else if(text.equals("status") || text.equals("st")){
-            controller.show(game.getPlayer().status());
-        }
-        else if(text.equals("look") || text.equals("look around") || text.equals("lk"))
-        {
-            controller.show(game.getPlayer().lookAround());  //stampa la descrizione della stanza
-            updateLastCommand(splitText[0]);    //aggiorna ultimo comando usato
-        }
-        else if(splitText[0].equals("go"))
-        {
-            if(text.equals("go"))   {   controller.show(game.getMap().printDirections(game.getPlayer().getLocation())); }
-            else    {   checkCorrectCall = game.go(splitText[1]);   }
-        }
-        else if (splitText.length ==1) controller.show("Command not found, help will show a list of all the commands\nRemember to specify the item when required");
-        else if(splitText[0].equals("pick") || splitText[0].equals("pk"))
-        {
-            checkCorrectCall = game.getPlayer().pick(splitText[1]);
-            if(checkCorrectCall != null)    {   controller.show(splitText[1] + " picked up");}
-            else if (game.getPlayer().getInventory().hasItem(splitText[1]))
-                controller.show("You already have "+splitText[1]+" in your inventory");
-            else if (game.getPlayer().getInventory().getWeight()==game.getPlayer().getInventory().getMaxWeight())
-                controller.show("Your inventory is full");
-            else if (!game.getPlayer().getLocation().getStorage().hasItem(splitText[1]))
-                controller.show(splitText[1] + " is not here");
-            else if(!game.getPlayer().getLocation().getStorage().getItem(splitText[1]).isCollectable())
-                controller.show("You cannot pick this item");
-            else if(!game.getPlayer().getLocation().getStorage().getItem(splitText[1]).isVisible())
-                controller.show(splitText[1]+" not found");
-            else
-                controller.show("You lost 1 lifepoint.\nNext time make sure you have gloves before handling such dangerous substances");
-        }
-        else if(splitText[0].equals("drop") || splitText[0].equals("dp"))
-        {
-            checkCorrectCall=game.getPlayer().drop(splitText[1]);
-            if(checkCorrectCall != null)    {   controller.show(splitText[1] + " dropped");}
-            else controller.show(splitText[1] + " must be in your inventory to be dropped");
-        }
-        else if(splitText[0].equals("interact") || splitText[0].equals("ic"))
-        {
-            checkCorrectCall=game.interact(splitText[1]);
-            if(checkCorrectCall != null)    {   game.updateLastItem(splitText[1]);  }
-        }
-        else if(splitText[0].equals("use"))
-        {
-            if (lastCommandUsed.equals("interact") || lastCommandUsed.equals("ic")) {   game.use(splitText[1]);    }
-            else {  controller.show("You have to interact with an item before utilize command use");    }
-        }
-        else controller.show("Command not found, help will show a list of all the commands");
+        Object checkCorrectCall = null; //oggetto usato per verificare che le operazioni siano andate a buon fine
+        if (game.isWinCondition() && (command == null || !command.afterVictory()))
+            output.show("The game is come to an end. \nEnter: restart or exit");
+        else if (command != null)
+            checkCorrectCall = command.action().run(this, command.takesItem() ? tokens.item(game.getMap().getRoomGraph().vocabulary()) : null);
+        else if (!tokens.hasItem())
+            output.show("Command not found, help will show a list of all the commands\nRemember to specify the item when required");
+        else
+            output.show("Command not found, help will show a list of all the commands");
 
         //aggiorna ultimo comando usato se le funzioni hanno ritornato oggetti != da null
-        if(checkCorrectCall != null)    {   updateLastCommand(splitText[0]);    }
+        if(checkCorrectCall != null)    {   updateLastCommand(command.verb());    }
 
         // se non ha punti vita perde
         if(game.getPlayer().getLifePoints()<=0)
@@ -123,12 +138,12 @@ public class CommandReader
             executor.submit(() -> {
                 try {
                     Thread.sleep(10000);
-                    controller.restart();
+                    output.restart();
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                 }
             });
-            controller.update("You have 0 life points!\nGame over!      (a new game will start in 10 seconds)");
+            output.update("You have 0 life points!\nGame over!      (a new game will start in 10 seconds)");
             executor.shutdown();
         }
     }
@@ -136,6 +151,85 @@ public class CommandReader
     //*************************************************************************************
     //Metodi privati
     //*************************************************************************************
+    private Object exit(String item)
+    {
+        if(game.isWinCondition() || tokens.lineEquals(lastCommandUsed))
+        {
+            game.exit();
+        }
+        else
+        {
+            output.show("Save game?\nEnter save or exit");
+            updateLastCommand(tokens.line());
+        }
+        return null;
+    }
+
+    private Object save(String item)
+    {
+        if(lastCommandUsed.equals("exit"))
+        {
+            output.save();
+            game.exit();
+        }
+        else    {   output.save();  }
+        return null;
+    }
+
+    private Object look(String verb)
+    {
+        output.show(game.getPlayer().lookAround());  //stampa la descrizione della stanza
+        updateLastCommand(verb);    //aggiorna ultimo comando usato
+        return null;
+    }
+
+    private Object go(String item)
+    {
+        if(item == null)   {   output.show(game.getMap().printDirections(game.getPlayer().getLocation())); return null; }
+        return game.go(item);
+    }
+
+    private Object pick(String item)
+    {
+        Object checkCorrectCall = game.getPlayer().pick(item);
+        if(checkCorrectCall != null)    {   output.show(item + " picked up");}
+        else if (game.getPlayer().getInventory().hasItem(item))
+            output.show("You already have "+item+" in your inventory");
+        else if (game.getPlayer().getInventory().getWeight()==game.getPlayer().getInventory().getMaxWeight())
+            output.show("Your inventory is full");
+        else if (!game.getPlayer().getLocation().getStorage().hasItem(item))
+            output.show(item + " is not here");
+        else if(!game.getPlayer().getLocation().getStorage().getItem(item).isCollectable())
+            output.show("You cannot pick this item");
+        else if(!game.getPlayer().getLocation().getStorage().getItem(item).isVisible())
+            output.show(item+" not found");
+        else
+            output.show("You lost 1 lifepoint.\nNext time make sure you have gloves before handling such dangerous substances");
+        return checkCorrectCall;
+    }
+
+    private Object drop(String item)
+    {
+        Object checkCorrectCall = game.getPlayer().drop(item);
+        if(checkCorrectCall != null)    {   output.show(item + " dropped");}
+        else output.show(item + " must be in your inventory to be dropped");
+        return checkCorrectCall;
+    }
+
+    private Object interact(String item)
+    {
+        Object checkCorrectCall = game.interact(item);
+        if(checkCorrectCall != null)    {   game.updateLastItem(item);  }
+        return checkCorrectCall;
+    }
+
+    private Object use(String item)
+    {
+        if (lastCommandUsed.equals("interact") || lastCommandUsed.equals("ic")) {   game.use(item);    }
+        else {  output.show("You have to interact with an item before utilize command use");    }
+        return null;
+    }
+
     /**
      * Updates the last used command
      *
@@ -0,0 +1,115 @@
+/**
+ * {@code CommandTokens} splits a command line in place: it only keeps the offsets of the words, which are
+ * compared ignoring their case, so reading a command doesn't copy it. One instance is reused for every
+ * command of a {@link CommandReader}.
+ * <p>
+ * The words are separated by single spaces, after the line is trimmed: the first word is the verb, the
+ * second one the item, e.g. {@code "pick candlestick"}. An item naming a word of the vocabulary of the world,
+ * see {@link RoomGraph#vocabulary()}, is returned as the shared lowercase name instead of a new string.
+ *
+ * @see WordTable
+ */
+public class CommandTokens {
+    private String line = "";
+    private int start;
+    private int end;
+    private int verbEnd;
+    private int itemEnd;
+
+    /**
+     * Splits a new command line, replacing the previous one
+     *
+     * @param line the command line
+     */
+    public void parse(String line) {
+        this.line = line;
+        start = 0;
+        end = line.length();
+        while (start < end && line.charAt(start) <= ' ')
+            start++;
+        while (end > start && line.charAt(end - 1) <= ' ')
+            end--;
+        verbEnd = indexOfSpace(start);
+        itemEnd = verbEnd == end ? end : indexOfSpace(verbEnd + 1);
+    }
+
+    /**
+     * Returns the lowercase verb among the keys of the table
+     *
+     * @param table a table of verbs
+     * @param <V> the type of the values of the table
+     * @return the value of the verb, or {@code null} if the table doesn't have it
+     */
+    public <V> V verb(WordTable<V> table) {
+        return table.get(line, start, verbEnd);
+    }
+
+    /**
+     * Returns whether the line has more than one word
+     *
+     * @return {@code true} if the verb is followed by another word
+     */
+    public boolean hasItem() {
+        return verbEnd < end;
+    }
+
+    /**
+     * Returns the second word of the line, in lowercase. The words of the vocabulary are not copied.
+     *
+     * @param vocabulary the known words, each one mapped to its lowercase form
+     * @return the second word, empty if the verb is followed by two spaces, or {@code null} if there is none
+     */
+    public String item(WordTable<String> vocabulary) {
+        if (!hasItem())
+            return null;
+        String known = vocabulary.get(line, verbEnd + 1, itemEnd);
+        return known != null ? known : line.substring(verbEnd + 1, itemEnd).toLowerCase();
+    }
+
+    /**
+     * Returns whether the words after the verb, trimmed, are equal to the text ignoring the case
+     *
+     * @param text a lowercase text, empty for a line made of the verb alone
+     * @return {@code true} if the rest of the line is {@code text}
+     */
+    public boolean restEquals(String text) {
+        int from = verbEnd;
+        while (from < end && line.charAt(from) <= ' ')
+            from++;
+        return regionEquals(from, text);
+    }
+
+    /**
+     * Returns whether the whole line, trimmed, is equal to the text ignoring the case
+     *
+     * @param text a lowercase text
+     * @return {@code true} if the line is {@code text}
+     */
+    public boolean lineEquals(String text) {
+        return regionEquals(start, text);
+    }
+
+    /**
+     * Returns a copy of the line, lowercase and trimmed
+     *
+     * @return the line
+     */
+    public String line() {
+        return line.substring(start, end).toLowerCase();
+    }
+
+    private int indexOfSpace(int from) {
+        while (from < end && line.charAt(from) != ' ')
+            from++;
+        return from;
+    }
+
+    private boolean regionEquals(int from, String text) {
+        if (end - from != text.length())
+            return false;
+        for (int i = 0; i < text.length(); i++)
+            if (Character.toLowerCase(line.charAt(from + i)) != text.charAt(i))
+                return false;
+        return true;
+    }
+}
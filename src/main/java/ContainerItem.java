@@ -1,3 +1,7 @@
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.UUID;
 
@@ -10,7 +14,6 @@ import java.util.UUID;
  */
 public class ContainerItem extends Item implements Serializable {
     private Item itemContained;
-    private String altDescription="";
 
     /**
      * First constructor of the class
@@ -23,9 +26,7 @@ public class ContainerItem extends Item implements Serializable {
      * @param altDescription an alternative description for the container item showed after the first interaction with it
      */
     public ContainerItem(String name, String description, boolean visible, boolean collectable, Item itemContained, String altDescription) {
-        super(name, description, visible, collectable);
-        this.itemContained = itemContained;
-        this.altDescription=altDescription;
+        this(UUID.randomUUID(), name, description, visible, collectable, itemContained, altDescription);
     }
 
     /**
@@ -40,9 +41,21 @@ public class ContainerItem extends Item implements Serializable {
      * @param altDescription an alternative description for the container item showed after the first interaction with it
      */
     public ContainerItem(UUID id, String name, String description, boolean visible, boolean collectable, Item itemContained, String altDescription) {
-        super(id, name, description, visible, collectable);
+        this(id, Template.of(name, description, altDescription, ""), visible, collectable, itemContained);
+    }
+
+    /**
+     * Third constructor of the class, for a container sharing the texts of another one
+     *
+     * @param id the unique identifier for the container item
+     * @param template the texts of the container item, the alternative description included
+     * @param visible if the container item is visible
+     * @param collectable if the container item is collectable
+     * @param itemContained the item contained within this container item
+     */
+    ContainerItem(UUID id, Template template, boolean visible, boolean collectable, Item itemContained) {
+        super(id, template, visible, collectable);
         this.itemContained = itemContained;
-        this.altDescription = altDescription;
     }
 
     /**
@@ -60,7 +73,7 @@ public class ContainerItem extends Item implements Serializable {
      * @return the alternative description
      */
     public String getAltDescription(){
-        return altDescription;
+        return getTemplate().altDescription();
     }
 
     /**
@@ -70,4 +83,71 @@ public class ContainerItem extends Item implements Serializable {
         itemContained.setVisible(true);
     }
 
-}
\ No newline at end of file
+
+    /**
+     * {@code ContainerItemAdapter} streams a {@code ContainerItem}, writing the contained item as an id reference.
+     *
+     * @see Item.ItemAdapter
+     * @see SaveGraph
+     */
+    public static class ContainerItemAdapter extends TypeAdapter<ContainerItem> {
+        private final SaveGraph graph;
+
+        /**
+         * Constructor of the adapter
+         *
+         * @param graph the graph of the save being written or read
+         */
+        public ContainerItemAdapter(SaveGraph graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        public void write(JsonWriter out, ContainerItem item) throws IOException {
+            out.beginObject();
+            Item.ItemAdapter.writeHeader(out, item, "ContainerItem");
+            out.name("itemContained");
+            SaveGraph.writeReference(out, item.getItemContained());
+            out.name("altDescription").value(item.getAltDescription());
+            out.endObject();
+        }
+
+        @Override
+        public ContainerItem read(JsonReader in) throws IOException {
+            in.beginObject();
+            ContainerItem item = readFields(in);
+            in.endObject();
+            return item;
+        }
+
+        /**
+         * Reads the properties of the object, the opening and closing brackets excluded
+         *
+         * @param in the reader
+         * @return the item read
+         * @throws IOException if an I/O error occurs
+         */
+        ContainerItem readFields(JsonReader in) throws IOException {
+            Item.Header header = new Item.Header();
+            Item itemContained = null;
+            String altDescription = "";
+            while (in.hasNext()) {
+                String property = in.nextName();
+                if (header.read(property, in))
+                    continue;
+                switch (property) {
+                    case "itemContained":
+                        itemContained = graph.readItem(in);
+                        break;
+                    case "altDescription":
+                        altDescription = in.nextString();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return new ContainerItem(header.id(), header.name, header.description, header.visible, header.collectable,
+                    itemContained, altDescription);
+        }
+    }
+}
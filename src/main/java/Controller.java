@@ -1,18 +1,19 @@
-import software.amazon.awssdk.regions.Region;
 import javax.swing.plaf.basic.BasicScrollBarUI;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Objects;
 import javax.swing.JScrollPane;
 
 /**
  * The Controller class handles the main interface and game logic interactions
- * for the Escape Castle game. It manages user input, game state, and cloud save/load functionality
+ * for the Escape Castle game. It manages user input, game state, and cloud save/load functionality.
+ * It is the Swing {@link GameOutput} of the game.
  */
-public class Controller extends JFrame
+public class Controller extends JFrame implements GameOutput
 {
     protected Game game;
     protected CommandReader reader;
@@ -70,13 +71,16 @@ public class Controller extends JFrame
     }
 
     /**
-     * Saves the current game state to the cloud
+     * Saves the current game state to the cloud. The upload runs in the background and
+     * the report is shown when it is done.
      */
+    @Override
     public void save()
     {
-        isCloudActive= S3bucket.checkCloudConnection();
-        String report = bucket.saveGameState(name + ".json", game);
-        update(report);
+        bucket.saveGameStateAsync(name + ".json", game, report -> SwingUtilities.invokeLater(() -> {
+            isCloudActive = bucket.isCloudOn();
+            update(report);
+        }));
     }
 
     /**
@@ -85,10 +89,10 @@ public class Controller extends JFrame
      * @return the loaded Game object, or null if loading fails
      */
     public Game load() {
-        isCloudActive= S3bucket.checkCloudConnection();
         Game tempGame= bucket.loadGameState(name + ".json", Game.class);
+        isCloudActive= bucket.isCloudOn();
         if (tempGame!=null)
-            tempGame.controller=this;
+            tempGame.output=this;
         return tempGame;
     }
 
@@ -96,6 +100,7 @@ public class Controller extends JFrame
      * Displays the specified text in the output field
      * @param text the text to display
      */
+    @Override
     public void show(String text)   //funzione pubblica invocata da game per stampare del testo
     {
         lastMessageDisplayed=text;
@@ -108,6 +113,7 @@ public class Controller extends JFrame
      *
      * @param text the text to append
      */
+    @Override
     public void update(String text)   //funzione pubblica invocata da game per AGGIUNGERE del testo
     {
         lastMessageDisplayed=text;
@@ -130,6 +136,7 @@ public class Controller extends JFrame
      *
      * @param text the name of the location
      */
+    @Override
     public void showImage(String text)  //funzione pubblica invocata da game per cambiare immagine
     {
         changeImage(text);
@@ -138,6 +145,7 @@ public class Controller extends JFrame
     /**
      * Restarts the game, reinitializing game state and UI components.
      */
+    @Override
     public void restart(){
         game  = new Game(this, name);
         reader = new CommandReader(this, game);
@@ -150,6 +158,7 @@ public class Controller extends JFrame
     /**
      * Closes the game window.
      */
+    @Override
     public void close(){    window.dispose();   }
 
     //*************************************************************************************
@@ -163,13 +172,22 @@ public class Controller extends JFrame
      * @throws IOException if an I/O error occurs while setting up cloud saves
      */
     protected boolean setupCloudBucket() throws IOException {
+        String saveStore = System.getProperty(S3bucket.SAVE_STORE_PROPERTY, "cloud");
+        if (saveStore.equals("memory")) {
+            bucket = new S3bucket(new MemorySaveStore(), null);
+            return false;
+        }
+        if (saveStore.equals("local")) {
+            bucket = new S3bucket(new LocalSaveStore(Paths.get(S3bucket.SAVE_DIRECTORY)), null);
+            return false;
+        }
         boolean isActive = (S3bucket.checkCredentials()  && S3bucket.checkCloudConnection());
 
 //        if (isActive) {
 //            System.setProperty("aws.accessKeyId", Objects.requireNonNull(S3bucket.getCredentials("key")));
 //            System.setProperty("aws.secretAccessKey", Objects.requireNonNull(S3bucket.getCredentials("secretKey")));
 //        }
-        bucket = new S3bucket(S3bucket.getCredentials("bucketName"), Region.EU_NORTH_1, isActive);
+        bucket = new S3bucket(S3bucket.getCredentials("bucketName"), S3bucket.DEFAULT_REGION, isActive);
         return isActive;
     }
 
@@ -0,0 +1,177 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * {@code CredentialStore} reads the cloud credentials from the configuration file once, validates them
+ * and keeps them in memory. The file holds the access key, the secret key and the bucket name, one per line.
+ * The file is read again only when its modification time changes, and the modification time itself is
+ * checked at most once every {@link #RECHECK_INTERVAL_MILLIS}. {@link #getVersion()} tells the callers that
+ * keep objects built from the credentials, like the S3 clients, when to build them again.
+ *
+ * @see S3bucket
+ */
+public class CredentialStore {
+    /**
+     * Path of the configuration file used by the game
+     */
+    public static final String DEFAULT_PATH = "src/config.dat";
+    /**
+     * Minimum time between two checks of the modification time of the file, in milliseconds
+     */
+    public static final long RECHECK_INTERVAL_MILLIS = 5000;
+
+    private static final List<String> KEYS = List.of("key", "secretKey", "bucketName");
+    private static final Map<String, String> EXPECTED_HASHES = Map.of(
+            "key", "bzyLhn1VroEOwby6OZtOCIDV4FSVa8XUtC1KQe9VMLM=",
+            "secretKey", "AgLbfbXiUzvS1Q9pHFdCkjvEXxRHNNWaLPkS6aAcA2Q=",
+            "bucketName", "lkDlKJze4hQ5vtG2jsf+XXeiN19Go1mOuerH5kHbqTI=");
+    private static final CredentialStore DEFAULT = new CredentialStore(Paths.get(DEFAULT_PATH), EXPECTED_HASHES);
+
+    /**
+     * The values read from one version of the file. It is never modified, a reload replaces it.
+     *
+     * @param modified the modification time of the file, or {@code null} if the file doesn't exist
+     * @param values the valid credentials, by name
+     * @param version the number of times the file has been read, this one included
+     */
+    private record Snapshot(FileTime modified, Map<String, String> values, long version) {}
+
+    private final Path path;
+    private final Map<String, String> expectedHashes;
+    private final long recheckIntervalMillis;
+    private volatile Snapshot snapshot;
+    private volatile long nextCheck;
+
+    /**
+     * First constructor of the class
+     *
+     * @param path the configuration file
+     * @param expectedHashes the Base64 SHA-256 hash every credential must have to be accepted
+     */
+    CredentialStore(Path path, Map<String, String> expectedHashes) {
+        this(path, expectedHashes, RECHECK_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Second constructor of the class
+     *
+     * @param path the configuration file
+     * @param expectedHashes the Base64 SHA-256 hash every credential must have to be accepted
+     * @param recheckIntervalMillis the minimum time between two checks of the modification time, in milliseconds
+     */
+    CredentialStore(Path path, Map<String, String> expectedHashes, long recheckIntervalMillis) {
+        this.path = path;
+        this.expectedHashes = expectedHashes;
+        this.recheckIntervalMillis = recheckIntervalMillis;
+    }
+
+    /**
+     * Returns the store of the game configuration file
+     *
+     * @return the store of {@link #DEFAULT_PATH}
+     */
+    public static CredentialStore getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns whether the configuration file exists
+     *
+     * @return {@code true} if the file could be read, {@code false} otherwise
+     */
+    public boolean isAvailable() {
+        return current().modified() != null;
+    }
+
+    /**
+     * Returns a credential
+     *
+     * @param request the credential to retrieve ("key", "secretKey", "bucketName")
+     * @return the credential, or {@code null} if it is missing or not valid
+     */
+    public String get(String request) {
+        return current().values().get(request);
+    }
+
+    /**
+     * Returns the version of the credentials, which changes every time the file is read again
+     *
+     * @return the number of times the file has been read
+     */
+    public long getVersion() {
+        return current().version();
+    }
+
+    /**
+     * Returns the credentials, reading the file again if it has been modified
+     *
+     * @return the current credentials
+     */
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (current != null && now < nextCheck)
+            return current;
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || now >= nextCheck) {
+                FileTime modified = lastModified();
+                if (current == null || !Objects.equals(current.modified(), modified)) {
+                    current = load(modified, current == null ? 1 : current.version() + 1);
+                    snapshot = current;
+                }
+                nextCheck = now + recheckIntervalMillis;
+            }
+            return current;
+        }
+    }
+
+    private FileTime lastModified() {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Snapshot load(FileTime modified, long version) {
+        if (modified == null) {
+            System.err.println("Credentials file not found: " + path);
+            return new Snapshot(null, Map.of(), version);
+        }
+        Map<String, String> values = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            for (String key : KEYS) {
+                String line = reader.readLine();
+                if (line == null)
+                    break;
+                if (isValid(key, line))
+                    values.put(key, line);
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+        return new Snapshot(modified, Map.copyOf(values), version);
+    }
+
+    private boolean isValid(String key, String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash).equals(expectedHashes.get(key));
+        } catch (NoSuchAlgorithmException e) {
+            return false;
+        }
+    }
+}
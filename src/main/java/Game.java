@@ -1,7 +1,23 @@
+import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 public class Game{
+    /**
+     * Version of the save format written by {@link GameAdapter}. Saves without a version are the
+     * old format, where every reference to a room or an item repeats the whole object.
+     */
+    public static final int SAVE_FORMAT_VERSION = 2;
+
     private GameMap map;
     private Player player=null;
-    public transient Controller controller=null;
+    public transient GameOutput output=null;
     protected Item lastItemUsed = null;
     private boolean WIN_CONDITION = false;
 
@@ -10,15 +26,33 @@ public class Game{
      * It prints the introduction text first and asks for the name of the player's
      * character and welcomes him / her. After that, it goes to the normal game prompt.
      *
-     * @param controller the controller to interact with for the user interface
+     * @param output the output of the game, e.g. the window
      * @param nome the name of the player
      */
-    public Game(Controller controller, String nome){
+    public Game(GameOutput output, String nome){
         map= new GameMap();
-        this.controller=controller;
+        this.output=output;
         createPlayer(nome);
     }
 
+    /**
+     * Second constructor of the class, used when a saved game is restored.
+     * The output has to be attached by the caller.
+     *
+     * @param map the map with all the rooms
+     * @param player the player
+     * @param lastItemUsed the last object the player dealt with, may be {@code null}
+     * @param winCondition if the game has already been won
+     */
+    public Game(GameMap map, Player player, Item lastItemUsed, boolean winCondition){
+        this.map=map;
+        this.player=player;
+        this.lastItemUsed=lastItemUsed;
+        this.WIN_CONDITION=winCondition;
+        if (player != null)
+            player.join(map);
+    }
+
     /**
      * Creates a new player
      *
@@ -26,6 +60,7 @@ public class Game{
      */
     public void createPlayer(String nome){
         player=new Player(nome);
+        player.join(map);
         player.setLocation(map.get("hall"));
     }
     /**
@@ -35,6 +70,15 @@ public class Game{
      */
     public Player getPlayer(){ return player; }
 
+    /**
+     * Returns the last object the player dealt with, as the game reads it now
+     *
+     * @return the last object, or {@code null}
+     */
+    public Item getLastItemUsed(){
+        return map.current(lastItemUsed);
+    }
+
     /**
      * Returns the map
      *
@@ -66,17 +110,18 @@ public class Game{
                     message=item2.getAltDescription();
                 }
                 else
-                    item2.setVisibleItemContained();
+                    player.own(item2.getItemContained()).setVisible(true);
             }
             else if(item1 instanceof LockedItem item2){
                 if(item2.objectsSize()==0)
                     message=item2.getAltDescription();
             }
-            String specialCases=specialCases(item1);
+            RuleBook.Outcome outcome = RuleBook.castle().apply(RuleBook.Trigger.INTERACT, player, item1, null);
+            String specialCases = outcome.victory() ? victory() : outcome.message();
             if(!specialCases.isEmpty())   message = message + "\n" + specialCases;
             if (isWinCondition()) message = victory();
         }
-        controller.show(message);
+        output.show(message);
         return item1;
     }
 
@@ -90,7 +135,7 @@ public class Game{
     public Item use(String item){
         Storage playerStorage = player.getInventory();
         if (playerStorage.getItem(item)==null){
-            controller.show(item+ " is not in your inventory");
+            output.show(item+ " is not in your inventory");
             return null;
         }
         String message = null;
@@ -98,11 +143,14 @@ public class Game{
         if(playerStorage.hasItem(item))
         {
             Item playerItem = playerStorage.getItem(item);
-            String secMessage="";
-            if (lastItemUsed instanceof LockedItem lockedItem){
+            lastItemUsed = map.current(lastItemUsed);
+            if (lastItemUsed instanceof LockedItem lockedItem) {
+                if (lockedItem.getObject(playerItem.getName()) != null)
+                    lastItemUsed = lockedItem = player.own(lockedItem);
                 message= lockedItem.unlockItem(playerItem);
-                secMessage=specialCases((LockedItem) lastItemUsed, playerStorage.getItem(item));
             }
+            RuleBook.Outcome outcome = RuleBook.castle().apply(RuleBook.Trigger.USE, player, playerItem, lastItemUsed);
+            String secMessage = outcome.message();
             if (message == null && secMessage.isEmpty())
                 message = "You can't use this item here";
             else{
@@ -111,92 +159,20 @@ public class Game{
                     message=secMessage;
                 else
                     message+="\n"+secMessage;
-                specialCases(itemRemoved);
+                if (outcome.returnsItem())  playerStorage.add(itemRemoved);
+                if (outcome.victory())  victory();
             }
         }
-        controller.show(message);
+        output.show(message);
         return itemRemoved;
     }
 
-    /**
-     * Handles some special cases
-     *
-     * @param item object I used or object I interacted with
-     * @return message
-     */
-    private String specialCases(Item item)
-    {
-        Throwable t = new Throwable();
-        StackTraceElement[] elements = t.getStackTrace();
-        if(item.getName().equals("gloves") || item.getName().equals("hammer") && elements[1].getMethodName().equals("use"))
-            player.getInventory().add(item);
-
-        if(item.getName().equals("tray"))
-        {
-            if(!player.getInventory().hasItem("gloves"))
-            {
-                player.loseLifePoints(1);
-                return "You lost a life point because you didn't use gloves, the oven tray was glowing";
-            }
-        }
-
-        if(item.getName().equals("food"))
-        {
-            player.loseLifePoints(1);
-            return "You lost a life point because you ate rotten food";
-        }
-
-        if(item.getName().equals("gateway") && player.getLocation().getStorage().getItem("chichibio").isVisible())
-            return victory();
-
-        return "";
-    }
-    /**
-     * Handles some special cases
-     *
-     * @param lastItemUsed object I interacted with
-     * @param item object I used
-     * @return message
-     */
-    private String specialCases(LockedItem lastItemUsed, Item item)
-    {
-        if (lastItemUsed.getName().equals("door") || lastItemUsed.getName().equals("gate"))
-        {
-            Location location = (Location) lastItemUsed.getItemBlocked();
-            if (location.isUnlocked())
-                lastItemUsed.setVisible(false);
-        }
-
-        if (lastItemUsed.getName().equals("right-cell"))
-        {
-            Item itemBlocked= (Item) lastItemUsed.getItemBlocked();
-            if (itemBlocked.getName().equals("claudio"))
-            {
-                itemBlocked.setVisible(false);
-                if (!player.getInventory().hasItem("sword"))
-                {
-                    player.loseLifePoints(2);
-                    return "You just lost two life points because you didn't have the sword to defend yourself";
-                }
-                else
-                    return "Luckily you had the sword to defend yourself!!!";
-            }
-        }
-
-        if(item.getName().equals("hammer") && (lastItemUsed.getName().equals("gate") || lastItemUsed.getName().equals("computer") || lastItemUsed.getName().equals(("machine"))))
-        {
-            player.loseLifePoints(1);
-            return "You lost a life point because you damaged the " + lastItemUsed.getName()+ ". Remember, brute force is not always the solution!";
-        }
-        return "";
-    }
-
     /**
      * Game command: help
      * Shows all possible commands
      */
     public void help(){
-        controller.show("""
+        output.show("""
                 The possible commands are:
                 - look around: to show the list of items in the room
                 - go: to show the rooms/directions where you can move to
@@ -222,17 +198,17 @@ public class Game{
     public Location go(String direction){
         if (direction == null)
         {
-            controller.show(map.printDirections(player.getLocation()));
+            output.show(map.printDirections(player.getLocation()));
         }
         else if (direction.equals("back"))
         {
             Location backLocation = player.popLastLocation();
             if (backLocation!= null){
                 player.setLocation(backLocation);
-                controller.showImage(backLocation.getName());
-                controller.show(backLocation.getDescription());
+                output.showImage(backLocation.getName());
+                output.show(backLocation.getDescription());
             } else
-                controller.show("This is the first location you visited, you cannot go back anymore");
+                output.show("This is the first location you visited, you cannot go back anymore");
             return backLocation;
         }
         else
@@ -240,12 +216,12 @@ public class Game{
             Location newLocation = map.getExit(player.getLocation(),direction);
             if (newLocation == null || !newLocation.isUnlocked())
             {
-                controller.show("Direction not valid");
+                output.show("Direction not valid");
                 return null;
             }
             player.setLocation(newLocation);
-            controller.showImage(newLocation.getName());
-            controller.show(newLocation.getDescription());
+            output.showImage(newLocation.getName());
+            output.show(newLocation.getDescription());
             return newLocation;
         }
         return null;
@@ -255,7 +231,7 @@ public class Game{
      * Closes the game windows
      */
     public void exit(){
-        controller.close();
+        output.close();
     }
 
     /**
@@ -279,8 +255,8 @@ public class Game{
      */
     public String victory() {
         this.WIN_CONDITION = true;
-        controller.showImage("victory");
-        controller.show("");
+        output.showImage("victory");
+        output.show("");
         return  "YOU WON! \nCongratulations, you escaped the castle, now you're free!\n\nEnter: restart or exit";
 
     }
@@ -293,4 +269,172 @@ public class Game{
     public boolean isWinCondition() {
         return WIN_CONDITION;
     }
-}
\ No newline at end of file
+
+    /**
+     * {@code GameAdapter} streams a {@code Game} as an object graph: every {@code Location} and every
+     * {@code Item} is written once, keyed by its UUID, and all the other occurrences (rooms of the map,
+     * storages, the player's history, {@code ContainerItem.itemContained}, {@code LockedItem.objects}
+     * and {@code LockedItem.itemBlocked}) are written as id references.
+     * The rooms come first and every item comes after the objects it refers to, so reading is a single
+     * pass over the {@code JsonReader} with no intermediate tree. The directions of the world are saved with
+     * the rooms; a save without them is a game of the castle.
+     * Saves written before the graph format (without a {@code version}) are still accepted.
+     *
+     * @see SaveGraph
+     */
+    public static class GameAdapter extends TypeAdapter<Game> {
+        private static final TypeAdapter<JsonElement> ELEMENT_ADAPTER = new Gson().getAdapter(JsonElement.class);
+
+        @Override
+        public void write(JsonWriter out, Game game) throws IOException {
+            if (game == null) {
+                out.nullValue();
+                return;
+            }
+            SaveGraph graph = SaveGraph.of(game);
+            Location.LocationAdapter locationAdapter = new Location.LocationAdapter(graph);
+            Item.ItemAdapter itemAdapter = new Item.ItemAdapter(graph);
+
+            out.beginObject();
+            out.name("version").value(SAVE_FORMAT_VERSION);
+            out.name("locations").beginArray();
+            for (Location location : graph.getLocations())
+                locationAdapter.write(out, location);
+            out.endArray();
+            out.name("items").beginArray();
+            for (Item item : graph.getItems())
+                itemAdapter.write(out, item);
+            out.endArray();
+            out.name("rooms").beginArray();
+            for (Location room : game.getMap().getRooms())
+                SaveGraph.writeReference(out, room);
+            out.endArray();
+            out.name("directions").beginObject();
+            Map<String, Map<String, String>> directions = game.getMap().getRoomGraph().directions();
+            for (Location room : game.getMap().getRooms()) {
+                Map<String, String> ways = directions.get(room.getName());
+                if (ways == null)
+                    continue;
+                out.name(room.getName()).beginObject();
+                for (Map.Entry<String, String> way : ways.entrySet())
+                    out.name(way.getKey()).value(way.getValue());
+                out.endObject();
+            }
+            out.endObject();
+            out.name("player");
+            new Player.PlayerAdapter(graph).write(out, game.getPlayer());
+            out.name("lastItemUsed");
+            SaveGraph.writeReference(out, game.getLastItemUsed());
+            out.name("winCondition").value(game.isWinCondition());
+            out.endObject();
+        }
+
+        @Override
+        public Game read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            in.beginObject();
+            if (!in.hasNext()) {
+                in.endObject();
+                throw new JsonParseException("Empty save");
+            }
+            String property = in.nextName();
+            if (!"version".equals(property))
+                return readLegacy(property, in);
+            int version = in.nextInt();
+            if (version != SAVE_FORMAT_VERSION)
+                throw new JsonParseException("Unsupported save format version: " + version);
+
+            SaveGraph graph = new SaveGraph();
+            Location.LocationAdapter locationAdapter = new Location.LocationAdapter(graph);
+            Item.ItemAdapter itemAdapter = new Item.ItemAdapter(graph);
+            List<Location> rooms = new ArrayList<>();
+            Map<String, Map<String, String>> directions = null;
+            Player player = null;
+            Item lastItemUsed = null;
+            boolean winCondition = false;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "locations":
+                        in.beginArray();
+                        while (in.hasNext())
+                            graph.addLocation(locationAdapter.read(in));
+                        in.endArray();
+                        break;
+                    case "items":
+                        in.beginArray();
+                        while (in.hasNext())
+                            graph.addItem(itemAdapter.read(in));
+                        in.endArray();
+                        break;
+                    case "rooms":
+                        in.beginArray();
+                        while (in.hasNext())
+                            rooms.add(graph.readLocation(in));
+                        in.endArray();
+                        break;
+                    case "directions":
+                        directions = new LinkedHashMap<>();
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            Map<String, String> ways = new LinkedHashMap<>();
+                            directions.put(in.nextName(), ways);
+                            in.beginObject();
+                            while (in.hasNext())
+                                ways.put(in.nextName(), in.nextString());
+                            in.endObject();
+                        }
+                        in.endObject();
+                        break;
+                    case "player":
+                        player = new Player.PlayerAdapter(graph).read(in);
+                        break;
+                    case "lastItemUsed":
+                        lastItemUsed = graph.readItem(in);
+                        break;
+                    case "winCondition":
+                        winCondition = in.nextBoolean();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            if (player == null)
+                throw new JsonParseException("Save without player");
+            graph.fillStorages();
+            GameMap map;
+            try {
+                map = directions == null ? new GameMap(rooms) : new GameMap(rooms, directions);
+            } catch (IllegalArgumentException e) {
+                throw new JsonParseException(e.getMessage(), e);
+            }
+            return new Game(map, player, lastItemUsed, winCondition);
+        }
+
+        /**
+         * Reads the rest of a save written with the old format, where every field was serialized by reflection
+         *
+         * @param firstProperty the name of the property already consumed
+         * @param in the reader, positioned on the value of {@code firstProperty}
+         * @return the game read
+         * @throws IOException if an I/O error occurs
+         */
+        private Game readLegacy(String firstProperty, JsonReader in) throws IOException {
+            JsonObject jsonObject = new JsonObject();
+            jsonObject.add(firstProperty, ELEMENT_ADAPTER.read(in));
+            while (in.hasNext())
+                jsonObject.add(in.nextName(), ELEMENT_ADAPTER.read(in));
+            in.endObject();
+            // every load has its own registry, so it never returns the objects of another game
+            Registry registry = new Registry();
+            Gson legacyGson = new GsonBuilder()
+                    .registerTypeAdapter(Item.class, new Item.ItemDeserializer(registry))
+                    .registerTypeAdapter(Location.class, new Location.LocationDeserializer(registry))
+                    .create();
+            return legacyGson.fromJson(jsonObject, Game.class);
+        }
+    }
+}
@@ -1,9 +1,13 @@
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * {@code GameMap} is a list of the rooms of the map. Here all the {@code Item} and all
- * the {@code Location} are initialized.
+ * {@code GameMap} is a list of the rooms of the map. All the {@code Item} and all the {@code Location} of the
+ * castle are loaded once from {@value WorldLoader#CASTLE} in its {@link WorldPrototype}, whose rooms and items
+ * are shared by every game; a game copies a room, with its items, the first time it changes it.
  *
  * @see Item
  * @see ContainerItem
@@ -12,270 +16,283 @@ import java.util.List;
  * @see Storage
  */
 public class GameMap {
-    private List<Location> rooms;
+    private final WorldPrototype prototype;
+    private final RoomGraph graph;
+    /**
+     * The rooms of the game. For a world, only the rooms the game has changed, allocated with the first of them
+     */
+    private Location[] rooms;
+    /**
+     * The items the game has copied from the world, allocated with the first of them
+     */
+    private Item[] items;
+    private final long seed;
+    private final PuzzleState puzzles;
+    /**
+     * The player of the game, moved to the copy of a room when the room is copied
+     */
+    private Player player;
 
     /**
-     *  First and only constructor of the class. Calls the method createRooms.
+     *  First constructor of the class, the rooms are a copy of the castle.
+     *
+     * @see WorldPrototype#castle()
      */
     public GameMap() {
-        createRooms();
+        this(WorldPrototype.castle());
     }
 
     /**
-     * It returns the location if it exists
+     * Second constructor of the class, the rooms are a copy of a world. The game reads the rooms and the items
+     * of the world until it first changes them: picking or dropping an item, showing or hiding an item,
+     * unlocking a room or using an object on a locked item copies the rooms involved, with their items, into
+     * the game. See {@link #own(Location)} and {@link #own(Item)}.
      *
-     * @param nameLocation the name of the location
-     * @return the Location if it exists, otherwise null
+     * @param prototype the world
      */
-    public Location get(String nameLocation){
-        for (Location loc : rooms)
-            if (loc.getName().equals(nameLocation))
-                return loc;
-        return null;
+    public GameMap(WorldPrototype prototype) {
+        this.prototype = prototype;
+        this.graph = prototype.getRoomGraph();
+        this.seed = ThreadLocalRandom.current().nextLong() & ~0xf000L | 0x4000L;   // a version 4 UUID
+        this.puzzles = PuzzleState.of(prototype.getPuzzleGraph(), this);
     }
 
     /**
-     * It returns the new location if the direction provided by the player is allowed
+     * Third constructor of the class, used when a save written without its directions is restored. The directions
+     * of the rooms are the ones of the castle, the only world of those saves.
      *
-     * @param location The location the player is in
-     * @param direction The direction the player wants to go
-     * @return the new location if the direction is allowed, otherwise null
+     * @param rooms the rooms of the map
      */
-    public Location getExit(Location location, String direction){
-        if (location.getExit().contains(direction)){
-            String dir=translateCoordinate(location.getName(), direction);
-            return get(dir);
-        }
-        return null;
+    public GameMap(List<Location> rooms) {
+        this(rooms, WorldPrototype.castle().getRoomGraph().directions());
     }
 
     /**
-     * The method translate del cardinal direction into the name of the location based on the location the player is in
+     * Fourth constructor of the class, used when a saved game is restored
      *
-     * @param position The position of the player as the name of the room
-     * @param direction The direction the player wants to go, either as a cardinal direction or name of the room
-     * @return The new Location as the name of the room
+     * @param rooms the rooms of the map
+     * @param directions for every room, the name of the room each of its directions leads to
+     * @throws IllegalArgumentException if two rooms have the same name
      */
-    private String translateCoordinate(String position, String direction){
-        if (position.equals("studio") || position.equals("kitchen") || position.equals("lab") || position.equals("dungeons"))
-            return "hall";
-        else{
-            switch (direction){
-                case "north" : return "dungeons";
-                case "south" : return "lab";
-                case "east" : return "kitchen";
-                case "west" : return "studio";
-            }
-        }
-        return direction;
+    public GameMap(List<Location> rooms, Map<String, Map<String, String>> directions) {
+        this.prototype = null;
+        this.graph = RoomGraph.compile(rooms, directions);
+        this.rooms = rooms.toArray(new Location[0]);
+        this.seed = 0;
+        this.puzzles = PuzzleState.attach(rooms);
     }
 
     /**
-     * It prints the directions the player can go from the location is in
+     * Returns all the rooms of the map. The rooms and items of the world the game still shares are copied first,
+     * so that everything returned, and everything it refers to, belongs to the game, e.g. to save it.
      *
-     * @param location The Location the player is in
-     * @return All the possible directions the player can go from that position
+     * @return the rooms of the map
      */
-    public String printDirections(Location location) {
-        String direction="You can go:\n";
-        for (String exit : location.getExit()) {
-            String exitTranslated=translateCoordinate(location.getName(),exit);
-            if (get(exitTranslated).isUnlocked())
-                direction += exit + "\n";
+    public List<Location> getRooms() {
+        if (prototype != null) {
+            for (int i = 0; i < prototype.rooms(); i++)
+                ownRoom(i);
+            for (int i = 0; i < prototype.size(); i++)
+                copy(i);
         }
-        return direction;
+        return Arrays.asList(rooms);
     }
 
     /**
-     *  Initializes all the Location and all the Object of the map
+     * Returns the progress of the game through the locked items
+     *
+     * @return the state of the locked items
      */
-    private void createRooms() {
-
-        String hallDescription = "You are now in the hall. The medieval castle hall, illuminated by sparkling " +
-                "chandeliers, glows with precious antiques, creating a magical and regal atmosphere.";
-        String studioDescription = "You are now in the studio. The medieval castle studio, with brick walls and " +
-                "shelves full of dusty books, is a perfect refuge for moments of reflection.";
-        String kitchenDescription = "You are now in the kitchen. The medieval castle kitchen, animated by blazing " +
-                "braziers and steaming pots, smells of freshly baked bread and exotic spices, offering a cosy rustic atmosphere";
-        String labDescription = "You are now in the lab. The medieval castle workshop, full of glittering stills and " +
-                "sparkling potions, is a fascinating place where science meets magic.";
-        String dungeonDescription = "You are now in the dungeons. The medieval castle dungeons, with their eerie shadows and rusty " +
-                "chains, exude a dark fascination, whispering stories of mysteries and adventures lost in time";
-
-        Storage storageHall = new Storage();
-        Storage storageStudio = new Storage();
-        Storage storageKitchen = new Storage();
-        Storage storageLab = new Storage();
-        Storage storageDungeon = new Storage();
-
-        List<String>hallExits= new ArrayList<>();
-        List<String>studioExits= new ArrayList<>();
-        List<String>kitchenExits = new ArrayList<>();
-        List<String>labExits = new ArrayList<>();
-        List<String>dungeonExits = new ArrayList<>();
-
-        Location hall = new Location("hall", hallDescription, storageHall, hallExits, true);
-        Location studio = new Location("studio", studioDescription, storageStudio, studioExits, true);
-        Location kitchen = new Location("kitchen", kitchenDescription, storageKitchen, kitchenExits, true);
-        Location lab = new Location("lab",labDescription,storageLab,labExits,false);
-        Location dungeons = new Location("dungeons", dungeonDescription, storageDungeon, dungeonExits, false);
-
-
-        Item note = new Item("note","You are trapped in my castle, you are now in the hall. This room has four doors, but two of them are locked. To the east there is the kitchen, to the west the study. The north gate and the south door are locked. Use your wits to solve the puzzles and find a way out. I wish you good luck, you'll need it.\nEnter \"help\" to see all the commands", true, true );
-        Item armour = new Item("armour","A medieval armour is placed next to the gate. Intrigued, you get closer " +
-                " and all of a sudden it starts talking: \n\"To go through this door, you need something keen,\n" +
-                "a substance that burns, though not often seen.\n" +
-                "It can wear down the strong, leave its mark in the flash,\n" +
-                "though it's clear and quite common, it makes metals clash\"\nIt sounds like a riddle, what does that mean?", true, false );
-        Item candlestick = new Item("Candlestick","A gold candlestick with 3 candles rests over the table. " +
-                "The light it produces is not much but could come in handy", true, true);
-        Item painting = new Item("painting","The painting depicts the owner of the castle",true,false);
-        List<Item> itemsDoor = new ArrayList<>();
-        LockedItem door = new LockedItem("door",  "In the south facing wall there is an armored door. " +
-                "There are 2 locks. Maybe the exit is back here... but you need 2 keys",
-                false, true, itemsDoor, lab, "Good job, you found both the keys and opened the door. You just opened" +
-                " a way to the lab","The door is opened" );
-        List<Item> itemsGate = new ArrayList<>();
-        LockedItem gate = new LockedItem("gate", "In the north facing wall there is a large and powerful " +
-                "door of solid wood. The gear is locked and there is no way to open it... You have to find an alternative way to " +
-                "go through", false, true, itemsGate, dungeons, "Good job, you figured out the solution to the " +
-                "riddle and managed to synthesise the acid and now you have created a passage to the castle dungeons","The gate is opened");
-
-        Item leaflet = new Item("leaflet", "The sheet has only one writing in the center, H2SO4. It looks like some kind of code... but who knows? " +
-                "To be kept with such care it must surely have a very important meaning", false, true);
-        ContainerItem drawer = new ContainerItem("drawer", "The last drawer at the bottom of the desk is open. " +
-                "Inside there is a leaflet",true,false, leaflet, "You already opened this drawer, " +
-                "nothing new magically appeared.");
-        Item key1 = new Item("key", "The key has a modern look. It seems to be the key of an armored door...",false,true);
-        itemsDoor.add(key1);
-        ContainerItem carpet= new ContainerItem("carpet","A beautiful persian carpet covers much of the studio floor. Looking for clues you " +
-                "decide to raise it and with great surprise you find a mysterious key", true,false, key1,"A beautiful persian carpet covers much of the studio floor.");
-        Item sword = new Item("sword", "Hanging on the wall is a sword whose nameplate reads: \"The legend says that this is the sword belonged " +
-                "to King Artu', no sword is sharper and brighter\"\nWell, at least you have something to defend yourself with.", true, true);
-        Item crane = new Item("crane", "An embalmed crane is standing on a pedestal. Its white and grey feathers and sharp beak make it an elegant hunter." +
-                "Such an odd animal to keep in your studio, maybe it had some special meaning to the owner", true, false);
-        Item key2 = new Item("key", "The key has a modern look. It seems to be the key of an armored door...",
-                false, true);
-        itemsDoor.add(key2);
+    public PuzzleState getPuzzles() {
+        return puzzles;
+    }
 
-        ContainerItem soup = new ContainerItem("soup", "In the middle of the kitchen table there is a soup that smells great. Tempted by " +
-                "its smell you taste it and spoon after spoon you finish it. On the bottom of the empty plate you find a key", true, false, key2, "Your already" +
-                " ate the soup!!");
-        Item recipe = new Item("recipe","\"1 Gru\n2 cloveS of garlic\n1 sprig of rosemarY\nsalt and Pepper\neXtra virgin olive oil\n1 glass of wHite" +
-                " wine\n1 Lemon\n1 tablespoon of Apples\"\n What a weird choice of uppercase letters, I wonder if they mean something...",false,true);
-        ContainerItem cookbook = new ContainerItem("cookbook","What an amazing discovery, the cook’s recipe book. Among the many, " +
-                "a recipe in particular arouses your attention.",true,false, recipe, "The cook's recipe book contains many " +
-                "recipes of the best dishes in the world to satisfy the fine taste of the castle owner");
-        Item tray = new Item("tray","Inside the oven a baking tray contains a baked crane, the smell is delicious!",false,false);
-        ContainerItem oven = new ContainerItem("oven", "Intrigued by the smell in the air you approach the oven. Looking inside you see a baking tray. Because it " +
-                "looks so good and smells so incredible, you decide to open the oven to inspect it.", true, false, tray,"The oven has been open since " +
-                "the last time you opened it, remember to use something not to burn yourself");
-        Item food = new Item("food","It definitely doesn't taste the best...",false,false);
-        ContainerItem pantry = new ContainerItem("pantry","You expect the kitchen pantry to have an endless supply of the most sought-after ingredients from all over the world " +
-                "but instead you only find a bag of bad-smelling food",true,
-                false,food,"Well, all the same here since the last check");
+    /**
+     * It returns the location if it exists
+     *
+     * @param nameLocation the name of the location
+     * @return the Location if it exists, otherwise null
+     */
+    public Location get(String nameLocation){
+        int index = graph.index(nameLocation);
+        return index < 0 ? null : room(index);
+    }
 
-        Item skull = new Item("skull", "Leaning against a shelf there is a skull in plain sight. It is the skull of the legendary Hamlet, King of Denmark. ", true, true);
-        Item gloves = new Item("gloves","Ordinary-looking laboratory gloves, white in colour and made of a very durable material. ", false, true);
-        ContainerItem drawer1 = new ContainerItem("drawer", "Inside one of the many drawer in the lab you will find some " +
-                "safety devices, including gloves. ",true,false, gloves, "You already opened this drawer, " +
-                "nothing new appeared magically.");
-        Item hammer = new Item("hammer","The hammer looks powerful and seems to be very heavy, it will be useful if you need to break something.",true, true);
-        Item acid = new Item("acid","The bottle contains a clear, odourless liquid that is still steaming. Sulphuric acid has a powerful " +
-                "corrosive action, and must be handled with care.",false,true);
-        itemsGate.add(acid);
-        List<Item> itemsMachine = new ArrayList<>();
-        itemsMachine.add(leaflet);
-        LockedItem machine = new LockedItem("machine","The laboratory machine seems to be very complex, it has thousands of tubes and " +
-                "as many steaming test tubes of every possible colour. The machine is used to create chemicals but requires the formula, maybe it is writter somewhere",false,false,itemsMachine,acid,"What an insight, " +
-                "you realised that H2SO4 is chemical formula of sulphuric acid. The machine just synthesized a test tube of it.","You can synthesise other chemicals if you find other formulas around the castle.");
-        List<Item> itemsPC= new ArrayList<>();
-        itemsPC.add(recipe);
-        LockedItem computer = new LockedItem("computer","A modern-looking computer sits on top of the table. Intrigued by such a modern object you decide " +
-                "to open it, but to your misfortune it requires a password, maybe it is written on some piece of paper.",false,true,itemsPC,machine,"Well done, the password is" +
-                " correct. The computer has activated some gears and from the centre of the table rises a strange looking-machine.","You have already entered the password, " +
-                "you can now use the machine");
+    /**
+     * Returns the graph of the rooms of the map
+     *
+     * @return the graph of the rooms
+     */
+    public RoomGraph getRoomGraph() {
+        return graph;
+    }
 
-        Item chichibio = new Item("Chichibio","\"We'd better find a way out before someone come back...\"",false,false);
-        Item claudio = new Item("Claudio","",false, false);
-        List<Item> itemsLeftCell= new ArrayList<>();
-        itemsLeftCell.add(hammer);
-        List<Item> itemsRightCell= new ArrayList<>();
-        itemsRightCell.add(hammer);
-        LockedItem leftCell = new LockedItem("left-cell","Inside the cell there is Chichibio " +
-                "who introduces himself: \"I am a Venetian cook, I am accused of eating a leg of the crane intended for my master, " +
-                "but I am innocent, all he had to do was shout loudly and the second leg would come out, please help me\"",false,true,itemsLeftCell,chichibio,
-                "Well done, you freed Chichibio and now he can help you get out of this castle","You have already opened the cell, it is now empty");
-        LockedItem rightCell = new LockedItem("right-cell","Inside the cell is Claudius, Hamlet's uncle, who introduces himself: \"my nephew " +
-                "Hamlet has accused me of killing my brother, but I am innocent, you must help me\".",false,true,itemsRightCell,claudio,"Claudius is a " +
-                "shrewd and ambitious character whose thirst for power leads him to commit nefarious acts. You open his cell and immediately he challenges you to a duel, after " +
-                "which he disappears into the darkness. ","You have already opened the cell, it is now empty");
-        Item gateway = new Item("gateway","A huge, mighty-looking gateway is blocked by thoughtful gears. The exit might be hiding behind it," +
-                " you need someone to help you turn the rusty gears, but choose well.",true,false);
+    /**
+     * Returns a room of the map: the copy of the game if it has one, otherwise the room shared by the world
+     *
+     * @param index the index of the room
+     * @return the room
+     */
+    Location room(int index) {
+        if (rooms == null || rooms[index] == null)
+            return prototype.room(index);
+        return rooms[index];
+    }
 
+    /**
+     * Returns an item of the world: the copy of the game if it has one, otherwise the item shared by the world
+     *
+     * @param index the index of the item in the world
+     * @return the item
+     */
+    Item item(int index) {
+        if (items == null || items[index] == null)
+            return prototype.item(index);
+        return items[index];
+    }
 
-        hallExits.add("kitchen");
-        hallExits.add("studio");
-        hallExits.add("lab");
-        hallExits.add("dungeons");
-        kitchenExits.add("hall");
-        studioExits.add("hall");
-        labExits.add("hall");
-        dungeonExits.add("hall");
+    /**
+     * Sets the player of the game, who is moved to the copies of the rooms as they are made
+     *
+     * @param player the player
+     * @see Player#join(GameMap)
+     */
+    void setPlayer(Player player) {
+        this.player = player;
+    }
 
-        hallExits.add("east");
-        hallExits.add("west");
-        hallExits.add("south");
-        hallExits.add("north");
-        kitchenExits.add("west");
-        studioExits.add("east");
-        labExits.add("north");
-        dungeonExits.add("south");
+    /**
+     * Returns the room of the game, to be changed: a room shared by the world is copied into the game first,
+     * together with the rooms whose items its items refer to
+     *
+     * @param room a room of the map
+     * @return the room belonging to the game
+     * @throws IllegalArgumentException if the room is shared by another world
+     */
+    public Location own(Location room) {
+        if (room == null || prototype == null || !room.isShared())
+            return room;
+        int index = graph.index(room.getName());
+        if (index < 0 || prototype.room(index) != room)
+            throw new IllegalArgumentException(room.getName() + " is not a room of this map");
+        return ownRoom(index);
+    }
 
+    /**
+     * Returns the item of the game, to be changed: an item shared by the world is copied into the game first,
+     * with the rooms holding it
+     *
+     * @param item an item of the map
+     * @param <T> the kind of the item
+     * @return the item belonging to the game, of the same kind
+     * @throws IllegalArgumentException if the item is shared by another world
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Item> T own(T item) {
+        if (item == null || prototype == null || !item.isShared())
+            return item;
+        int index = prototype.indexOf(item);
+        if (index < 0)
+            throw new IllegalArgumentException(item.getName() + " is not an item of this map");
+        int room = prototype.anchor(index);
+        if (room >= 0)
+            ownRoom(room);
+        return (T) copy(index);
+    }
 
-        storageHall.add(note);
-        storageHall.add(armour);
-        storageHall.add(candlestick);
-        storageHall.add(painting);
-        storageHall.add(door);
-        storageHall.add(gate);
+    /**
+     * Returns the room the game reads in place of a room: its copy once the game has one
+     *
+     * @param room a room of the map
+     * @return the copy of the room, or the room itself
+     */
+    public Location current(Location room) {
+        if (room == null || rooms == null || !room.isShared())
+            return room;
+        int index = graph.index(room.getName());
+        return index < 0 || rooms[index] == null || prototype.room(index) != room ? room : rooms[index];
+    }
 
-        storageStudio.add(leaflet);
-        storageStudio.add(drawer);
-        storageStudio.add(key1);
-        storageStudio.add(carpet);
-        storageStudio.add(sword);
-        storageStudio.add(crane);
+    /**
+     * Returns the item the game reads in place of an item: its copy once the game has one
+     *
+     * @param item an item of the map
+     * @return the copy of the item, or the item itself
+     */
+    public Item current(Item item) {
+        if (item == null || items == null || !item.isShared())
+            return item;
+        int index = prototype.indexOf(item);
+        return index < 0 || items[index] == null ? item : items[index];
+    }
 
-        storageKitchen.add(key2);
-        storageKitchen.add(soup);
-        storageKitchen.add(recipe);
-        storageKitchen.add(cookbook);
-        storageKitchen.add(oven);
-        storageKitchen.add(tray);
-        storageKitchen.add(pantry);
-        storageKitchen.add(food);
+    private Location ownRoom(int index) {
+        if (rooms == null)
+            rooms = new Location[prototype.rooms()];
+        if (rooms[index] == null) {
+            for (int room : prototype.unit(index))
+                rooms[room] = prototype.copyRoom(room, this);
+            if (player != null)
+                for (int room : prototype.unit(index))
+                    player.replace(prototype.room(room), rooms[room]);
+        }
+        return rooms[index];
+    }
 
-        storageLab.add(skull);
-        storageLab.add(gloves);
-        storageLab.add(drawer1);
-        storageLab.add(hammer);
-        storageLab.add(acid);
-        storageLab.add(machine);
-        storageLab.add(computer);
+    /**
+     * Returns the copy of an item of the world, copying it the first time
+     *
+     * @param index the index of the item in the world
+     * @return the copy of the item
+     */
+    Item copy(int index) {
+        if (items == null)
+            items = new Item[prototype.size()];
+        if (items[index] == null) {
+            items[index] = prototype.copyItem(index, this);
+            if (items[index] instanceof LockedItem lock)
+                puzzles.attach(lock);
+        }
+        return items[index];
+    }
 
-        storageDungeon.add(chichibio);
-        storageDungeon.add(claudio);
-        storageDungeon.add(leftCell);
-        storageDungeon.add(rightCell);
-        storageDungeon.add(gateway);
+    /**
+     * Returns the id of a room or an item copied from the world, made of the random number of the map and of
+     * the index of the object
+     *
+     * @param index the index of the room, or the number of rooms plus the index of the item
+     * @return the id
+     */
+    UUID id(int index) {
+        return new UUID(seed, 0x8000000000000000L | index);
+    }
 
+    /**
+     * It returns the new location if the direction provided by the player is allowed
+     *
+     * @param location The location the player is in
+     * @param direction The direction the player wants to go
+     * @return the new location if the direction is allowed, otherwise null
+     */
+    public Location getExit(Location location, String direction){
+        int target = graph.exit(graph.index(location.getName()), direction);
+        return target < 0 ? null : room(target);
+    }
 
-        rooms = new ArrayList<>();
-        rooms.add(hall);
-        rooms.add(studio);
-        rooms.add(kitchen);
-        rooms.add(lab);
-        rooms.add(dungeons);
+    /**
+     * It prints the directions the player can go from the location is in
+     *
+     * @param location The Location the player is in
+     * @return All the possible directions the player can go from that position
+     */
+    public String printDirections(Location location) {
+        StringBuilder direction = new StringBuilder("You can go:\n");
+        int room = graph.index(location.getName());
+        for (String exit : location.getExit()) {
+            int target = graph.exit(room, exit);
+            if (target >= 0 && room(target).isUnlocked())
+                direction.append(exit).append("\n");
+        }
+        return direction.toString();
     }
 }
@@ -0,0 +1,46 @@
+/**
+ * {@code GameOutput} is what the game engine talks to: it receives the text and the images of the game
+ * and handles the commands that concern the whole session (restart, save, close).
+ * {@link Controller} is the Swing window of the game, {@link HeadlessOutput} keeps everything in memory
+ * so sessions can run without a screen.
+ *
+ * @see Game
+ * @see CommandReader
+ */
+public interface GameOutput {
+    /**
+     * Replaces the text displayed with the specified one
+     *
+     * @param text the text to display
+     */
+    void show(String text);
+
+    /**
+     * Appends the specified text to the text displayed
+     *
+     * @param text the text to append
+     */
+    void update(String text);
+
+    /**
+     * Displays the image of the specified room
+     *
+     * @param text the name of the location, or {@code "victory"}
+     */
+    void showImage(String text);
+
+    /**
+     * Starts a new game for the same player
+     */
+    void restart();
+
+    /**
+     * Saves the current game
+     */
+    void save();
+
+    /**
+     * Ends the session
+     */
+    void close();
+}
@@ -0,0 +1,156 @@
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code GameServer} hosts many players in the same JVM over a line protocol on TCP.
+ * The first line sent by a client is the name of the player, every following line is a command.
+ * After the name and after every command the server sends the text of the game followed by a line
+ * containing only {@link #END_OF_RESPONSE}. The connection is closed when the player exits the game, or when
+ * a line is longer than {@link SessionGateway#MAX_LINE_LENGTH}.
+ * <p>
+ * Every connection runs on its own virtual thread with its own {@link HeadlessOutput} session, so idle
+ * players only cost their game and a few small buffers, not a platform thread.
+ */
+public class GameServer implements Closeable {
+    /**
+     * Default port of the server
+     */
+    public static final int DEFAULT_PORT = 4040;
+    /**
+     * Line sent after every response
+     */
+    public static final String END_OF_RESPONSE = ">";
+    private static final int BUFFER_SIZE = 1024;
+
+    private final int port;
+    private final S3bucket bucket;
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final AtomicInteger sessionIds = new AtomicInteger();
+    private ServerSocket serverSocket;
+
+    /**
+     * Constructor of the class. The server does nothing until {@link #start()} is called.
+     *
+     * @param port the port to listen on, {@code 0} for any free port
+     * @param bucket where the players' games are saved, or {@code null} if saves are not available
+     */
+    public GameServer(int port, S3bucket bucket) {
+        this.port = port;
+        this.bucket = bucket;
+    }
+
+    /**
+     * Opens the port and accepts the connections on a background thread
+     *
+     * @throws IOException if the port can't be opened
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port, 1024);
+        Thread.ofPlatform().name("game-server").start(this::acceptLoop);
+        System.out.println("Game server listening on port " + getPort());
+    }
+
+    /**
+     * Returns the port the server listens on
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of players connected
+     *
+     * @return the number of open sessions
+     */
+    public int getSessionCount() {
+        return sessions.get();
+    }
+
+    /**
+     * Stops accepting connections. The sessions already open go on until their players leave.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().name("session-" + sessionIds.incrementAndGet()).start(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed())
+                    System.err.println("Game server accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        sessions.incrementAndGet();
+        try (socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            String name = readLine(in);
+            if (name == null || name.isBlank())
+                return;
+            HeadlessOutput session = new HeadlessOutput(name.trim(), bucket);
+            respond(out, session);
+            String command;
+            while (!session.isClosed() && (command = readLine(in)) != null) {
+                session.read(command);
+                respond(out, session);
+            }
+        } catch (SocketException e) {
+            // the client went away
+        } catch (IOException e) {
+            System.err.println("Game session failed: " + e.getMessage());
+        } finally {
+            sessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Reads a line ended by a new line, or by the end of the stream, without buffering more than
+     * {@link SessionGateway#MAX_LINE_LENGTH} characters
+     *
+     * @param in the input of the client
+     * @return the line without its end, or {@code null} at the end of the stream
+     * @throws IOException if the line is too long or the input can't be read
+     */
+    private static String readLine(Reader in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (line.length() == SessionGateway.MAX_LINE_LENGTH)
+                throw new IOException("line longer than " + SessionGateway.MAX_LINE_LENGTH + " characters");
+            line.append((char) c);
+        }
+        if (c == -1 && line.isEmpty())
+            return null;
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '\r')
+            line.setLength(end - 1);
+        return line.toString();
+    }
+
+    private static void respond(Writer out, HeadlessOutput session) throws IOException {
+        String text = session.drain();
+        out.write(text);
+        if (!text.endsWith("\n"))
+            out.write('\n');
+        out.write(END_OF_RESPONSE);
+        out.write('\n');
+        out.flush();
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.UUID;
+
+/**
+ * {@code HeadlessOutput} runs a game session without any window. The text of the game is kept in a buffer
+ * that the caller reads with {@link #drain()}, so many sessions can run in the same JVM, e.g. on a server.
+ * Saves go to the {@link S3bucket} given to the constructor, if any, under a key of their own: the name is
+ * only what the client claims, so two sessions using the same name never write over each other's save.
+ *
+ * @see GameOutput
+ */
+public class HeadlessOutput implements GameOutput {
+    private static final int MAX_NAME_LENGTH = 64;
+    private final StringBuilder buffer = new StringBuilder();
+    private final String name;
+    private final S3bucket bucket;
+    private final String saveKey;
+    private Game game;
+    private CommandReader reader;
+    private String image;
+    private boolean closed;
+
+    /**
+     * First constructor of the class, the session can't be saved
+     *
+     * @param name the name of the player
+     */
+    public HeadlessOutput(String name) {
+        this(name, null);
+    }
+
+    /**
+     * Second constructor of the class
+     *
+     * @param name the name of the player
+     * @param bucket where the game is saved, or {@code null} if saves are not available
+     */
+    public HeadlessOutput(String name, S3bucket bucket) {
+        this.name = name;
+        this.bucket = bucket;
+        this.saveKey = saveKey(name);
+        restart();
+    }
+
+    /**
+     * Returns the key of the saves of this session, made of the name, with every character that isn't a letter,
+     * a digit, {@code -} or {@code _} replaced, and an id that is unique to the session
+     *
+     * @param name the name of the player
+     * @return the key of the saves
+     */
+    static String saveKey(String name) {
+        String safeName = name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name;
+        return safeName.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + UUID.randomUUID() + ".json";
+    }
+
+    /**
+     * Returns the key the game of this session is saved under
+     *
+     * @return the key of the saves
+     */
+    public String getSaveKey() {
+        return saveKey;
+    }
+
+    /**
+     * Runs a command of the player
+     *
+     * @param command the command, as typed by the player
+     */
+    public synchronized void read(String command) {
+        reader.read(command);
+    }
+
+    /**
+     * Returns the text written since the last call and empties the buffer
+     *
+     * @return the text written since the last call
+     */
+    public synchronized String drain() {
+        String text = buffer.toString();
+        buffer.setLength(0);
+        return text;
+    }
+
+    /**
+     * Returns the game of the session
+     *
+     * @return the current game
+     */
+    public synchronized Game getGame() {
+        return game;
+    }
+
+    /**
+     * Returns the name of the last image shown
+     *
+     * @return the name of the last image shown
+     */
+    public synchronized String getImage() {
+        return image;
+    }
+
+    /**
+     * Returns whether the player has ended the session
+     *
+     * @return {@code true} if the session is closed
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public synchronized void show(String text) {
+        buffer.setLength(0);
+        buffer.append(text);
+    }
+
+    @Override
+    public synchronized void update(String text) {
+        buffer.append('\n').append(text);
+    }
+
+    @Override
+    public synchronized void showImage(String text) {
+        image = text;
+    }
+
+    @Override
+    public synchronized void restart() {
+        game = new Game(this, name);
+        reader = new CommandReader(this, game);
+        image = "hall";
+        show("Welcome to my castle " + name + ". There's a note in front of you. Enter \"interact note\" to read it.");
+    }
+
+    @Override
+    public synchronized void save() {
+        if (bucket == null) {
+            update("Saves are not available in this session");
+            return;
+        }
+        update(bucket.saveGameState(saveKey, game));
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+    }
+}
@@ -1,5 +1,8 @@
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
 
@@ -14,51 +17,105 @@ import java.util.*;
  *
  */
 public class Item implements Serializable {
-    private final String name;
-    private final String description;
+    /**
+     * The texts of the item, shared by the copies of the item in every game
+     */
+    private final Template template;
     private boolean visible;
     private boolean collectable;
     /**
-     * It is used during the serialization/deserialization process
+     * The id, used during the serialization/deserialization process. It is kept as its two halves, so that the
+     * item doesn't hold an object for it.
+     */
+    private final long idHigh;
+    private final long idLow;
+    /**
+     * An item is put in the {@link Registry#live() live registry} once its id has been handed out
+     */
+    private transient boolean registered;
+    /**
+     * The storage holding the item, told when the item is shown or hidden
+     */
+    private transient Storage storage;
+    /**
+     * A shared item belongs to a {@link WorldPrototype}: every game of the world reads it, and copies it before
+     * changing it
      */
-    private final UUID id;
+    private transient boolean shared;
 
     /**
      * First constructor of the class
      *
-     * @param name name of the item. The player interacts with the item with this name
+     * @param name name of the item, stored lowercase. The player interacts with the item with this name
      * @param description description of the item. It will show with interact command
      * @param visible indicates if the item is visible to player or not
      * @param collectable indicates if the item can be picked up by the player
      */
     public Item(String name, String description, boolean visible, boolean collectable) {
-        id=UUID.randomUUID();
-        this.name = name;
-        this.description = description;
-        this.visible = visible;
-        this.collectable = collectable;
-
-        Registry.registerItem(this);
+        this(UUID.randomUUID(), Template.of(name, description, "", ""), visible, collectable);
     }
 
     /**
      * Second constructor of the class
      *
      * @param id unique id for every item
-     * @param name the name of the item. The player interacts with the item with this name
+     * @param name the name of the item, stored lowercase. The player interacts with the item with this name
      * @param description description of the item. It will show with interact command
      * @param visible indicates if the item is visible to player or not
      * @param collectable indicates if the item can be picked up by the player
      */
     public Item(UUID id, String name, String description, boolean visible, boolean collectable) {
-        this.id = id;
-        this.name = name;
-        this.description = description;
+        this(id, Template.of(name, description, "", ""), visible, collectable);
+    }
+
+    /**
+     * Third constructor of the class, for an item sharing the texts of another one, e.g. the copy of an item
+     * of a {@link WorldPrototype}
+     *
+     * @param id unique id for every item
+     * @param template the texts of the item
+     * @param visible indicates if the item is visible to player or not
+     * @param collectable indicates if the item can be picked up by the player
+     */
+    Item(UUID id, Template template, boolean visible, boolean collectable) {
+        this.idHigh = id.getMostSignificantBits();
+        this.idLow = id.getLeastSignificantBits();
+        this.template = template;
         this.visible = visible;
         this.collectable = collectable;
+    }
+
+    /**
+     * {@code Template} is what never changes in an item: its texts. The copies of an item share its template.
+     *
+     * @param name the name of the item, lowercase
+     * @param description the description of the item
+     * @param altDescription the description of a container or a locked item once opened, {@code ""} otherwise
+     * @param action the text shown when a locked item opens, {@code ""} otherwise
+     */
+    record Template(String name, String description, String altDescription, String action) implements Serializable {
+
+        /**
+         * Creates the texts of an item whose name may not be lowercase yet
+         *
+         * @param name the name of the item, stored lowercase
+         * @param description the description of the item
+         * @param altDescription the alternative description of the item
+         * @param action the text shown when the item opens
+         * @return the texts of the item
+         */
+        static Template of(String name, String description, String altDescription, String action) {
+            return new Template(name.toLowerCase(), description, altDescription, action);
+        }
+    }
 
-        // Register the item in the registry upon creation
-        Registry.registerItem(this);
+    /**
+     * Returns the texts of the item, to be shared by a copy of it
+     *
+     * @return the template of the item
+     */
+    Template getTemplate() {
+        return template;
     }
 
     /**
@@ -67,7 +124,7 @@ public class Item implements Serializable {
      * @return the name of the item
      */
     public String getName() {
-        return name.toLowerCase();
+        return template.name();
     }
 
     /**
@@ -76,7 +133,7 @@ public class Item implements Serializable {
      * @return the description of the item
      */
     public String getDescription() {
-        return description;
+        return template.description();
     }
 
     /**
@@ -101,24 +158,94 @@ public class Item implements Serializable {
      * Sets the visibility of the item to the specified value.
      *
      * @param visible the new visibility state of the item
+     * @throws IllegalStateException if the item is shared by every game of its world
      */
     public void setVisible(boolean visible) {
+        if (this.visible == visible)
+            return;
+        checkNotShared();
         this.visible = visible;
+        if (storage != null)
+            storage.visibilityChanged(this);
+    }
+
+    /**
+     * Marks the item as shared by every game of its world, after which it cannot change
+     *
+     * @see WorldPrototype
+     */
+    void share() {
+        shared = true;
+    }
+
+    /**
+     * Returns whether the item is shared by every game of its world. A game changing it must first get its own
+     * copy through {@link GameMap#own(Item)}.
+     *
+     * @return {@code true} if the item belongs to a {@link WorldPrototype}
+     */
+    boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Refuses to change a shared item
+     *
+     * @throws IllegalStateException if the item is shared by every game of its world
+     */
+    void checkNotShared() {
+        if (shared)
+            throw new IllegalStateException(getName() + " is shared by every game, it has to be copied before it changes");
+    }
+
+    /**
+     * Sets the storage holding the item
+     *
+     * @param storage the storage the item was added to
+     */
+    void setStorage(Storage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Forgets the storage holding the item, unless the item has been added to another one since
+     *
+     * @param storage the storage the item was removed from
+     */
+    void leaveStorage(Storage storage) {
+        if (this.storage == storage)
+            this.storage = null;
     }
 
     /**
-     * Returns the id of the item
+     * Returns the id of the item. The item is registered in the {@link Registry#live() live registry} the first
+     * time its id is asked for, e.g. when it is saved, since the id can only be looked up after that.
      *
      * @return the id of the item
      */
     public UUID getId() {
-        return id;
+        if (!registered) {
+            registered = true;
+            Registry.live().registerItem(this);
+        }
+        return new UUID(idHigh, idLow);
+    }
+
+    /**
+     * Returns whether two items are the same one, i.e. they have the same id
+     *
+     * @param other another item
+     * @return {@code true} if the items have the same id
+     */
+    public boolean isSameAs(Item other) {
+        return this == other || idHigh == other.idHigh && idLow == other.idLow;
     }
 
     /**
      * {@code ItemSerializer} is a custom serializer for Item objects, implementing the
      * {@code JsonSerializer<Item>} interface from Gson. This serializer converts {@code Item} instances
-     * into their JSON representation.
+     * into their JSON representation, nested items and rooms included.
+     * It is kept for the saves written before {@link Game.GameAdapter}.
      *
      * @see JsonSerializer
      * @see Item
@@ -188,6 +315,26 @@ public class Item implements Serializable {
      * @see Registry
      */
     public static class ItemDeserializer implements JsonDeserializer<Item> {
+        private final Registry registry;
+
+        /**
+         * First constructor of the class, the items are looked up among the ones still in use
+         *
+         * @see Registry#live()
+         */
+        public ItemDeserializer() {
+            this(Registry.live());
+        }
+
+        /**
+         * Second constructor of the class
+         *
+         * @param registry the registry of the session, where the items read are looked up and registered
+         */
+        public ItemDeserializer(Registry registry) {
+            this.registry = registry;
+        }
+
         /**
          * Deserializes a JSON element into an {@code Item} object.
          *
@@ -209,17 +356,17 @@ public class Item implements Serializable {
                 boolean collectable = jsonObject.get("collectable").getAsBoolean();
 
                 // Check if the item already exists in the registry
-                Item existingItem = Registry.getItem(id);
+                Item existingItem = registry.getItem(id);
                 if (existingItem != null) {
                     return existingItem;
                 }
 
-                Item item;
-
+                // the objects referenced are read first, so only the creation of this item holds the registry lock
                 if ("ContainerItem".equals(type)) {
                     Item itemContained = context.deserialize(jsonObject.get("itemContained"), Item.class);
                     String altDescription = jsonObject.get("altDescription").getAsString();
-                    item = new ContainerItem(id, name, description, visible, collectable, itemContained, altDescription);
+                    return registry.getOrCreateItem(id, () ->
+                            new ContainerItem(id, name, description, visible, collectable, itemContained, altDescription));
                 } else if ("LockedItem".equals(type)) {
                     List<Item> objects = context.deserialize(jsonObject.get("objects"), new TypeToken<List<Item>>(){}.getType());
                     String itemBlockedType = jsonObject.get("itemBlockedType").getAsString();
@@ -241,13 +388,149 @@ public class Item implements Serializable {
 
                     String action = jsonObject.get("action").getAsString();
                     String altDescription = jsonObject.get("altDescription").getAsString();
-                    item = new LockedItem(id, name, description, visible, collectable, objects, itemBlocked, action, altDescription);
+                    return registry.getOrCreateItem(id, () ->
+                            new LockedItem(id, name, description, visible, collectable, objects, itemBlocked, action, altDescription));
                 } else {
-                    item = new Item(id, name, description, visible, collectable);
+                    return registry.getOrCreateItem(id, () -> new Item(id, name, description, visible, collectable));
                 }
+            }
+        }
+    
+    /**
+     * {@code ItemAdapter} streams any {@code Item} of the save graph. The {@code type} is always the first
+     * property, so reading can hand the rest of the object to {@link ContainerItem.ContainerItemAdapter}
+     * or {@link LockedItem.LockedItemAdapter} without building a tree first.
+     *
+     * @see SaveGraph
+     */
+    public static class ItemAdapter extends TypeAdapter<Item> {
+        private final ContainerItem.ContainerItemAdapter containerItemAdapter;
+        private final LockedItem.LockedItemAdapter lockedItemAdapter;
+
+        /**
+         * Constructor of the adapter
+         *
+         * @param graph the graph of the save being written or read
+         */
+        public ItemAdapter(SaveGraph graph) {
+            this.containerItemAdapter = new ContainerItem.ContainerItemAdapter(graph);
+            this.lockedItemAdapter = new LockedItem.LockedItemAdapter(graph);
+        }
+
+        @Override
+        public void write(JsonWriter out, Item item) throws IOException {
+            if (item instanceof ContainerItem containerItem) {
+                containerItemAdapter.write(out, containerItem);
+            } else if (item instanceof LockedItem lockedItem) {
+                lockedItemAdapter.write(out, lockedItem);
+            } else {
+                out.beginObject();
+                writeHeader(out, item, "Item");
+                out.endObject();
+            }
+        }
+
+        @Override
+        public Item read(JsonReader in) throws IOException {
+            in.beginObject();
+            if (!in.hasNext() || !"type".equals(in.nextName()))
+                throw new JsonParseException("The type must be the first property of an item");
+            String type = in.nextString();
+            Item item;
+            switch (type) {
+                case "ContainerItem":
+                    item = containerItemAdapter.readFields(in);
+                    break;
+                case "LockedItem":
+                    item = lockedItemAdapter.readFields(in);
+                    break;
+                case "Item":
+                    Header header = new Header();
+                    while (in.hasNext()) {
+                        if (!header.read(in.nextName(), in))
+                            in.skipValue();
+                    }
+                    item = new Item(header.id(), header.name, header.description, header.visible, header.collectable);
+                    break;
+                default:
+                    throw new JsonParseException("Unknown item type: " + type);
+            }
+            in.endObject();
+            return item;
+        }
+
+        /**
+         * Writes the type and the properties shared by every kind of item
+         *
+         * @param out the writer
+         * @param item the item to write
+         * @param type the kind of the item
+         * @throws IOException if an I/O error occurs
+         */
+        static void writeHeader(JsonWriter out, Item item, String type) throws IOException {
+            out.name("type").value(type);
+            out.name("id").value(item.getId().toString());
+            out.name("name").value(item.getName());
+            out.name("description").value(item.getDescription());
+            out.name("visible").value(item.isVisible());
+            out.name("collectable").value(item.isCollectable());
+        }
+    }
 
-                Registry.registerItem(item);
-                return item;
+    /**
+     * The properties shared by every kind of item, collected while an item is read
+     */
+    static class Header {
+        private UUID id;
+        String name;
+        String description;
+        boolean visible;
+        boolean collectable;
+
+        /**
+         * Reads the value of the property if it is one of the shared ones
+         *
+         * @param property the name of the property
+         * @param in the reader, positioned on the value
+         * @return {@code true} if the value has been consumed, {@code false} otherwise
+         * @throws IOException if an I/O error occurs
+         */
+        boolean read(String property, JsonReader in) throws IOException {
+            switch (property) {
+                case "type":
+                    in.skipValue();
+                    break;
+                case "id":
+                    id = UUID.fromString(in.nextString());
+                    break;
+                case "name":
+                    name = in.nextString();
+                    break;
+                case "description":
+                    description = in.nextString();
+                    break;
+                case "visible":
+                    visible = in.nextBoolean();
+                    break;
+                case "collectable":
+                    collectable = in.nextBoolean();
+                    break;
+                default:
+                    return false;
             }
+            return true;
+        }
+
+        /**
+         * Returns the id read
+         *
+         * @return the id read
+         * @throws JsonParseException if the item had no id
+         */
+        UUID id() {
+            if (id == null)
+                throw new JsonParseException("Item without id");
+            return id;
         }
     }
+}
@@ -0,0 +1,87 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * {@code LocalSaveStore} keeps every save as a file in a directory, the key being the file name.
+ * Every regular file in the directory is considered a save, except the temporary files of the writes in progress,
+ * whose names start with {@link #TEMP_PREFIX}.
+ *
+ * @see SaveStore
+ */
+public class LocalSaveStore implements SaveStore {
+    /**
+     * Start of the names of the temporary files, which no key may start with
+     */
+    public static final String TEMP_PREFIX = ".tmp-";
+
+    private final Path directory;
+
+    /**
+     * Constructor of the class
+     *
+     * @param directory the directory of the saves, created on the first save if it doesn't exist
+     */
+    public LocalSaveStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Writes the save to a temporary file first and then moves it over the old one,
+     * so a crash during the write never leaves a truncated save behind.
+     */
+    @Override
+    public void put(String key, byte[] content) throws IOException {
+        Path target = resolve(key);
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, TEMP_PREFIX, ".tmp");
+        try {
+            Files.write(temp, content);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public byte[] get(String key) throws IOException {
+        try {
+            return Files.readAllBytes(resolve(key));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public List<String> list() throws IOException {
+        List<String> keys = new ArrayList<>();
+        if (!Files.isDirectory(directory.toAbsolutePath()))
+            return keys;
+        try (Stream<Path> files = Files.list(directory.toAbsolutePath())) {
+            files.filter(Files::isRegularFile)
+                    .map(file -> file.getFileName().toString())
+                    .filter(name -> !name.startsWith(TEMP_PREFIX))
+                    .forEach(keys::add);
+        }
+        return keys;
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return Files.deleteIfExists(resolve(key));
+    }
+
+    private Path resolve(String key) {
+        if (key.isEmpty() || key.equals(".") || key.equals("..") || key.contains("/") || key.contains("\\")
+                || key.startsWith(TEMP_PREFIX))
+            throw new IllegalArgumentException("Invalid save key: " + key);
+        return directory.resolve(key);
+    }
+}
@@ -1,8 +1,12 @@
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import java.lang.reflect.Type;
 
 /**
@@ -15,12 +19,26 @@ import java.lang.reflect.Type;
  * @see Registry
  */
 public class Location implements Serializable {
-    private final String name;
-    private String description;
+    /**
+     * The texts and the exits of the location, shared by the copies of the location in every game
+     */
+    private final Template template;
     private boolean unlocked;
     private Storage storage = new Storage();
-    private List<String> exits;
-    private final UUID id;
+    /**
+     * The id, kept as its two halves, so that the location doesn't hold an object for it
+     */
+    private final long idHigh;
+    private final long idLow;
+    /**
+     * A location is put in the {@link Registry#live() live registry} once its id has been handed out
+     */
+    private transient boolean registered;
+    /**
+     * A shared location belongs to a {@link WorldPrototype}: every game of the world reads it, and copies it
+     * before changing it
+     */
+    private transient boolean shared;
 
     /**
      * First constructor of the class
@@ -32,14 +50,7 @@ public class Location implements Serializable {
      * @param unlocked if the location is unlocked
      */
     public Location(String name, String description, Storage storage, List<String> exits, boolean unlocked) {
-        id= UUID.randomUUID();
-        this.name = name;
-        this.description = description;
-        this.storage = storage;
-        this.exits = exits;
-        this.unlocked = unlocked;
-
-        Registry.registerLoc(this);
+        this(UUID.randomUUID(), name, description, storage, exits, unlocked);
     }
 
     /**
@@ -53,14 +64,43 @@ public class Location implements Serializable {
      * @param unlocked if the location is unlocked
      */
     public Location(UUID id, String name, String description, Storage storage, List<String> exits, boolean unlocked) {
-        this.id=id;
-        this.name = name;
-        this.description = description;
+        this(id, new Template(name, description, exits), storage, unlocked);
+    }
+
+    /**
+     * Third constructor of the class, for a location sharing the texts and the exits of another one, e.g. the
+     * copy of a room of a {@link WorldPrototype}
+     *
+     * @param id unique id for every location
+     * @param template the texts and the exits of the location
+     * @param storage the storage associated with the location
+     * @param unlocked if the location is unlocked
+     */
+    Location(UUID id, Template template, Storage storage, boolean unlocked) {
+        this.idHigh = id.getMostSignificantBits();
+        this.idLow = id.getLeastSignificantBits();
+        this.template = template;
         this.storage = storage;
-        this.exits = exits;
         this.unlocked = unlocked;
+    }
+
+    /**
+     * {@code Template} is what never changes in a location. The copies of a location share its template.
+     *
+     * @param name the name of the location
+     * @param description the description of the location
+     * @param exits the list of exits
+     */
+    record Template(String name, String description, List<String> exits) implements Serializable {
+    }
 
-        Registry.registerLoc(this);
+    /**
+     * Returns the texts and the exits of the location, to be shared by a copy of it
+     *
+     * @return the template of the location
+     */
+    Template getTemplate() {
+        return template;
     }
 
     /**
@@ -69,7 +109,7 @@ public class Location implements Serializable {
      * @return the name of the location
      */
     public String getName() {
-        return name;
+        return template.name();
     }
 
     /**
@@ -78,7 +118,7 @@ public class Location implements Serializable {
      * @return the description of the Location
      */
     public String getDescription() {
-        return description;
+        return template.description();
     }
 
     /**
@@ -87,7 +127,7 @@ public class Location implements Serializable {
      * @return the List of the exits from this Location
      */
     public List<String> getExit() {
-        return exits;
+        return template.exits();
     }
 
     /**
@@ -110,24 +150,55 @@ public class Location implements Serializable {
 
     /**
      * Unlocks the location
+     *
+     * @throws IllegalStateException if the location is shared by every game of its world
      */
     public void setUnlocked(){
-        if(!unlocked)
+        if(!unlocked) {
+            if (shared)
+                throw new IllegalStateException(getName() + " is shared by every game, it has to be copied before it changes");
             unlocked = true;
+        }
     }
 
     /**
-     * Returns the id of the location
+     * Marks the location and its storage as shared by every game of its world, after which they cannot change
+     *
+     * @see WorldPrototype
+     */
+    void share() {
+        shared = true;
+        storage.share();
+    }
+
+    /**
+     * Returns whether the location is shared by every game of its world. A game changing it must first get its
+     * own copy through {@link GameMap#own(Location)}.
+     *
+     * @return {@code true} if the location belongs to a {@link WorldPrototype}
+     */
+    boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Returns the id of the location. The location is registered in the {@link Registry#live() live registry}
+     * the first time its id is asked for, e.g. when it is saved, since the id can only be looked up after that.
      *
      * @return the id of the location
      */
     public UUID getId() {
-        return id;
+        if (!registered) {
+            registered = true;
+            Registry.live().registerLoc(this);
+        }
+        return new UUID(idHigh, idLow);
     }
 
     /**
      * A custom serializer for the {@code Location} class.
      * This class is responsible for converting a {@code Location} object into its JSON representation.
+     * It writes the whole storage of the room and is kept for the saves written before {@link Game.GameAdapter}.
      *
      * @see JsonSerializer
      * @see Location
@@ -164,6 +235,26 @@ public class Location implements Serializable {
      *  @see Registry
      */
     public static class LocationDeserializer implements JsonDeserializer<Location> {
+        private final Registry registry;
+
+        /**
+         * First constructor of the class, the locations are looked up among the ones still in use
+         *
+         * @see Registry#live()
+         */
+        public LocationDeserializer() {
+            this(Registry.live());
+        }
+
+        /**
+         * Second constructor of the class
+         *
+         * @param registry the registry of the session, where the locations read are looked up and registered
+         */
+        public LocationDeserializer(Registry registry) {
+            this.registry = registry;
+        }
+
         /**
          * Deserializes a JSON representation into a {@code Location} object.
          *
@@ -185,16 +276,90 @@ public class Location implements Serializable {
             List<String> exits = context.deserialize(jsonObject.get("exits"), new TypeToken<List<String>>(){}.getType());
 
             // Check if the location already exists in the registry
-            Location existingLocation = Registry.getLoc(id);
+            Location existingLocation = registry.getLoc(id);
             if (existingLocation != null) {
                 return existingLocation;
             }
 
-            Location location = new Location(id, name, description, storage, exits, unlocked);
+            // Create and register the new location, unless another loader did it in the meantime
+            return registry.getOrCreateLoc(id, () -> new Location(id, name, description, storage, exits, unlocked));
+        }
+    }
 
-            // Register the new location
-            Registry.registerLoc(location);
-            return location;
+    /**
+     * {@code LocationAdapter} streams a {@code Location} of the save graph. The storage is written through
+     * {@link Storage.StorageAdapter}, so the items of the room are only referenced by id.
+     *
+     * @see SaveGraph
+     */
+    public static class LocationAdapter extends TypeAdapter<Location> {
+        private final Storage.StorageAdapter storageAdapter;
+
+        /**
+         * Constructor of the adapter
+         *
+         * @param graph the graph of the save being written or read
+         */
+        public LocationAdapter(SaveGraph graph) {
+            this.storageAdapter = new Storage.StorageAdapter(graph);
+        }
+
+        @Override
+        public void write(JsonWriter out, Location location) throws IOException {
+            out.beginObject();
+            out.name("id").value(location.getId().toString());
+            out.name("name").value(location.getName());
+            out.name("description").value(location.getDescription());
+            out.name("unlocked").value(location.isUnlocked());
+            out.name("storage");
+            storageAdapter.write(out, location.getStorage());
+            out.name("exits").beginArray();
+            for (String exit : location.getExit())
+                out.value(exit);
+            out.endArray();
+            out.endObject();
+        }
+
+        @Override
+        public Location read(JsonReader in) throws IOException {
+            UUID id = null;
+            String name = null;
+            String description = null;
+            boolean unlocked = false;
+            Storage storage = null;
+            List<String> exits = new ArrayList<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = UUID.fromString(in.nextString());
+                        break;
+                    case "name":
+                        name = in.nextString();
+                        break;
+                    case "description":
+                        description = in.nextString();
+                        break;
+                    case "unlocked":
+                        unlocked = in.nextBoolean();
+                        break;
+                    case "storage":
+                        storage = storageAdapter.read(in);
+                        break;
+                    case "exits":
+                        in.beginArray();
+                        while (in.hasNext())
+                            exits.add(in.nextString());
+                        in.endArray();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            if (id == null)
+                throw new JsonParseException("Location without id");
+            return new Location(id, name, description, storage == null ? new Storage() : storage, exits, unlocked);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,4 +1,10 @@
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -14,8 +20,7 @@ import java.util.UUID;
 public class LockedItem extends Item implements Serializable {
     private List<Item> objects;
     private Object itemBlocked;
-    private String action = "";
-    private String altDescription = "";
+    private transient PuzzleState puzzle;
 
     /**
      * First constructor of the class
@@ -30,11 +35,7 @@ public class LockedItem extends Item implements Serializable {
      * @param altDescription an alternative description of the item showed when itemBlocked has been unlocked
      */
     public LockedItem(String name, String description, Boolean collectable, Boolean visible, List<Item> objects, Object itemBlocked, String action, String altDescription){
-        super(name, description, visible, collectable);
-        this.objects = objects;
-        this.itemBlocked = itemBlocked;
-        this.action = action;
-        this.altDescription = altDescription;
+        this(UUID.randomUUID(), name, description, visible, collectable, objects, itemBlocked, action, altDescription);
     }
 
     /**
@@ -51,11 +52,23 @@ public class LockedItem extends Item implements Serializable {
      * @param altDescription an alternative description of the item showed when itemBlocked has been unlocked
      */
     public LockedItem(UUID id, String name, String description, boolean visible, boolean collectable, List<Item> objects, Object itemBlocked, String action, String altDescription){
-        super(id, name, description, visible, collectable);
+        this(id, Template.of(name, description, altDescription, action), visible, collectable, objects, itemBlocked);
+    }
+
+    /**
+     * Third constructor of the class, for a locked item sharing the texts of another one
+     *
+     * @param id the unique identifier for the locked item
+     * @param template the texts of the locked item, the action and the alternative description included
+     * @param visible if the item is visible
+     * @param collectable if the item is collectable
+     * @param objects the list of objects required to unlock this item
+     * @param itemBlocked the item or location blocked by this item
+     */
+    LockedItem(UUID id, Template template, boolean visible, boolean collectable, List<Item> objects, Object itemBlocked){
+        super(id, template, visible, collectable);
         this.objects = objects;
         this.itemBlocked = itemBlocked;
-        this.action = action;
-        this.altDescription = altDescription;
     }
 
     /**
@@ -64,6 +77,8 @@ public class LockedItem extends Item implements Serializable {
      * @return the number of objects required to unlock this item
      */
     public int objectsSize(){
+        if (puzzle != null)
+            return puzzle.remaining(getName());
         return objects.size();
     }
 
@@ -74,9 +89,11 @@ public class LockedItem extends Item implements Serializable {
      * @return the object that matches the given name, or {@code null} if no match is found
      */
     public Item getObject(String nome){
+        if (puzzle != null && puzzle.remaining(this, nome) == 0)
+            return null;
         for (Item item : objects){
             if (item.getName().equals(nome)){
-                return item;
+                return puzzle == null ? item : puzzle.current(item);
             }
         }
         return null;
@@ -88,7 +105,45 @@ public class LockedItem extends Item implements Serializable {
      * @return the list of objects required to unlock this item
      */
     public List<Item> getObjects(){
-        return objects;
+        if (puzzle == null)
+            return objects;
+        List<Item> left = new ArrayList<>();
+        for (Item item : objects)
+            if (countByName(left, item.getName()) < puzzle.remaining(this, item.getName()))
+                left.add(puzzle.current(item));
+        return left;
+    }
+
+    private static int countByName(List<Item> items, String name){
+        int count = 0;
+        for (Item item : items)
+            if (item.getName().equals(name))
+                count++;
+        return count;
+    }
+
+    /**
+     * Hands the required objects over to the state of the puzzles of a game. The list of objects is no longer
+     * changed, the objects still required are the ones the state has not seen used. The objects and the room
+     * blocked are then read through the state, so the copy of a locked item of a {@link WorldPrototype} shares
+     * the list of the item it was copied from and still finds the copies the game makes afterwards.
+     *
+     * @param puzzle the state following this item
+     * @see PuzzleState#attach(List)
+     */
+    void attach(PuzzleState puzzle){
+        this.puzzle = puzzle;
+        this.objects = List.copyOf(objects);
+    }
+
+    /**
+     * Marks the item as shared by every game of its world. Its list of objects becomes immutable, so that the
+     * copies of the item share it.
+     */
+    @Override
+    void share(){
+        super.share();
+        this.objects = List.copyOf(objects);
     }
 
     /**
@@ -97,7 +152,7 @@ public class LockedItem extends Item implements Serializable {
      * @return the alternative description
      */
     public String getAltDescription(){
-        return altDescription;
+        return getTemplate().altDescription();
     }
 
     /**
@@ -106,24 +161,31 @@ public class LockedItem extends Item implements Serializable {
      * @return the action description
      */
     public String getAction(){
-        return action;
+        return getTemplate().action();
     }
 
     /**
      * Removes the specified object from the list of objects required to unlock this item.
      *
      * @param item the object to remove from the list
+     * @throws IllegalStateException if the item is shared by every game of its world
      */
     public void removeObj(Item item){
-        objects.remove(item);
+        checkNotShared();
+        if (puzzle != null)
+            puzzle.remove(this, item.getName());
+        else
+            objects.remove(item);
     }
 
     /**
-     * Returns the item or location blocked by this locked item.
+     * Returns the item or location blocked by this locked item
      *
      * @return the item or location blocked by this locked item
      */
     public Object getItemBlocked(){
+        if (puzzle != null && itemBlocked instanceof Location room)
+            return puzzle.current(room);
         return itemBlocked;
     }
 
@@ -135,6 +197,8 @@ public class LockedItem extends Item implements Serializable {
      * @return a message indicating the result of the unlock attempt
      */
     public String unlockItem(Item item){
+        if (puzzle != null)
+            return puzzle.use(this, item);
         if (item == null || getObject(item.getName()) == null){
             return null;
         }
@@ -143,6 +207,7 @@ public class LockedItem extends Item implements Serializable {
         }
         removeObj(item);
         if (objects.isEmpty()) {
+            Object itemBlocked = getItemBlocked();
             if (itemBlocked instanceof LockedItem lockedItem){
                 lockedItem.setVisible(true);
             } else if (itemBlocked instanceof Item item1){
@@ -154,4 +219,106 @@ public class LockedItem extends Item implements Serializable {
         }
         return item.getName() + " used successfully";
     }
-}
\ No newline at end of file
+
+    /**
+     * {@code LockedItemAdapter} streams a {@code LockedItem}, writing the required objects and the
+     * blocked item or room as id references.
+     *
+     * @see Item.ItemAdapter
+     * @see SaveGraph
+     */
+    public static class LockedItemAdapter extends TypeAdapter<LockedItem> {
+        private final SaveGraph graph;
+
+        /**
+         * Constructor of the adapter
+         *
+         * @param graph the graph of the save being written or read
+         */
+        public LockedItemAdapter(SaveGraph graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        public void write(JsonWriter out, LockedItem item) throws IOException {
+            out.beginObject();
+            Item.ItemAdapter.writeHeader(out, item, "LockedItem");
+            out.name("objects").beginArray();
+            for (Item object : item.getObjects())
+                SaveGraph.writeReference(out, object);
+            out.endArray();
+            if (item.getItemBlocked() instanceof Location location) {
+                out.name("itemBlockedType").value("Location");
+                out.name("itemBlocked");
+                SaveGraph.writeReference(out, location);
+            } else {
+                out.name("itemBlockedType").value("Item");
+                out.name("itemBlocked");
+                SaveGraph.writeReference(out, (Item) item.getItemBlocked());
+            }
+            out.name("action").value(item.getAction());
+            out.name("altDescription").value(item.getAltDescription());
+            out.endObject();
+        }
+
+        @Override
+        public LockedItem read(JsonReader in) throws IOException {
+            in.beginObject();
+            LockedItem item = readFields(in);
+            in.endObject();
+            return item;
+        }
+
+        /**
+         * Reads the properties of the object, the opening and closing brackets excluded.
+         * The blocked object can only be resolved once its type is known, so {@code itemBlockedType}
+         * has to come before {@code itemBlocked}.
+         *
+         * @param in the reader
+         * @return the item read
+         * @throws IOException if an I/O error occurs
+         */
+        LockedItem readFields(JsonReader in) throws IOException {
+            Item.Header header = new Item.Header();
+            List<Item> objects = new ArrayList<>();
+            String itemBlockedType = null;
+            Object itemBlocked = null;
+            String action = "";
+            String altDescription = "";
+            while (in.hasNext()) {
+                String property = in.nextName();
+                if (header.read(property, in))
+                    continue;
+                switch (property) {
+                    case "objects":
+                        in.beginArray();
+                        while (in.hasNext())
+                            objects.add(graph.readItem(in));
+                        in.endArray();
+                        break;
+                    case "itemBlockedType":
+                        itemBlockedType = in.nextString();
+                        break;
+                    case "itemBlocked":
+                        if ("Location".equals(itemBlockedType))
+                            itemBlocked = graph.readLocation(in);
+                        else if ("Item".equals(itemBlockedType))
+                            itemBlocked = graph.readItem(in);
+                        else
+                            throw new JsonParseException("Unknown itemBlocked type: " + itemBlockedType);
+                        break;
+                    case "action":
+                        action = in.nextString();
+                        break;
+                    case "altDescription":
+                        altDescription = in.nextString();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            return new LockedItem(header.id(), header.name, header.description, header.visible, header.collectable,
+                    objects, itemBlocked, action, altDescription);
+        }
+    }
+}
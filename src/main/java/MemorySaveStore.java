@@ -0,0 +1,35 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code MemorySaveStore} keeps the saves in memory. It is meant for tests and benchmarks,
+ * the saves are lost when the process ends.
+ *
+ * @see SaveStore
+ */
+public class MemorySaveStore implements SaveStore {
+    private final Map<String, byte[]> saves = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(String key, byte[] content) {
+        saves.put(key, content.clone());
+    }
+
+    @Override
+    public byte[] get(String key) {
+        byte[] content = saves.get(key);
+        return content == null ? null : content.clone();
+    }
+
+    @Override
+    public List<String> list() {
+        return new ArrayList<>(saves.keySet());
+    }
+
+    @Override
+    public boolean delete(String key) {
+        return saves.remove(key) != null;
+    }
+}
@@ -1,4 +1,9 @@
-import java.util.Stack;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  *  The class is used to create the {@code Player}
@@ -12,7 +17,8 @@ public class Player{
     private Location location;
     private Storage inventory;
     private int lifePoints=3;
-    private Stack<Location> lastLocations = new Stack<> ();
+    private final List<Location> lastLocations = new ArrayList<>();
+    private transient GameMap map;
 
     /**
      * First and only constructor of the class
@@ -24,6 +30,80 @@ public class Player{
         inventory=new Storage(2);
     }
 
+    /**
+     * Second constructor of the class, used when a saved game is restored
+     *
+     * @param name The name of the player
+     * @param inventory the player's inventory
+     * @param lifePoints the remaining life points
+     * @param location the room the player is in
+     * @param lastLocations the rooms visited so far, oldest first. Older saves may hold loops, they are removed
+     */
+    public Player(String name, Storage inventory, int lifePoints, Location location, List<Location> lastLocations){
+        this.name=name;
+        this.inventory=inventory;
+        this.lifePoints=lifePoints;
+        this.location=location;
+        for (Location lastLocation : lastLocations)
+            visit(lastLocation);
+    }
+
+    /**
+     * Joins the map of a game, which copies the rooms and the items the player changes
+     *
+     * @param map the map of the game
+     */
+    void join(GameMap map) {
+        this.map = map;
+        map.setPlayer(this);
+    }
+
+    /**
+     * Returns the item of the game, to be changed
+     *
+     * @param item an item of the map
+     * @param <T> the kind of the item
+     * @return the item belonging to the game
+     * @see GameMap#own(Item)
+     */
+    public <T extends Item> T own(T item) {
+        return map == null ? item : map.own(item);
+    }
+
+    /**
+     * Returns the room of the game, to be changed
+     *
+     * @param room a room of the map
+     * @return the room belonging to the game
+     * @see GameMap#own(Location)
+     */
+    public Location own(Location room) {
+        return map == null ? room : map.own(room);
+    }
+
+    /**
+     * Returns the room the game reads in place of a room
+     *
+     * @param room a room of the map
+     * @return the copy of the room once the game has one, otherwise the room itself
+     * @see GameMap#current(Location)
+     */
+    public Location current(Location room) {
+        return map == null ? room : map.current(room);
+    }
+
+    /**
+     * Moves the player from a room shared by the world to its copy, when the map copies it
+     *
+     * @param shared the room shared by the world
+     * @param copy the copy of the game
+     */
+    void replace(Location shared, Location copy) {
+        if (location == shared)
+            location = copy;
+        lastLocations.replaceAll(room -> room == shared ? copy : room);
+    }
+
     /**
      * Returns the player's name
      *
@@ -55,10 +135,33 @@ public class Player{
      * @param newLocation new room where I want to go
      */
     public void setLocation(Location newLocation) {
-        lastLocations.push(newLocation);
+        visit(newLocation);
         location = newLocation;
     }
 
+    /**
+     * Adds a room to the history. Coming back to a room already in it removes the rooms visited since,
+     * so the history never holds more rooms than the map and the save doesn't grow with the moves.
+     *
+     * @param newLocation the room reached
+     */
+    private void visit(Location newLocation) {
+        int index = lastLocations.indexOf(newLocation);
+        if (index >= 0)
+            lastLocations.subList(index + 1, lastLocations.size()).clear();
+        else
+            lastLocations.add(newLocation);
+    }
+
+    /**
+     * Returns the path to the current room, oldest first, without loops
+     *
+     * @return the history of visited rooms
+     */
+    public List<Location> getLastLocations(){
+        return lastLocations;
+    }
+
     /**
      * Returns the room I was in before
      *
@@ -66,8 +169,8 @@ public class Player{
      */
     public Location popLastLocation(){
         if (lastLocations.size()>=2){
-            Location current = lastLocations.pop();         //current location
-            return lastLocations.pop();
+            lastLocations.remove(lastLocations.size() - 1);         //current location
+            return lastLocations.remove(lastLocations.size() - 1);
         }
         else
             return null;
@@ -112,35 +215,16 @@ public class Player{
         Item object = null;
         if (roomStorage.hasItem(item) && (getInventory().getWeight()<getInventory().getMaxWeight()) && roomStorage.getItem(item).isVisible() && roomStorage.getItem(item).isCollectable())
         {
-            object = specialCases(roomStorage.getItem(item));
-            if (object!=null){
-                roomStorage.remove(item);
+            Item candidate = roomStorage.getItem(item);
+            if (!RuleBook.castle().apply(RuleBook.Trigger.PICK, this, candidate, null).refused()){
+                object = own(candidate);
+                location.getStorage().removeItem(object);
                 inventory.add(object);
             }
         }
         return object;
     }
 
-    /**
-     * Handles some special cases
-     *
-     * @param item object I picked
-     * @return message
-     */
-    private Item specialCases(Item item)
-    {
-        //se raccogli l'acido senza guanti perdi 1 vita
-        if(item.getName().equals("acid"))
-        {
-            if(!inventory.hasItem("gloves"))
-            {
-                loseLifePoints(1);
-                return null;
-            }
-        }
-        return item;
-    }
-
     /**
      * Game command: drop
      * Returns the item I dropped and removed from my inventory, placing it in the current room's storage
@@ -149,13 +233,12 @@ public class Player{
      * @return the item dropped
      */
     public Item drop(String item){
-        Storage roomStorage = location.getStorage();
         Item object = null;
         if (inventory.hasItem(item))
         {
             object = inventory.getItem(item);
-            inventory.remove(item);
-            roomStorage.add(object);
+            inventory.removeItem(object);
+            own(location).getStorage().add(object);
         }
         return object;
     }
@@ -169,4 +252,77 @@ public class Player{
     public String  lookAround(){
         return "You see: \n"+location.getStorage().printItems();
     }
-}
\ No newline at end of file
+
+    /**
+     * {@code PlayerAdapter} streams a {@code Player}. Rooms are written as id references
+     * and the inventory through {@link Storage.StorageAdapter}.
+     *
+     * @see SaveGraph
+     */
+    public static class PlayerAdapter extends TypeAdapter<Player> {
+        private final SaveGraph graph;
+        private final Storage.StorageAdapter storageAdapter;
+
+        /**
+         * Constructor of the adapter
+         *
+         * @param graph the graph of the save being written or read
+         */
+        public PlayerAdapter(SaveGraph graph) {
+            this.graph = graph;
+            this.storageAdapter = new Storage.StorageAdapter(graph);
+        }
+
+        @Override
+        public void write(JsonWriter out, Player player) throws IOException {
+            out.beginObject();
+            out.name("name").value(player.getName());
+            out.name("lifePoints").value(player.getLifePoints());
+            out.name("location");
+            SaveGraph.writeReference(out, player.getLocation());
+            out.name("inventory");
+            storageAdapter.write(out, player.getInventory());
+            out.name("lastLocations").beginArray();
+            for (Location location : player.getLastLocations())
+                SaveGraph.writeReference(out, location);
+            out.endArray();
+            out.endObject();
+        }
+
+        @Override
+        public Player read(JsonReader in) throws IOException {
+            String name = null;
+            int lifePoints = 3;
+            Location location = null;
+            Storage inventory = null;
+            List<Location> lastLocations = new ArrayList<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "name":
+                        name = in.nextString();
+                        break;
+                    case "lifePoints":
+                        lifePoints = in.nextInt();
+                        break;
+                    case "location":
+                        location = graph.readLocation(in);
+                        break;
+                    case "inventory":
+                        inventory = storageAdapter.read(in);
+                        break;
+                    case "lastLocations":
+                        in.beginArray();
+                        while (in.hasNext())
+                            lastLocations.add(graph.readLocation(in));
+                        in.endArray();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Player(name, inventory == null ? new Storage(2) : inventory, lifePoints, location, lastLocations);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+import java.util.*;
+
+/**
+ * {@code PuzzleGraph} is the compiled form of the {@link LockedItem}s of a world: every locked item is a node
+ * with the names of the objects it requires and the item or room it opens. A node leads to another one when
+ * it reveals it, or reveals one of the objects the other one requires, e.g. computer &rarr; machine &rarr;
+ * gate. The graph is checked to be acyclic when it is compiled.
+ * <p>
+ * The graph only holds names, so it is built once and shared by every game of the same world. The progress
+ * of a game, i.e. which requirements have been used, is kept apart in its {@link PuzzleState}.
+ *
+ * @see PuzzleState
+ */
+public class PuzzleGraph {
+    /**
+     * Largest number of objects a locked item can require
+     */
+    public static final int MAX_REQUIREMENTS = Long.SIZE - 1;
+
+    /**
+     * A locked item of the graph
+     *
+     * @param index the position of the node in the graph
+     * @param name the name of the locked item
+     * @param requirements the names of the required objects, one per slot
+     * @param slots for every required name, the bits of the slots it fills
+     * @param target the name of the item or room opened by the node
+     * @param opensLocation if the target is a room
+     * @param next the nodes this one leads to
+     */
+    public record Node(int index, String name, List<String> requirements, Map<String, Long> slots, String target,
+                       boolean opensLocation, int[] next) {
+        /**
+         * Returns the bits of all the slots of the node
+         *
+         * @return a mask with one bit per required object
+         */
+        public long allSlots() {
+            return (1L << requirements.size()) - 1;
+        }
+    }
+
+    private final Node[] nodes;
+    private final Map<String, Node> byName;
+    private final int[] order;
+
+    private PuzzleGraph(Node[] nodes, Map<String, Node> byName, int[] order) {
+        this.nodes = nodes;
+        this.byName = byName;
+        this.order = order;
+    }
+
+    /**
+     * Returns the graph of the castle, compiled with its prototype
+     *
+     * @return the graph shared by every new game
+     */
+    public static PuzzleGraph castle() {
+        return WorldPrototype.castle().getPuzzleGraph();
+    }
+
+    /**
+     * Compiles the locked items found in the rooms, and in the items they reveal
+     *
+     * @param rooms the rooms of the world
+     * @return the graph of the locked items
+     * @throws IllegalArgumentException if two locked items have the same name, a locked item requires too many
+     *                                  objects or the locks depend on each other in a cycle
+     */
+    public static PuzzleGraph compile(List<Location> rooms) {
+        return compileLocks(locks(rooms));
+    }
+
+    /**
+     * Compiles locked items
+     *
+     * @param locks the locked items, found by {@link #locks(List)}
+     * @return the graph of the locked items
+     */
+    static PuzzleGraph compileLocks(List<LockedItem> locks) {
+        Map<String, Node> byName = new HashMap<>();
+        Map<String, List<Integer>> requiredBy = new HashMap<>();
+        for (int i = 0; i < locks.size(); i++) {
+            LockedItem lock = locks.get(i);
+            if (byName.containsKey(lock.getName()))
+                throw new IllegalArgumentException("Two locked items are named " + lock.getName());
+            if (lock.getObjects().size() > MAX_REQUIREMENTS)
+                throw new IllegalArgumentException(lock.getName() + " requires more than " + MAX_REQUIREMENTS + " objects");
+            List<String> requirements = new ArrayList<>();
+            Map<String, Long> slots = new HashMap<>();
+            for (Item object : lock.getObjects()) {
+                slots.merge(object.getName(), 1L << requirements.size(), (a, b) -> a | b);
+                requirements.add(object.getName());
+                requiredBy.computeIfAbsent(object.getName(), n -> new ArrayList<>()).add(i);
+            }
+            Object blocked = lock.getItemBlocked();
+            String target = blocked instanceof Location location ? location.getName()
+                    : blocked instanceof Item item ? item.getName() : null;
+            byName.put(lock.getName(), new Node(i, lock.getName(), List.copyOf(requirements), Map.copyOf(slots),
+                    target, blocked instanceof Location, null));
+        }
+
+        Node[] nodes = new Node[locks.size()];
+        for (Node node : byName.values()) {
+            Set<Integer> next = new TreeSet<>();
+            if (node.target() != null && !node.opensLocation()) {
+                Node revealed = byName.get(node.target());
+                if (revealed != null)
+                    next.add(revealed.index());
+                next.addAll(requiredBy.getOrDefault(node.target(), List.of()));
+            }
+            nodes[node.index()] = new Node(node.index(), node.name(), node.requirements(), node.slots(), node.target(),
+                    node.opensLocation(), next.stream().mapToInt(Integer::intValue).toArray());
+            byName.put(node.name(), nodes[node.index()]);
+        }
+        return new PuzzleGraph(nodes, Map.copyOf(byName), sort(nodes));
+    }
+
+    /**
+     * Returns the locked items found in the rooms, and in the items they reveal
+     *
+     * @param rooms the rooms of a world
+     * @return the locked items, each one once
+     */
+    static List<LockedItem> locks(List<Location> rooms) {
+        List<LockedItem> locks = new ArrayList<>();
+        Set<LockedItem> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Location room : rooms)
+            if (room.getStorage() != null)
+                for (Item item : room.getStorage().getItems())
+                    collect(item, locks, seen);
+        return locks;
+    }
+
+    private static void collect(Item item, List<LockedItem> locks, Set<LockedItem> seen) {
+        if (item instanceof ContainerItem container && container.getItemContained() != null)
+            collect(container.getItemContained(), locks, seen);
+        if (item instanceof LockedItem lock && seen.add(lock)) {
+            locks.add(lock);
+            if (lock.getItemBlocked() instanceof Item blocked)
+                collect(blocked, locks, seen);
+        }
+    }
+
+    /**
+     * Sorts the nodes so that every node comes before the nodes it leads to
+     */
+    private static int[] sort(Node[] nodes) {
+        int[] incoming = new int[nodes.length];
+        for (Node node : nodes)
+            for (int next : node.next())
+                incoming[next]++;
+        Deque<Integer> ready = new ArrayDeque<>();
+        for (int i = 0; i < nodes.length; i++)
+            if (incoming[i] == 0)
+                ready.add(i);
+        int[] order = new int[nodes.length];
+        int count = 0;
+        while (!ready.isEmpty()) {
+            int index = ready.poll();
+            order[count++] = index;
+            for (int next : nodes[index].next())
+                if (--incoming[next] == 0)
+                    ready.add(next);
+        }
+        if (count < nodes.length)
+            throw new IllegalArgumentException("The locked items depend on each other in a cycle");
+        return order;
+    }
+
+    /**
+     * Returns the node of a locked item
+     *
+     * @param name the name of the locked item
+     * @return the node, or {@code null} if the graph has no locked item with this name
+     */
+    public Node node(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * Returns the node at a position of the graph
+     *
+     * @param index the position of the node
+     * @return the node
+     */
+    public Node node(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * Returns the indexes of the nodes, every node coming before the nodes it leads to
+     *
+     * @return the order the locked items can be unlocked in
+     */
+    int[] order() {
+        return order;
+    }
+
+    /**
+     * Returns the number of locked items
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns the name of the item or room opened by a locked item
+     *
+     * @param name the name of the locked item
+     * @return the name of the target, or {@code null} if the locked item is not in the graph
+     */
+    public String unlocks(String name) {
+        Node node = byName.get(name);
+        return node == null ? null : node.target();
+    }
+
+    /**
+     * Returns the locked items that can only be opened after this one, directly or not, in the order they can be
+     * opened
+     *
+     * @param name the name of the locked item
+     * @return the names of the locked items depending on this one
+     */
+    public List<String> dependents(String name) {
+        Node start = byName.get(name);
+        if (start == null)
+            return List.of();
+        boolean[] reached = new boolean[nodes.length];
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.add(start.index());
+        while (!pending.isEmpty())
+            for (int next : nodes[pending.poll()].next())
+                if (!reached[next]) {
+                    reached[next] = true;
+                    pending.add(next);
+                }
+        List<String> dependents = new ArrayList<>();
+        for (int index : order)
+            if (reached[index])
+                dependents.add(nodes[index].name());
+        return dependents;
+    }
+
+    /**
+     * Returns whether the locked items of the rooms are the ones of this graph, requiring the same objects and
+     * opening the same targets. A restored game may require fewer objects, those already used.
+     *
+     * @param rooms the rooms of a world
+     * @return {@code true} if a {@link PuzzleState} of this graph can follow the locked items of the rooms
+     */
+    public boolean matches(List<Location> rooms) {
+        return matchesLocks(locks(rooms));
+    }
+
+    /**
+     * Returns whether locked items are the ones of this graph
+     *
+     * @param locks the locked items, found by {@link #locks(List)}
+     * @return {@code true} if a {@link PuzzleState} of this graph can follow the locked items
+     */
+    boolean matchesLocks(List<LockedItem> locks) {
+        if (locks.size() != nodes.length)
+            return false;
+        for (LockedItem lock : locks) {
+            Node node = byName.get(lock.getName());
+            if (node == null || PuzzleState.slotsOf(node, lock.getObjects()) < 0)
+                return false;
+            Object blocked = lock.getItemBlocked();
+            String target = blocked instanceof Location location ? location.getName()
+                    : blocked instanceof Item item ? item.getName() : null;
+            if (!Objects.equals(target, node.target()))
+                return false;
+        }
+        return true;
+    }
+}
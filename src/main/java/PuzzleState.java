@@ -0,0 +1,223 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code PuzzleState} is the progress of one game through a {@link PuzzleGraph}: for every locked item, one bit
+ * per required object not used yet. Using an object clears its bit, and the locked item opens when no bit is
+ * left, so an unlock doesn't scan any list.
+ * <p>
+ * The locked items of the game are attached to the state, which then answers for them: their lists of
+ * required objects are no longer changed, the ones still required are read from the bits. The state of a game
+ * of a {@link WorldPrototype} opens the items and rooms through the map, which copies the ones it still
+ * shares.
+ *
+ * @see PuzzleGraph
+ * @see LockedItem
+ */
+public class PuzzleState {
+    private final PuzzleGraph graph;
+    private final long[] remaining;
+    private final GameMap map;
+
+    private PuzzleState(PuzzleGraph graph, GameMap map) {
+        this.graph = graph;
+        this.remaining = new long[graph.size()];
+        this.map = map;
+    }
+
+    /**
+     * Attaches the locked items of the rooms to a new state. The graph of the castle is shared when the rooms
+     * are the castle, otherwise a graph is compiled for them. The objects already used, e.g. in a restored
+     * game, are not required again.
+     *
+     * @param rooms the rooms of a game
+     * @return the state of the locked items of the game
+     * @throws IllegalArgumentException if the locked items cannot be compiled in a graph
+     */
+    public static PuzzleState attach(List<Location> rooms) {
+        List<LockedItem> locks = PuzzleGraph.locks(rooms);
+        PuzzleGraph castle = PuzzleGraph.castle();
+        PuzzleState state = new PuzzleState(castle.matchesLocks(locks) ? castle : PuzzleGraph.compileLocks(locks), null);
+        for (LockedItem lock : locks)
+            state.attach(lock);
+        return state;
+    }
+
+    /**
+     * Creates the state of a world no locked item of which has been used yet. The locked items are attached
+     * afterwards, as the map copies them.
+     *
+     * @param graph the graph of the world
+     * @param map the map of the game, through which the items and rooms are opened
+     * @return a state where every locked item requires all its objects
+     */
+    public static PuzzleState of(PuzzleGraph graph, GameMap map) {
+        PuzzleState state = new PuzzleState(graph, map);
+        for (int i = 0; i < graph.size(); i++)
+            state.remaining[i] = graph.node(i).allSlots();
+        return state;
+    }
+
+    /**
+     * Attaches a locked item of the graph. The objects it still requires are the ones of its list.
+     *
+     * @param lock the locked item
+     * @throws IllegalArgumentException if the locked item is not in the graph
+     */
+    public void attach(LockedItem lock) {
+        PuzzleGraph.Node node = graph.node(lock.getName());
+        if (node == null)
+            throw new IllegalArgumentException(lock.getName() + " is not a locked item of the world");
+        remaining[node.index()] = slotsOf(node, lock.getObjects());
+        lock.attach(this);
+    }
+
+    /**
+     * Returns the slots of a node filled by a list of objects, each object taking the first free slot of its name
+     *
+     * @param node a node of the graph
+     * @param objects the objects still required
+     * @return the bits of the slots, or {@code -1} if an object is not required by the node
+     */
+    static long slotsOf(PuzzleGraph.Node node, List<Item> objects) {
+        long slots = 0;
+        for (Item object : objects) {
+            Long mask = node.slots().get(object.getName());
+            long free = mask == null ? 0 : mask & ~slots;
+            if (free == 0)
+                return -1;
+            slots |= Long.lowestOneBit(free);
+        }
+        return slots;
+    }
+
+    /**
+     * Returns the graph followed by the state
+     *
+     * @return the graph of the locked items
+     */
+    public PuzzleGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Uses an object on a locked item. Once the last required object is used, the item or room blocked is
+     * opened, and so are the items it reveals which have nothing left to require.
+     *
+     * @param lock a locked item attached to this state
+     * @param item the object used
+     * @return a message indicating the result, or {@code null} if the object is not required
+     * @see LockedItem#unlockItem(Item)
+     */
+    public String use(LockedItem lock, Item item) {
+        if (item == null || !remove(lock, item.getName()))
+            return null;
+        if (remaining[graph.node(lock.getName()).index()] == 0) {
+            open(lock);
+            return item.getName() + " used successfully\n" + lock.getAction();
+        }
+        return item.getName() + " used successfully";
+    }
+
+    /**
+     * Marks one object with the given name as used, without opening the locked item
+     *
+     * @param lock a locked item attached to this state
+     * @param name the name of the object
+     * @return {@code true} if the object was still required
+     */
+    public boolean remove(LockedItem lock, String name) {
+        PuzzleGraph.Node node = graph.node(lock.getName());
+        Long mask = node.slots().get(name);
+        long left = mask == null ? 0 : mask & remaining[node.index()];
+        if (left == 0)
+            return false;
+        remaining[node.index()] &= ~Long.lowestOneBit(left);
+        return true;
+    }
+
+    private void open(LockedItem lock) {
+        while (lock != null) {
+            Object blocked = lock.getItemBlocked();
+            lock = null;
+            if (blocked instanceof Location location) {
+                (map == null ? location : map.own(location)).setUnlocked();
+            } else if (blocked instanceof Item item) {
+                item = map == null ? item : map.own(item);
+                item.setVisible(true);
+                PuzzleGraph.Node next = graph.node(item.getName());
+                if (next != null && remaining[next.index()] == 0 && item instanceof LockedItem revealed)
+                    lock = revealed;
+            }
+        }
+    }
+
+    /**
+     * Returns the item the game reads in place of an item
+     *
+     * @param item an item of the game
+     * @return the copy of the item once the game has one, otherwise the item itself
+     * @see GameMap#current(Item)
+     */
+    Item current(Item item) {
+        return map == null ? item : map.current(item);
+    }
+
+    /**
+     * Returns the room the game reads in place of a room
+     *
+     * @param room a room of the game
+     * @return the copy of the room once the game has one, otherwise the room itself
+     * @see GameMap#current(Location)
+     */
+    Location current(Location room) {
+        return map == null ? room : map.current(room);
+    }
+
+    /**
+     * Returns the number of objects a locked item still requires
+     *
+     * @param name the name of the locked item
+     * @return the number of objects, {@code 0} once the item is unlocked
+     */
+    public int remaining(String name) {
+        PuzzleGraph.Node node = graph.node(name);
+        return node == null ? 0 : Long.bitCount(remaining[node.index()]);
+    }
+
+    /**
+     * Returns the number of objects with the given name a locked item still requires
+     *
+     * @param lock a locked item attached to this state
+     * @param name the name of the object
+     * @return the number of objects with the name
+     */
+    public int remaining(LockedItem lock, String name) {
+        PuzzleGraph.Node node = graph.node(lock.getName());
+        Long mask = node.slots().get(name);
+        return mask == null ? 0 : Long.bitCount(mask & remaining[node.index()]);
+    }
+
+    /**
+     * Returns whether a locked item has been unlocked
+     *
+     * @param name the name of the locked item
+     * @return {@code true} if it requires no more objects
+     */
+    public boolean isUnlocked(String name) {
+        return remaining(name) == 0;
+    }
+
+    /**
+     * Returns the locked items still requiring objects, in the order they can be unlocked
+     *
+     * @return the names of the locked items
+     */
+    public List<String> blocked() {
+        List<String> blocked = new ArrayList<>();
+        for (int index : graph.order())
+            if (remaining[index] != 0)
+                blocked.add(graph.node(index).name());
+        return blocked;
+    }
+}
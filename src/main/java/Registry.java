@@ -1,24 +1,62 @@
-import java.util.HashMap;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * The {@code Registry} class provides methods for registering items and locations during deserialization process
  * using their unique identifiers (UUIDs).
+ * <p>
+ * A registry belongs to one session, e.g. the loading of one save, and is released with it. The process-wide
+ * registry returned by {@link #live()} knows every item and location that is still in use: it only keeps weak
+ * references, so the objects of a finished game are collected and their entries removed.
+ * <p>
+ * Registries can be shared by threads: lookups don't lock, and {@link #getOrCreateItem} and
+ * {@link #getOrCreateLoc} lock only the stripe of the id, so two loaders never create the same object twice.
  *
  * @see Item
  * @see Location
  */
 public class Registry {
-    private static final Map<UUID, Item> itemMap = new HashMap<>();
-    private static final Map<UUID, Location> locationMap = new HashMap<>();
+    private static final Registry LIVE = new Registry(new WeakIndex<>(), new WeakIndex<>());
+    private static final int STRIPES = 32;
+
+    private final Index<Item> itemMap;
+    private final Index<Location> locationMap;
+    private final Object[] locks = new Object[STRIPES];
+
+    /**
+     * Constructor of the class, creates an empty registry for one session
+     */
+    public Registry() {
+        this(new StrongIndex<>(), new StrongIndex<>());
+    }
+
+    private Registry(Index<Item> itemMap, Index<Location> locationMap) {
+        this.itemMap = itemMap;
+        this.locationMap = locationMap;
+        for (int i = 0; i < STRIPES; i++)
+            locks[i] = new Object();
+    }
+
+    /**
+     * Returns the process-wide registry of the items and locations still in use.
+     * Every item and location registers itself there the first time its id is asked for.
+     *
+     * @return the process-wide registry
+     */
+    public static Registry live() {
+        return LIVE;
+    }
 
     /**
      * Registers the item in a Map. The keys are the UUIDs to prevent duplicates
      *
      * @param item the item to register
      */
-    public static void registerItem(Item item) {
+    public void registerItem(Item item) {
         itemMap.put(item.getId(), item);
     }
 
@@ -28,16 +66,28 @@ public class Registry {
      * @param id the unique identifier of the item
      * @return the item with the specified identifier, or {@code null} if not found
      */
-    public static Item getItem(UUID id) {
+    public Item getItem(UUID id) {
         return itemMap.get(id);
     }
 
+    /**
+     * Returns the item with the specified identifier, creating and registering it if it is not found.
+     * When several threads ask for the same id at the same time, only one of them creates the item.
+     *
+     * @param id the unique identifier of the item
+     * @param factory creates the item, without calling back the {@code getOrCreate} methods of this registry
+     * @return the item registered with the specified identifier
+     */
+    public Item getOrCreateItem(UUID id, Supplier<Item> factory) {
+        return getOrCreate(itemMap, id, factory);
+    }
+
     /**
      * Registers the location in a Map. The keys are the UUIDs to prevent duplicates
      *
      * @param location the location to register
      */
-    public static void registerLoc(Location location) {
+    public void registerLoc(Location location) {
         locationMap.put(location.getId(), location);
     }
 
@@ -47,7 +97,114 @@ public class Registry {
      * @param id the unique identifier of the location
      * @return the location with the specified identifier, or {@code null} if not found
      */
-    public static Location getLoc(UUID id) {
+    public Location getLoc(UUID id) {
         return locationMap.get(id);
     }
+
+    /**
+     * Returns the location with the specified identifier, creating and registering it if it is not found.
+     * When several threads ask for the same id at the same time, only one of them creates the location.
+     *
+     * @param id the unique identifier of the location
+     * @param factory creates the location, without calling back the {@code getOrCreate} methods of this registry
+     * @return the location registered with the specified identifier
+     */
+    public Location getOrCreateLoc(UUID id, Supplier<Location> factory) {
+        return getOrCreate(locationMap, id, factory);
+    }
+
+    private <T> T getOrCreate(Index<T> index, UUID id, Supplier<T> factory) {
+        T value = index.get(id);
+        if (value != null)
+            return value;
+        // the factory runs outside of the map, so it can register the object elsewhere, e.g. in the live registry
+        synchronized (locks[(id.hashCode() & 0x7fffffff) % STRIPES]) {
+            value = index.get(id);
+            if (value == null) {
+                value = factory.get();
+                index.put(id, value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Returns the number of items and locations registered
+     *
+     * @return the number of entries of the registry
+     */
+    public int size() {
+        return itemMap.size() + locationMap.size();
+    }
+
+    private interface Index<T> {
+        void put(UUID id, T value);
+
+        T get(UUID id);
+
+        int size();
+    }
+
+    private static class StrongIndex<T> implements Index<T> {
+        private final Map<UUID, T> map = new ConcurrentHashMap<>();
+
+        @Override
+        public void put(UUID id, T value) {
+            map.put(id, value);
+        }
+
+        @Override
+        public T get(UUID id) {
+            return map.get(id);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+    }
+
+    /**
+     * Index that doesn't keep its values alive. The entries of the collected values are removed
+     * every time the index is used.
+     */
+    private static class WeakIndex<T> implements Index<T> {
+        private final Map<UUID, Entry<T>> map = new ConcurrentHashMap<>();
+        private final ReferenceQueue<T> collected = new ReferenceQueue<>();
+
+        private static class Entry<T> extends WeakReference<T> {
+            final UUID id;
+
+            Entry(UUID id, T value, ReferenceQueue<T> queue) {
+                super(value, queue);
+                this.id = id;
+            }
+        }
+
+        @Override
+        public void put(UUID id, T value) {
+            evict();
+            map.put(id, new Entry<>(id, value, collected));
+        }
+
+        @Override
+        public T get(UUID id) {
+            evict();
+            Entry<T> entry = map.get(id);
+            return entry == null ? null : entry.get();
+        }
+
+        @Override
+        public int size() {
+            evict();
+            return map.size();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void evict() {
+            Entry<T> entry;
+            while ((entry = (Entry<T>) collected.poll()) != null)
+                map.remove(entry.id, entry);
+        }
+    }
 }
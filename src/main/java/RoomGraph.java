@@ -0,0 +1,178 @@
+import java.util.*;
+
+/**
+ * {@code RoomGraph} is the compiled form of the exits of a world: every room has an index, and every exit of a
+ * room, either the name of a room or a direction such as {@code north}, leads to the index of another room. The
+ * table is built once, so following an exit doesn't look at any other room or exit.
+ * <p>
+ * An exit naming a room leads to that room. A direction leads to the room given for it in the directions of the
+ * world, so any layout can be described, not only the castle where every room opens on the hall. An exit that
+ * leads nowhere is kept in the room but cannot be followed.
+ * <p>
+ * The graph only holds names, so it is built once and shared by every game of the same world. It also holds the
+ * vocabulary of the world, the names of its rooms, exits and items, so that a command finds them without copying
+ * its words.
+ *
+ * @see GameMap
+ */
+public class RoomGraph {
+    private static final long EMPTY = -1;
+
+    private final String[] names;
+    private final Map<String, Integer> byName;
+    private final Map<String, Integer> words;
+    private final Map<String, Map<String, String>> directions;
+    private final WordTable<String> vocabulary;
+    /**
+     * Open addressing table from {@code room << 32 | word} to the index of the room the exit leads to
+     */
+    private final long[] keys;
+    private final int[] targets;
+    private final int mask;
+
+    private RoomGraph(String[] names, Map<String, Integer> byName, Map<String, Integer> words,
+                      Map<String, Map<String, String>> directions, WordTable<String> vocabulary, int exits) {
+        this.names = names;
+        this.byName = byName;
+        this.words = words;
+        this.directions = directions;
+        this.vocabulary = vocabulary;
+        int capacity = Integer.highestOneBit(Math.max(4, exits * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.targets = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Compiles the exits of the rooms
+     *
+     * @param rooms the rooms of the world
+     * @param directions for every room, the name of the room each of its directions leads to
+     * @return the graph of the rooms
+     * @throws IllegalArgumentException if two rooms have the same name
+     */
+    public static RoomGraph compile(List<Location> rooms, Map<String, Map<String, String>> directions) {
+        String[] names = new String[rooms.size()];
+        Map<String, Integer> byName = new HashMap<>();
+        Map<String, Integer> words = new HashMap<>();
+        Map<String, String> known = new LinkedHashMap<>();
+        known.put("back", "back");
+        int exits = 0;
+        for (int i = 0; i < names.length; i++) {
+            Location room = rooms.get(i);
+            names[i] = room.getName();
+            if (byName.putIfAbsent(room.getName(), i) != null)
+                throw new IllegalArgumentException("Two rooms are named " + room.getName());
+            known.putIfAbsent(room.getName().toLowerCase(), room.getName().toLowerCase());
+            if (room.getExit() != null) {
+                exits += room.getExit().size();
+                for (String exit : room.getExit()) {
+                    words.putIfAbsent(exit, words.size());
+                    known.putIfAbsent(exit.toLowerCase(), exit.toLowerCase());
+                }
+            }
+            for (Item item : room.getStorage().getItems())
+                known.putIfAbsent(item.getName(), item.getName());
+        }
+        WordTable<String> vocabulary = new WordTable<>();
+        vocabulary.putAllAbsent(known);
+
+        RoomGraph graph = new RoomGraph(names, byName, words, directions, vocabulary, exits);
+        for (int i = 0; i < names.length; i++) {
+            Location room = rooms.get(i);
+            if (room.getExit() == null)
+                continue;
+            Map<String, String> ways = directions.getOrDefault(room.getName(), Map.of());
+            for (String exit : room.getExit()) {
+                Integer target = byName.get(ways.getOrDefault(exit, exit));
+                if (target != null)
+                    graph.put(i, words.get(exit), target);
+            }
+        }
+        return graph;
+    }
+
+    private void put(int room, int word, int target) {
+        long key = (long) room << 32 | word;
+        int slot = slot(key);
+        while (keys[slot] != EMPTY && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            targets[slot] = target;
+        }
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    /**
+     * Returns the number of rooms
+     *
+     * @return the number of rooms
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the index of a room
+     *
+     * @param name the name of the room
+     * @return the index of the room, or {@code -1} if the world has no room with this name
+     */
+    public int index(String name) {
+        Integer index = byName.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the name of a room
+     *
+     * @param room the index of the room
+     * @return the name of the room
+     */
+    public String name(int room) {
+        return names[room];
+    }
+
+    /**
+     * Returns the room an exit leads to
+     *
+     * @param room the index of the room
+     * @param exit the exit, the name of a room or a direction
+     * @return the index of the room reached, or {@code -1} if the room has no such exit or it leads nowhere
+     */
+    public int exit(int room, String exit) {
+        Integer word = words.get(exit);
+        if (word == null || room < 0)
+            return -1;
+        long key = (long) room << 32 | word;
+        for (int slot = slot(key); keys[slot] != EMPTY; slot = (slot + 1) & mask)
+            if (keys[slot] == key)
+                return targets[slot];
+        return -1;
+    }
+
+    /**
+     * Returns the vocabulary of the world: the word {@code back} and the names of the rooms, of their exits and
+     * of the items they hold when the graph is compiled, each one lowercase
+     *
+     * @return the known words, each one mapped to its lowercase form
+     */
+    public WordTable<String> vocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * Returns the directions the graph was compiled with
+     *
+     * @return for every room, the name of the room each of its directions leads to
+     */
+    Map<String, Map<String, String>> directions() {
+        return directions;
+    }
+}
@@ -0,0 +1,259 @@
+import java.util.*;
+
+/**
+ * {@code RuleBook} holds the special rules of the castle: what happens, besides the usual outcome of a command,
+ * when the player picks, interacts with or uses a given item. A rule is declared for an action, an item and
+ * a target (the item interacted with before a {@code use}), either of them being {@link #ANY}, and has
+ * effects: losing life points, refusing a pick, giving the used item back, hiding an item, winning the game.
+ * <p>
+ * The rules are indexed by action, item and target, so finding those of a command is a few map lookups.
+ * The book is built once and shared by every game: the rules only change the game they are applied to.
+ *
+ * @see Game
+ * @see Player
+ */
+public class RuleBook {
+    /**
+     * Name matching every item, or no target at all
+     */
+    public static final String ANY = "*";
+
+    private static final RuleBook CASTLE = createCastleRules();
+
+    /**
+     * The command a rule applies to
+     */
+    public enum Trigger { PICK, INTERACT, USE }
+
+    /**
+     * What a rule does when its condition holds
+     */
+    public enum Effect {
+        /**
+         * The player loses the life points of the rule
+         */
+        LOSE_LIFE,
+        /**
+         * The item is not picked
+         */
+        REFUSE,
+        /**
+         * The item goes back to the inventory once used
+         */
+        RETURN_ITEM,
+        /**
+         * The target is hidden
+         */
+        HIDE_TARGET,
+        /**
+         * The item locked by the target is hidden
+         */
+        HIDE_BLOCKED,
+        /**
+         * The player wins the game
+         */
+        VICTORY
+    }
+
+    /**
+     * When a rule applies
+     */
+    @FunctionalInterface
+    public interface Condition {
+        /**
+         * Tests the condition
+         *
+         * @param player the player
+         * @param item the item picked, interacted with or used
+         * @param target the item interacted with before a {@code use}, or {@code null}
+         * @return {@code true} if the effects of the rule apply
+         */
+        boolean test(Player player, Item item, Item target);
+    }
+
+    /**
+     * A rule of the book
+     *
+     * @param trigger the command the rule applies to
+     * @param item the name of the item, or {@link #ANY}
+     * @param target the name of the target, or {@link #ANY}
+     * @param when the condition of the effects
+     * @param effects what the rule does when the condition holds
+     * @param lifePoints the life points lost with {@link Effect#LOSE_LIFE}
+     * @param message shown when the condition holds, may contain {@code %s} for the name of the target, or {@code null}
+     * @param otherwise shown when the condition doesn't hold, or {@code null}
+     */
+    public record Rule(Trigger trigger, String item, String target, Condition when, Set<Effect> effects,
+                       int lifePoints, String message, String otherwise) {
+    }
+
+    /**
+     * What the rules of a command did, and what is left to the command
+     *
+     * @param message the messages of the rules, empty if there is none
+     * @param refused if the item must not be picked
+     * @param returnsItem if the used item goes back to the inventory
+     * @param victory if the player won
+     */
+    public record Outcome(String message, boolean refused, boolean returnsItem, boolean victory) {
+        /**
+         * Outcome of a command no rule applies to
+         */
+        public static final Outcome NONE = new Outcome("", false, false, false);
+    }
+
+    private final Map<Trigger, Map<String, Map<String, List<Rule>>>> rules = new EnumMap<>(Trigger.class);
+
+    /**
+     * Constructor of the class
+     *
+     * @param rules the rules, applied in this order when several of them match a command
+     */
+    public RuleBook(List<Rule> rules) {
+        for (Rule rule : rules)
+            this.rules.computeIfAbsent(rule.trigger(), t -> new HashMap<>())
+                    .computeIfAbsent(rule.item(), i -> new HashMap<>())
+                    .computeIfAbsent(rule.target(), t -> new ArrayList<>())
+                    .add(rule);
+    }
+
+    /**
+     * Returns the rules of the castle
+     *
+     * @return the rule book shared by every game
+     */
+    public static RuleBook castle() {
+        return CASTLE;
+    }
+
+    /**
+     * Applies the rules of a command: the effects on the player and on the items are done here, the others are
+     * returned to the command
+     *
+     * @param trigger the command
+     * @param player the player
+     * @param item the item picked, interacted with or used
+     * @param target the item interacted with before a {@code use}, or {@code null}
+     * @return what the rules did
+     */
+    public Outcome apply(Trigger trigger, Player player, Item item, Item target) {
+        Map<String, Map<String, List<Rule>>> byItem = rules.get(trigger);
+        if (byItem == null)
+            return Outcome.NONE;
+        Map<String, List<Rule>> ofItem = byItem.get(item.getName());
+        Map<String, List<Rule>> ofAny = byItem.get(ANY);
+        if (ofItem == null && ofAny == null)
+            return Outcome.NONE;
+        String targetName = target == null ? null : target.getName();
+        Outcome outcome = Outcome.NONE;
+        // from the most specific rules to the most general ones
+        if (ofItem != null) {
+            outcome = apply(ofItem.get(targetName), player, item, target, outcome);
+            outcome = apply(ofItem.get(ANY), player, item, target, outcome);
+        }
+        if (ofAny != null) {
+            outcome = apply(ofAny.get(targetName), player, item, target, outcome);
+            outcome = apply(ofAny.get(ANY), player, item, target, outcome);
+        }
+        return outcome;
+    }
+
+    private static Outcome apply(List<Rule> rules, Player player, Item item, Item target, Outcome outcome) {
+        if (rules == null)
+            return outcome;
+        for (Rule rule : rules) {
+            String message;
+            if (rule.when().test(player, item, target)) {
+                Set<Effect> effects = rule.effects();
+                if (effects.contains(Effect.LOSE_LIFE))
+                    player.loseLifePoints(rule.lifePoints());
+                if (effects.contains(Effect.HIDE_TARGET) && target != null && target.isVisible())
+                    player.own(target).setVisible(false);
+                if (effects.contains(Effect.HIDE_BLOCKED) && target instanceof LockedItem locked
+                        && locked.getItemBlocked() instanceof Item blocked && blocked.isVisible())
+                    player.own(blocked).setVisible(false);
+                message = rule.message() == null ? null : String.format(rule.message(), target == null ? "" : target.getName());
+                outcome = new Outcome(outcome.message(),
+                        outcome.refused() || effects.contains(Effect.REFUSE),
+                        outcome.returnsItem() || effects.contains(Effect.RETURN_ITEM),
+                        outcome.victory() || effects.contains(Effect.VICTORY));
+            } else {
+                message = rule.otherwise();
+            }
+            if (message != null)
+                outcome = new Outcome(outcome.message().isEmpty() ? message : outcome.message() + "\n" + message,
+                        outcome.refused(), outcome.returnsItem(), outcome.victory());
+        }
+        return outcome;
+    }
+
+    /**
+     * Condition of the rules that always apply
+     *
+     * @return a condition always true
+     */
+    public static Condition always() {
+        return (player, item, target) -> true;
+    }
+
+    /**
+     * Condition of the rules that apply when the player doesn't have an item
+     *
+     * @param name the name of the item
+     * @return a condition true if the item is not in the inventory
+     */
+    public static Condition lacking(String name) {
+        return (player, item, target) -> !player.getInventory().hasItem(name);
+    }
+
+    /**
+     * Condition of the rules that apply when an item of the player's location is visible
+     *
+     * @param name the name of the item
+     * @return a condition true if the item is in the location and visible
+     */
+    public static Condition visibleHere(String name) {
+        return (player, item, target) -> {
+            Item here = player.getLocation().getStorage().getItem(name);
+            return here != null && here.isVisible();
+        };
+    }
+
+    /**
+     * Condition of the rules that apply once the location locked by the target is unlocked
+     *
+     * @return a condition true if the target opens a location which is now unlocked
+     */
+    public static Condition targetOpened() {
+        return (player, item, target) -> target instanceof LockedItem locked
+                && locked.getItemBlocked() instanceof Location location && player.current(location).isUnlocked();
+    }
+
+    private static RuleBook createCastleRules() {
+        List<Rule> rules = new ArrayList<>();
+        Set<Effect> loseLife = EnumSet.of(Effect.LOSE_LIFE);
+        Set<Effect> giveBack = EnumSet.of(Effect.RETURN_ITEM);
+
+        // acid burns without gloves
+        rules.add(new Rule(Trigger.PICK, "acid", ANY, lacking("gloves"), EnumSet.of(Effect.LOSE_LIFE, Effect.REFUSE), 1, null, null));
+        rules.add(new Rule(Trigger.INTERACT, "tray", ANY, lacking("gloves"), loseLife, 1,
+                "You lost a life point because you didn't use gloves, the oven tray was glowing", null));
+        rules.add(new Rule(Trigger.INTERACT, "food", ANY, always(), loseLife, 1,
+                "You lost a life point because you ate rotten food", null));
+        rules.add(new Rule(Trigger.INTERACT, "gateway", ANY, visibleHere("chichibio"), EnumSet.of(Effect.VICTORY), 0, null, null));
+
+        // gloves and hammer are tools, they are not used up
+        rules.add(new Rule(Trigger.USE, "gloves", ANY, always(), giveBack, 0, null, null));
+        rules.add(new Rule(Trigger.USE, "hammer", ANY, always(), giveBack, 0, null, null));
+        for (String door : List.of("door", "gate"))
+            rules.add(new Rule(Trigger.USE, ANY, door, targetOpened(), EnumSet.of(Effect.HIDE_TARGET), 0, null, null));
+        rules.add(new Rule(Trigger.USE, ANY, "right-cell", always(), EnumSet.of(Effect.HIDE_BLOCKED), 0, null, null));
+        rules.add(new Rule(Trigger.USE, ANY, "right-cell", lacking("sword"), loseLife, 2,
+                "You just lost two life points because you didn't have the sword to defend yourself",
+                "Luckily you had the sword to defend yourself!!!"));
+        for (String fragile : List.of("gate", "computer", "machine"))
+            rules.add(new Rule(Trigger.USE, "hammer", fragile, always(), loseLife, 1,
+                    "You lost a life point because you damaged the %s. Remember, brute force is not always the solution!", null));
+        return new RuleBook(rules);
+    }
+}
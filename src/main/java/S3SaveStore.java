@@ -0,0 +1,171 @@
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * {@code S3SaveStore} keeps the saves as objects of an S3 bucket, the key being the object key.
+ * It can keep a local copy of every object it uploads or downloads, and its ETag in another store under the
+ * same key, so the ETags are never listed as saves: a download then becomes a conditional GET
+ * ({@code If-None-Match}) and the local copy is used when the bucket answers 304 Not Modified.
+ *
+ * @see SaveStore
+ * @see S3bucket#getClient(software.amazon.awssdk.regions.Region)
+ */
+public class S3SaveStore implements SaveStore {
+    private static final int NOT_MODIFIED = 304;
+
+    private final Supplier<S3Client> clients;
+    private final String bucketName;
+    private final SaveStore cache;
+    private final SaveStore eTags;
+
+    /**
+     * First constructor of the class, without local cache
+     *
+     * @param s3 the client, shared by the whole process
+     * @param bucketName the name of the bucket
+     */
+    public S3SaveStore(S3Client s3, String bucketName) {
+        this(s3, bucketName, null, null);
+    }
+
+    /**
+     * Second constructor of the class
+     *
+     * @param s3 the client, shared by the whole process
+     * @param bucketName the name of the bucket
+     * @param cache where the local copies are kept, or {@code null} to always download
+     * @param eTags where the ETags of the local copies are kept, {@code null} only without local copies
+     */
+    public S3SaveStore(S3Client s3, String bucketName, SaveStore cache, SaveStore eTags) {
+        this(() -> s3, bucketName, cache, eTags);
+    }
+
+    /**
+     * Third constructor of the class. The client is asked for every request, so it can be replaced
+     * when the credentials change.
+     *
+     * @param clients returns the client to use, or {@code null} if the credentials are not available
+     * @param bucketName the name of the bucket
+     * @param cache where the local copies are kept, or {@code null} to always download
+     * @param eTags where the ETags of the local copies are kept, {@code null} only without local copies
+     * @throws IllegalArgumentException if there is a cache but no store for the ETags
+     */
+    public S3SaveStore(Supplier<S3Client> clients, String bucketName, SaveStore cache, SaveStore eTags) {
+        if (cache != null && eTags == null)
+            throw new IllegalArgumentException("The local copies need a store for their ETags");
+        this.clients = clients;
+        this.bucketName = bucketName;
+        this.cache = cache;
+        this.eTags = eTags;
+    }
+
+    @Override
+    public void put(String key, byte[] content) throws IOException {
+        PutObjectResponse response;
+        try {
+            response = client().putObject(PutObjectRequest.builder().bucket(bucketName).key(key).build(), RequestBody.fromBytes(content));
+        } catch (S3Exception e) {
+            throw new IOException("Upload of " + key + " failed", e);
+        }
+        cache(key, content, response.eTag());
+    }
+
+    /**
+     * Downloads the save, unless the local copy has the same ETag as the object in the bucket
+     */
+    @Override
+    public byte[] get(String key) throws IOException {
+        String cachedETag = cachedETag(key);
+        GetObjectRequest.Builder request = GetObjectRequest.builder().bucket(bucketName).key(key);
+        if (cachedETag != null)
+            request.ifNoneMatch(cachedETag);
+        try {
+            ResponseBytes<GetObjectResponse> response = client().getObjectAsBytes(request.build());
+            byte[] content = response.asByteArray();
+            cache(key, content, response.response().eTag());
+            return content;
+        } catch (NoSuchKeyException e) {
+            evict(key);
+            return null;
+        } catch (S3Exception e) {
+            if (e.statusCode() == NOT_MODIFIED) {
+                byte[] cached = cache.get(key);
+                if (cached != null)
+                    return cached;
+                evict(key);
+                return get(key);
+            }
+            throw new IOException("Download of " + key + " failed", e);
+        }
+    }
+
+    @Override
+    public List<String> list() throws IOException {
+        List<String> keys = new ArrayList<>();
+        try {
+            String token = null;
+            do {
+                String continuationToken = token;
+                ListObjectsV2Response response = client().listObjectsV2(b -> b.bucket(bucketName).continuationToken(continuationToken));
+                for (S3Object object : response.contents())
+                    keys.add(object.key());
+                token = Boolean.TRUE.equals(response.isTruncated()) ? response.nextContinuationToken() : null;
+            } while (token != null);
+        } catch (S3Exception e) {
+            throw new IOException("Listing of " + bucketName + " failed", e);
+        }
+        return keys;
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        try {
+            client().deleteObject(DeleteObjectRequest.builder().bucket(bucketName).key(key).build());
+            evict(key);
+            return true;
+        } catch (S3Exception e) {
+            throw new IOException("Deletion of " + key + " failed", e);
+        }
+    }
+
+    private S3Client client() throws IOException {
+        S3Client s3 = clients.get();
+        if (s3 == null)
+            throw new IOException("AWS credentials not found");
+        return s3;
+    }
+
+    private String cachedETag(String key) throws IOException {
+        if (cache == null)
+            return null;
+        byte[] eTag = eTags.get(key);
+        return eTag == null ? null : new String(eTag, StandardCharsets.UTF_8);
+    }
+
+    private void cache(String key, byte[] content, String eTag) throws IOException {
+        if (cache == null)
+            return;
+        if (eTag == null) {
+            evict(key);
+            return;
+        }
+        // the content goes first, so a stored ETag always has its content
+        cache.put(key, content);
+        eTags.put(key, eTag.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void evict(String key) throws IOException {
+        if (cache == null)
+            return;
+        eTags.delete(key);
+        cache.delete(key);
+    }
+}
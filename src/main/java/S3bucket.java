@@ -1,116 +1,234 @@
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.S3Exception;
-import software.amazon.awssdk.core.sync.ResponseTransformer;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * This class provides functionalities to interact with an S3 bucket for saving and loading game states.
- * It uses AWS SDK for Java and GSON for JSON serialization/deserialization.
+ * This class provides functionalities for saving and loading game states.
+ * It uses GSON for JSON serialization/deserialization and keeps the saves in a {@link SaveStore},
+ * the S3 bucket being one of them.
  */
 public class S3bucket {
+    /**
+     * System property that turns on pretty printed saves, useful when debugging. Saves are compact by default.
+     */
+    public static final String PRETTY_PRINT_PROPERTY = "castleescape.prettySaves";
+    /**
+     * Region of the game bucket
+     */
+    public static final Region DEFAULT_REGION = Region.EU_NORTH_1;
+    /**
+     * System property that selects where the saves are kept: {@code cloud} (the default, local files plus the bucket),
+     * {@code local} (only local files) or {@code memory} (lost on exit, for tests and benchmarks)
+     */
+    public static final String SAVE_STORE_PROPERTY = "castleescape.saveStore";
+    /**
+     * Directory where the games are saved locally
+     */
+    public static final String SAVE_DIRECTORY = "saves";
+    /**
+     * Directory where the saves downloaded from the bucket are cached, with their ETags
+     */
+    public static final String DOWNLOAD_CACHE_DIRECTORY = "downloaded";
+    /**
+     * Directory, inside {@link #DOWNLOAD_CACHE_DIRECTORY}, where the ETags of the cached saves are kept
+     */
+    public static final String ETAG_DIRECTORY = "etags";
+    /**
+     * System property that selects the format of the games saved: {@code json} (the default, readable when debugging)
+     * or {@code binary} (see {@link BinarySaveCodec}). Both formats are recognized when loading.
+     */
+    public static final String SAVE_FORMAT_PROPERTY = "castleescape.saveFormat";
+    /**
+     * System property that turns on GZIP compression of the saves. Compressed saves start with the GZIP header,
+     * so they are recognized when loading, as are the uncompressed ones.
+     */
+    public static final String COMPRESS_PROPERTY = "castleescape.compressSaves";
+    private static final Map<Region, CachedClient> CLIENTS = new ConcurrentHashMap<>();
 
-    private final S3Client s3;
-    private final String bucketName;
+    /**
+     * The client of a region, with the credentials it was built from
+     *
+     * @param credentials the store the credentials were read from
+     * @param version the version of the credentials when the client was built
+     * @param client the client
+     */
+    private record CachedClient(CredentialStore credentials, long version, S3Client client) {}
+
+    private final SaveStore localStore;
+    private final SaveStore cloudStore;
     private final Gson gson;
-    private boolean isCloudOn;
+    private final SaveQueue saveQueue = new SaveQueue(this::writeSnapshot, SaveQueue.DEFAULT_CAPACITY);
+    private volatile boolean isCloudOn;
+    private final SaveMetrics metrics = new SaveMetrics();
+    private final Map<String, Stored> lastStored = new ConcurrentHashMap<>();
+
+    /**
+     * The content last written to, or read from, the stores for one key
+     *
+     * @param hash the SHA-256 of the content
+     * @param local if the local store holds this content
+     * @param cloud if the cloud store holds this content
+     */
+    private record Stored(String hash, boolean local, boolean cloud) {}
+
+    /**
+     * Format of the saved games
+     */
+    public enum SaveFormat {
+        /**
+         * JSON text, written by GSON
+         */
+        JSON,
+        /**
+         * Compact binary save, written by {@link BinarySaveCodec}
+         */
+        BINARY
+    }
+
+    private final BinarySaveCodec binaryCodec = new BinarySaveCodec();
+    private volatile SaveFormat saveFormat =
+            "binary".equalsIgnoreCase(System.getProperty(SAVE_FORMAT_PROPERTY)) ? SaveFormat.BINARY : SaveFormat.JSON;
+    private volatile boolean compressed = Boolean.getBoolean(COMPRESS_PROPERTY);
 
     /**
      * Constructs a S3bucket instance with the specified bucket name and AWS region.
+     * Saves are kept in {@link #SAVE_DIRECTORY} and, when the cloud is active, in the bucket too.
      *
      * @param bucketName the name of the S3 bucket
      * @param region     the AWS region where the bucket is located
-     * @param isCloudActive
+     * @param isCloudActive if the saves have to be uploaded to the bucket
      */
     public S3bucket(String bucketName, Region region, boolean isCloudActive) {
-        this.isCloudOn = isCloudActive;
-        if (isCloudOn) {
-            String accessKeyId = getCredentials("key");
-            String secretAccessKey = getCredentials("secretKey");
-
-            if (accessKeyId == null || secretAccessKey == null) {
-                throw new IllegalStateException("AWS credentials not found.");
-            }
-
-            AwsBasicCredentials awsCreds = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
+        this(new LocalSaveStore(Paths.get(SAVE_DIRECTORY)), isCloudActive ? cloudStore(bucketName, region) : null);
+    }
 
-            this.s3 = S3Client.builder()
-                    .region(region)
-                    .credentialsProvider(StaticCredentialsProvider.create(awsCreds))
-                    .build();
-            this.bucketName = bucketName;
-        }
-        else {
-            this.s3 = null;
-            this.bucketName = null;
-        }
-        this.gson = new GsonBuilder()
+    /**
+     * Constructs a S3bucket instance on top of the given stores.
+     *
+     * @param localStore the store that always receives the saves, and is used to load them when the cloud is off
+     * @param cloudStore the store used when the cloud connection is available, or null to keep the saves local
+     */
+    public S3bucket(SaveStore localStore, SaveStore cloudStore) {
+        this.localStore = localStore;
+        this.cloudStore = cloudStore;
+        this.isCloudOn = cloudStore != null;
+        GsonBuilder builder = new GsonBuilder()
+                .registerTypeAdapter(Game.class, new Game.GameAdapter())
                 .registerTypeAdapter(Item.class, new Item.ItemSerializer())
                 .registerTypeAdapter(Item.class, new Item.ItemDeserializer())
                 .registerTypeAdapter(Location.class, new Location.LocationSerializer())
-                .registerTypeAdapter(Location.class, new Location.LocationDeserializer())
-                .setPrettyPrinting()
-                .create();
+                .registerTypeAdapter(Location.class, new Location.LocationDeserializer());
+        if (Boolean.getBoolean(PRETTY_PRINT_PROPERTY))
+            builder.setPrettyPrinting();
+        this.gson = builder.create();
+    }
+
+    private static SaveStore cloudStore(String bucketName, Region region) {
+        if (getClient(region) == null) {
+            throw new IllegalStateException("AWS credentials not found.");
+        }
+        return new S3SaveStore(() -> getClient(region), bucketName, new LocalSaveStore(Paths.get(DOWNLOAD_CACHE_DIRECTORY)),
+                new LocalSaveStore(Paths.get(DOWNLOAD_CACHE_DIRECTORY, ETAG_DIRECTORY)));
+    }
+
+    /**
+     * Returns if the last save or load used the cloud store. It is always false when no cloud store is configured.
+     *
+     * @return true if the cloud was reachable at the last save or load, false otherwise
+     */
+    public boolean isCloudOn() {
+        return isCloudOn;
+    }
+
+    /**
+     * Returns the format used to save games
+     *
+     * @return the save format
+     */
+    public SaveFormat getSaveFormat() {
+        return saveFormat;
+    }
+
+    /**
+     * Sets the format used to save games. Objects other than a {@code Game} are always saved as JSON.
+     *
+     * @param saveFormat the save format
+     */
+    public void setSaveFormat(SaveFormat saveFormat) {
+        this.saveFormat = saveFormat;
+    }
+
+    /**
+     * Returns whether the saves are compressed
+     *
+     * @return {@code true} if the saves are written with GZIP
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Turns the compression of the saves on or off. Saves are read whether they are compressed or not.
+     *
+     * @param compressed {@code true} to write the saves with GZIP
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
     }
 
     /**
      * Checks if the credentials file exists.
      *
      * @return true if the credentials file exists, false otherwise
-     * @throws IOException if an I/O error occurs
      */
     public static boolean checkCredentials() {
-        FileReader tryFile;
-        boolean checks = true;
-
-        try {
-            tryFile = new FileReader("src/config.dat");
-            tryFile.close();
-        } catch (Exception e) {
-            System.err.println(e.getMessage());
-            checks = false;
-        }
-        return checks;
+        return CredentialStore.getDefault().isAvailable();
     }
 
+    /**
+     * Returns the last known state of the cloud connection. The probe itself runs in the background,
+     * see {@link CloudMonitor}.
+     *
+     * @return true if the cloud bucket was reachable at the last probe, false otherwise
+     */
     public static boolean checkCloudConnection() {
+        return CloudMonitor.get().isOnline();
+    }
+
+    /**
+     * Checks that the bucket can be reached by listing at most one object. It is a network round trip,
+     * so it is only called by {@link CloudMonitor}.
+     *
+     * @return true if the bucket can be reached, false otherwise
+     */
+    public static boolean probeCloudConnection() {
         boolean checks = true;
 
         try {
-            // Retrieve the credentials and bucket name
+            // Retrieve the bucket name and the shared client
             String bucketNameTest = getCredentials("bucketName");
-            String accessKeyId = getCredentials("key");
-            String secretAccessKey = getCredentials("secretKey");
+            S3Client s3 = getClient(DEFAULT_REGION);
 
-            if (bucketNameTest == null || accessKeyId == null || secretAccessKey == null) {
+            if (bucketNameTest == null || s3 == null) {
                 throw new IllegalStateException("AWS credentials or bucket name not found.");
             }
 
-            // Create the S3Client with the retrieved credentials
-            AwsBasicCredentials awsCreds = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
-            S3Client s3 = S3Client.builder()
-                    .region(Region.EU_NORTH_1)
-                    .credentialsProvider(StaticCredentialsProvider.create(awsCreds))
-                    .build();
-
             // Attempt to list objects in the bucket to verify the connection
             s3.listObjectsV2(b -> b.bucket(bucketNameTest).maxKeys(1));
         } catch (S3Exception e) {
@@ -125,110 +243,162 @@ public class S3bucket {
     }
 
     /**
-     * Retrieves specific credentials from the credentials file.
+     * Returns the S3 client of the process for the given region, creating it the first time.
+     * The client owns a connection pool, so it is shared by every bucket and closed when the JVM exits.
+     * A new client is built when the credentials file is read again, so a rotation of the keys takes effect.
+     *
+     * @param region the AWS region of the bucket
+     * @return the shared client, or null if the credentials are not available
+     */
+    public static S3Client getClient(Region region) {
+        return getClient(region, CredentialStore.getDefault());
+    }
+
+    /**
+     * Returns the S3 client of the process for the given region, built from the given credentials
+     *
+     * @param region the AWS region of the bucket
+     * @param credentials where the keys are read from
+     * @return the shared client, or null if the credentials are not available
+     */
+    static S3Client getClient(Region region, CredentialStore credentials) {
+        long version = credentials.getVersion();
+        CachedClient cached = CLIENTS.get(region);
+        if (cached != null && cached.credentials() == credentials && cached.version() == version)
+            return cached.client();
+        synchronized (CLIENTS) {
+            cached = CLIENTS.get(region);
+            if (cached != null && cached.credentials() == credentials && cached.version() == version)
+                return cached.client();
+            String accessKeyId = credentials.get("key");
+            String secretAccessKey = credentials.get("secretKey");
+            if (accessKeyId == null || secretAccessKey == null)
+                return null;
+
+            AwsBasicCredentials awsCreds = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
+            S3Client client = S3Client.builder()
+                    .region(region)
+                    .credentialsProvider(StaticCredentialsProvider.create(awsCreds))
+                    .build();
+            // the old client may still be running a request, so it is closed with the others when the JVM exits
+            CLIENTS.put(region, new CachedClient(credentials, version, client));
+            Runtime.getRuntime().addShutdownHook(new Thread(client::close));
+            return client;
+        }
+    }
+
+    /**
+     * Retrieves specific credentials. The file is read and validated once by {@link CredentialStore}.
      *
      * @param request the type of credential to retrieve ("key", "secretKey", "bucketName")
      * @return the requested credential as a string, or null if not found
-     * @throws IOException if an I/O error occurs
      */
     public static String getCredentials(String request) {
-        if (!checkCredentials()) return null;
-        FileReader credentialsFile = null;
+        return CredentialStore.getDefault().get(request);
+    }
+
+
+    /**
+     * Saves the game state, on the calling thread.
+     *
+     * @param fileName  the name of the file to save
+     * @param gameState the game state object to save
+     * @return the report for the player
+     */
+    public String saveGameState(String fileName, Object gameState) {
+        byte[] snapshot;
         try {
-            credentialsFile = new FileReader("src/config.dat");
+            snapshot = serialize(gameState);
         } catch (Exception e) {
-            System.err.println(e.getMessage());
-            return null;
-        }
-
-        Scanner credentials = new Scanner(credentialsFile);
-        String requested = null;
-
-        MessageDigest digest;
-        byte[] hash = new byte[0];
-        switch (request) {
-            case "key":
-                requested = credentials.nextLine();
-
-                try {
-                    digest = MessageDigest.getInstance("SHA-256");
-                    hash = digest.digest(requested.getBytes(StandardCharsets.UTF_8));
-                }
-                catch (Exception e) {}
-                String temp = Base64.getEncoder().encodeToString(hash);
-                if (!temp.equals("bzyLhn1VroEOwby6OZtOCIDV4FSVa8XUtC1KQe9VMLM="))
-                {
-                    requested = null;
-                }
-
-                break;
-            case "secretKey":
-                credentials.nextLine();
-                requested = credentials.nextLine();
-
-                try {
-                    digest = MessageDigest.getInstance("SHA-256");
-                    hash = digest.digest(requested.getBytes(StandardCharsets.UTF_8));
-                }
-                catch (Exception e) {}
-                String temp1 = Base64.getEncoder().encodeToString(hash);
-                if (!temp1.equals("AgLbfbXiUzvS1Q9pHFdCkjvEXxRHNNWaLPkS6aAcA2Q="))
-                {
-                    requested = null;
-                }
-
-                break;
-            case "bucketName":
-                credentials.nextLine();
-                credentials.nextLine();
-                requested = credentials.nextLine();
-
-                try {
-                    digest = MessageDigest.getInstance("SHA-256");
-                    hash = digest.digest(requested.getBytes(StandardCharsets.UTF_8));
-                }
-                catch (Exception e) {}
-                String temp2 = Base64.getEncoder().encodeToString(hash);
-                if (!temp2.equals("lkDlKJze4hQ5vtG2jsf+XXeiN19Go1mOuerH5kHbqTI="))
-                {
-                    requested = null;
-                }
-
-                break;
-            default:
-                break;
+            System.out.println("Error occurred while saving the game");
+            return "Error occurred while saving the game";
         }
+        return writeSnapshot(fileName, snapshot);
+    }
 
-        credentials.close();
+    /**
+     * Saves the game state in the background. The game is serialized on the calling thread, so it can keep
+     * changing afterwards; the file and the upload are handled by the {@link SaveQueue}. If the same file is
+     * saved again before the previous snapshot has been written, only the latest one is written.
+     *
+     * @param fileName  the name of the file to save
+     * @param gameState the game state object to save
+     * @param callback  receives the report for the player once the save is done, on the writer thread
+     */
+    public void saveGameStateAsync(String fileName, Object gameState, Consumer<String> callback) {
+        byte[] snapshot;
         try {
-            credentialsFile.close();
-        } catch (IOException e) {
-
+            snapshot = serialize(gameState);
+        } catch (Exception e) {
+            System.out.println("Error occurred while saving the game");
+            callback.accept("Error occurred while saving the game");
+            return;
         }
-        return requested;
+        saveQueue.submit(fileName, snapshot, callback);
     }
 
-
     /**
-     * Saves the game state to an S3 bucket as a JSON file.
+     * Serializes a game state in the selected format, compressing it while it is written if the compression is on
      *
-     * @param fileName  the name of the JSON file to save
      * @param gameState the game state object to save
+     * @return the serialized game state
+     * @throws IOException if an I/O error occurs
      */
-    public String saveGameState(String fileName, Object gameState) {
-        isCloudOn = checkCloudConnection();
-        try {
-            File jsonFile = new File(fileName);
-            try (FileWriter writer = new FileWriter(jsonFile)) {
+    private byte[] serialize(Object gameState) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CountingOutputStream counter = new CountingOutputStream(compressed ? new GZIPOutputStream(bytes) : bytes);
+        try (OutputStream out = counter) {
+            if (saveFormat == SaveFormat.BINARY && gameState instanceof Game game) {
+                out.write(binaryCodec.encode(game));
+            } else {
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
                 gson.toJson(gameState, writer);
+                writer.flush();
             }
+        }
+        byte[] content = bytes.toByteArray();
+        metrics.recordSize(counter.getCount(), content.length);
+        return content;
+    }
 
-            if(isCloudOn){
-                s3.putObject(
-                        PutObjectRequest.builder().bucket(bucketName).key(fileName).build(),
-                        Paths.get(jsonFile.getPath())
-                );
+    /**
+     * Returns whether the content starts with the GZIP header
+     *
+     * @param content the content of a save
+     * @return {@code true} if the save is compressed
+     */
+    private static boolean isGzip(byte[] content) {
+        return content.length >= 2 && (content[0] & 0xFF) == 0x1f && (content[1] & 0xFF) == 0x8b;
+    }
+
+    /**
+     * Writes a serialized game state to the local store and, if the cloud is reachable, to the cloud store.
+     *
+     * @param fileName the name of the file to save
+     * @param content the serialized game state
+     * @return the report for the player
+     */
+    private String writeSnapshot(String fileName, byte[] content) {
+        isCloudOn = cloudStore != null && checkCloudConnection();
+        metrics.recordSave();
+        try {
+            String hash = hash(content);
+            Stored stored = lastStored.get(fileName);
+            boolean unchanged = stored != null && stored.hash().equals(hash);
+            boolean writeLocal = !unchanged || !stored.local();
+            boolean writeCloud = isCloudOn && (!unchanged || !stored.cloud());
+
+            if (writeLocal)
+                localStore.put(fileName, content);
+            if (writeCloud) {
+                cloudStore.put(fileName, content);
+                metrics.recordUpload();
             }
+            // only an upload the cloud store could have received counts as skipped
+            if (isCloudOn && !writeCloud)
+                metrics.recordSkippedUpload();
+            lastStored.put(fileName, new Stored(hash, true, writeCloud || (unchanged && stored.cloud())));
+
             if (isCloudOn){
                 System.out.println("Game state saved successfully.");
                 return ("Game state saved successfully.");
@@ -237,43 +407,86 @@ public class S3bucket {
                 return ("Game state saved locally due to no internet connection.");
             }
         } catch (Exception e) {
+            metrics.recordFailure();
+            lastStored.remove(fileName);
             System.out.println("Error occurred while saving the game");
             return "Error occurred while saving the game";
         }
     }
 
     /**
-     * Loads the game state from an S3 bucket.
+     * Returns the counters of the saves handled by this instance
+     *
+     * @return the save metrics
+     */
+    public SaveMetrics getMetrics() {
+        return metrics;
+    }
+
+    private static String hash(byte[] content) throws NoSuchAlgorithmException {
+        return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    /**
+     * Loads the game state from the cloud store, or from the local store when the cloud is not reachable.
+     * The format of the save, and whether it is compressed, are recognized from its first bytes.
      *
      * @param <T>           the type of the game state object
-     * @param keyName       the key name of the JSON file in the S3 bucket
+     * @param keyName       the key name of the file in the S3 bucket
      * @param gameStateClass the class of the game state object
      * @return the loaded game state object, or null if an error occurs
      */
     public <T> T loadGameState(String keyName, Class<T> gameStateClass) {
-        isCloudOn = checkCloudConnection();
+        isCloudOn = cloudStore != null && checkCloudConnection();
         try {
-            File jsonFile;
-            jsonFile = new File("downloaded-" + keyName);
-            if(isCloudOn){
-
-                if (jsonFile.exists()) {
-                    Files.delete(jsonFile.toPath());
-                }
-
-                s3.getObject(GetObjectRequest.builder()
-                        .bucket(bucketName)
-                        .key(keyName)
-                        .build(), ResponseTransformer.toFile(jsonFile.toPath()));
+            byte[] content = isCloudOn ? cloudStore.get(keyName) : localStore.get(keyName);
+            if (content == null) {
+                System.err.println("Error loading game state: " + keyName + " not found");
+                return null;
             }
-            else {
-                jsonFile = new File(keyName);
+            lastStored.put(keyName, new Stored(hash(content), !isCloudOn, isCloudOn));
+
+            InputStream in = new ByteArrayInputStream(content);
+            if (isGzip(content))
+                in = new GZIPInputStream(in);
+            try (BufferedInputStream buffered = new BufferedInputStream(in)) {
+                buffered.mark(BinarySaveCodec.MAGIC.length);
+                byte[] header = buffered.readNBytes(BinarySaveCodec.MAGIC.length);
+                buffered.reset();
+                if (BinarySaveCodec.isBinary(header))
+                    return gameStateClass.cast(binaryCodec.decode(buffered.readAllBytes()));
+                return gson.fromJson(new InputStreamReader(buffered, StandardCharsets.UTF_8), gameStateClass);
             }
-
-            return gson.fromJson(Files.readString(jsonFile.toPath()), gameStateClass);
         } catch (Exception e) {
             System.err.println("Error loading game state: " + e.getMessage());
             return null;
         }
     }
+
+    /**
+     * Counts the bytes written before they are compressed
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
 }
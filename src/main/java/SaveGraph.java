@@ -0,0 +1,219 @@
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * {@code SaveGraph} keeps track of the rooms and items of a single save while it is written or read.
+ * Every {@code Location} and every {@code Item} appears once in the save, keyed by its UUID, and all
+ * the other occurrences are id references that are resolved through this class.
+ *
+ * @see Game.GameAdapter
+ */
+public class SaveGraph {
+    private final Map<UUID, Location> locations = new LinkedHashMap<>();
+    private final Map<UUID, Item> items = new LinkedHashMap<>();
+    private final Set<UUID> visited = new HashSet<>();
+    private final Map<Storage, List<UUID>> pendingStorages = new LinkedHashMap<>();
+
+    /**
+     * Collects every room and item reachable from the game. Items are ordered so that each one comes
+     * after the items and rooms it refers to, which allows the save to be read in a single pass.
+     *
+     * @param game the game to save
+     * @return the graph of the game
+     */
+    public static SaveGraph of(Game game) {
+        SaveGraph graph = new SaveGraph();
+        Player player = game.getPlayer();
+        for (Location room : game.getMap().getRooms())
+            graph.collectLocation(room);
+        graph.collectLocation(player.getLocation());
+        for (Location location : player.getLastLocations())
+            graph.collectLocation(location);
+        for (Item item : player.getInventory().getItems())
+            graph.collectItem(item);
+        graph.collectItem(game.getLastItemUsed());
+        return graph;
+    }
+
+    private void collectLocation(Location location) {
+        if (location == null || locations.containsKey(location.getId()))
+            return;
+        locations.put(location.getId(), location);
+        for (Item item : location.getStorage().getItems())
+            collectItem(item);
+    }
+
+    private void collectItem(Item item) {
+        if (item == null || !visited.add(item.getId()))
+            return;
+        if (item instanceof ContainerItem containerItem) {
+            collectItem(containerItem.getItemContained());
+        } else if (item instanceof LockedItem lockedItem) {
+            for (Item object : lockedItem.getObjects())
+                collectItem(object);
+            if (lockedItem.getItemBlocked() instanceof Item itemBlocked)
+                collectItem(itemBlocked);
+            else if (lockedItem.getItemBlocked() instanceof Location locationBlocked)
+                collectLocation(locationBlocked);
+        }
+        items.put(item.getId(), item);
+    }
+
+    /**
+     * Returns the rooms of the graph
+     *
+     * @return the rooms of the graph
+     */
+    public Collection<Location> getLocations() {
+        return locations.values();
+    }
+
+    /**
+     * Returns the items of the graph, each one after the objects it refers to
+     *
+     * @return the items of the graph
+     */
+    public Collection<Item> getItems() {
+        return items.values();
+    }
+
+    /**
+     * Adds a room read from a save
+     *
+     * @param location the room read
+     */
+    public void addLocation(Location location) {
+        locations.put(location.getId(), location);
+    }
+
+    /**
+     * Adds an item read from a save
+     *
+     * @param item the item read
+     */
+    public void addItem(Item item) {
+        items.put(item.getId(), item);
+    }
+
+    /**
+     * Remembers the content of a storage, which is filled by {@link #fillStorages()} once every item has been read
+     *
+     * @param storage the storage read
+     * @param ids the ids of the items it contains, in order
+     */
+    public void fillLater(Storage storage, List<UUID> ids) {
+        pendingStorages.put(storage, ids);
+    }
+
+    /**
+     * Puts the items in every storage read so far
+     *
+     * @throws JsonParseException if a storage refers to an item that is not in the save
+     */
+    public void fillStorages() {
+        for (Map.Entry<Storage, List<UUID>> entry : pendingStorages.entrySet())
+            for (UUID id : entry.getValue())
+                entry.getKey().add(item(id));
+        pendingStorages.clear();
+    }
+
+    /**
+     * Returns the room with the given id
+     *
+     * @param id the id of the room
+     * @return the room with the given id
+     * @throws JsonParseException if the room has not been read
+     */
+    public Location location(UUID id) {
+        Location location = locations.get(id);
+        if (location == null)
+            throw new JsonParseException("Unknown location id: " + id);
+        return location;
+    }
+
+    /**
+     * Returns the item with the given id
+     *
+     * @param id the id of the item
+     * @return the item with the given id
+     * @throws JsonParseException if the item has not been read yet
+     */
+    public Item item(UUID id) {
+        Item item = items.get(id);
+        if (item == null)
+            throw new JsonParseException("Unknown item id: " + id);
+        return item;
+    }
+
+    /**
+     * Writes a reference to an item, or {@code null}
+     *
+     * @param out the writer
+     * @param item the referenced item, may be {@code null}
+     * @throws IOException if an I/O error occurs
+     */
+    public static void writeReference(JsonWriter out, Item item) throws IOException {
+        if (item == null)
+            out.nullValue();
+        else
+            out.value(item.getId().toString());
+    }
+
+    /**
+     * Writes a reference to a room, or {@code null}
+     *
+     * @param out the writer
+     * @param location the referenced room, may be {@code null}
+     * @throws IOException if an I/O error occurs
+     */
+    public static void writeReference(JsonWriter out, Location location) throws IOException {
+        if (location == null)
+            out.nullValue();
+        else
+            out.value(location.getId().toString());
+    }
+
+    /**
+     * Reads an id reference
+     *
+     * @param in the reader
+     * @return the id read, or {@code null}
+     * @throws IOException if an I/O error occurs
+     */
+    public static UUID readReference(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return UUID.fromString(in.nextString());
+    }
+
+    /**
+     * Reads a reference to an item that has already been read
+     *
+     * @param in the reader
+     * @return the referenced item, or {@code null}
+     * @throws IOException if an I/O error occurs
+     */
+    public Item readItem(JsonReader in) throws IOException {
+        UUID id = readReference(in);
+        return id == null ? null : item(id);
+    }
+
+    /**
+     * Reads a reference to a room that has already been read
+     *
+     * @param in the reader
+     * @return the referenced room, or {@code null}
+     * @throws IOException if an I/O error occurs
+     */
+    public Location readLocation(JsonReader in) throws IOException {
+        UUID id = readReference(in);
+        return id == null ? null : location(id);
+    }
+}
@@ -0,0 +1,117 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code SaveMetrics} counts what happened to the saves handled by a {@link S3bucket}.
+ * The counters can be read at any time from any thread.
+ */
+public class SaveMetrics {
+    private final AtomicLong saves = new AtomicLong();
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong skippedUploads = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private volatile long lastUncompressedSize;
+    private volatile long lastStoredSize;
+
+    void recordSave() {
+        saves.incrementAndGet();
+    }
+
+    void recordUpload() {
+        uploads.incrementAndGet();
+    }
+
+    void recordSkippedUpload() {
+        skippedUploads.incrementAndGet();
+    }
+
+    void recordFailure() {
+        failures.incrementAndGet();
+    }
+
+    synchronized void recordSize(long uncompressedSize, long storedSize) {
+        uncompressedBytes.addAndGet(uncompressedSize);
+        storedBytes.addAndGet(storedSize);
+        lastUncompressedSize = uncompressedSize;
+        lastStoredSize = storedSize;
+    }
+
+    /**
+     * Returns how many saves have been handled
+     *
+     * @return how many saves have been handled
+     */
+    public long getSaves() {
+        return saves.get();
+    }
+
+    /**
+     * Returns how many times a save has been sent to the cloud store
+     *
+     * @return how many uploads have been done
+     */
+    public long getUploads() {
+        return uploads.get();
+    }
+
+    /**
+     * Returns how many saves didn't need to be written because the same content was already stored
+     *
+     * @return how many uploads have been skipped
+     */
+    public long getSkippedUploads() {
+        return skippedUploads.get();
+    }
+
+    /**
+     * Returns how many saves failed
+     *
+     * @return how many saves failed
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Returns the size of the last save before compression
+     *
+     * @return the size of the last save before compression, in bytes
+     */
+    public long getLastUncompressedSize() {
+        return lastUncompressedSize;
+    }
+
+    /**
+     * Returns the size of the last save as stored, after compression if it is on
+     *
+     * @return the size of the last save as stored, in bytes
+     */
+    public long getLastStoredSize() {
+        return lastStoredSize;
+    }
+
+    /**
+     * Returns the total size of the saves before compression
+     *
+     * @return the total size of the saves before compression, in bytes
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    /**
+     * Returns the total size of the saves as stored
+     *
+     * @return the total size of the saves as stored, in bytes
+     */
+    public long getStoredBytes() {
+        return storedBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "saves=" + getSaves() + ", uploads=" + getUploads() + ", skipped=" + getSkippedUploads()
+                + ", failures=" + getFailures() + ", bytes=" + getUncompressedBytes() + ", stored=" + getStoredBytes();
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * {@code SaveQueue} writes saves behind the caller's back. Saves are handed over as already serialized
+ * snapshots and written by a dedicated thread, so the caller (the Swing event thread) never waits for the disk
+ * or the network. Saves for the same key that are still waiting are coalesced: only the latest snapshot is
+ * written and every caller is notified with the report of that write.
+ *
+ * @see S3bucket
+ */
+public class SaveQueue {
+    /**
+     * Default number of different keys that can wait to be written at the same time
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * A snapshot waiting to be written, with everyone who asked for it
+     *
+     * @param content the latest snapshot
+     * @param callbacks the callbacks of every coalesced save
+     */
+    private record Pending(byte[] content, List<Consumer<String>> callbacks) {}
+
+    private final BiFunction<String, byte[], String> writer;
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Constructor of the class
+     *
+     * @param writer writes a snapshot under a key and returns the report for the player
+     * @param capacity the number of different keys that can wait to be written at the same time
+     */
+    public SaveQueue(BiFunction<String, byte[], String> writer, int capacity) {
+        this.writer = writer;
+        this.executor = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new ArrayBlockingQueue<>(capacity),
+                runnable -> new Thread(runnable, "save-writer"));
+        // the thread stops when idle, so a pending save keeps the JVM alive but an empty queue doesn't
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues a snapshot. If a snapshot for the same key is still waiting, it is replaced.
+     *
+     * @param key the key of the save, e.g. the file name of the player
+     * @param content the serialized snapshot
+     * @param callback receives the report once the snapshot has been written, on the writer thread
+     */
+    public void submit(String key, byte[] content, Consumer<String> callback) {
+        boolean[] first = {false};
+        pending.compute(key, (k, current) -> {
+            List<Consumer<String>> callbacks = new ArrayList<>();
+            if (current == null)
+                first[0] = true;
+            else
+                callbacks.addAll(current.callbacks());
+            callbacks.add(callback);
+            return new Pending(content, callbacks);
+        });
+        if (!first[0])
+            return;
+        try {
+            executor.execute(() -> write(key));
+        } catch (RejectedExecutionException e) {
+            Pending rejected = pending.remove(key);
+            if (rejected != null)
+                notify(rejected, "Too many saves in progress, the game was not saved");
+        }
+    }
+
+    /**
+     * Returns the number of keys waiting to be written
+     *
+     * @return the number of keys waiting to be written
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stops accepting saves and waits for the queued ones to be written
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return {@code true} if every save has been written, {@code false} if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        executor.shutdown();
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    private void write(String key) {
+        Pending latest = pending.remove(key);
+        if (latest == null)
+            return;
+        String report;
+        try {
+            report = writer.apply(key, latest.content());
+        } catch (Exception e) {
+            report = "Error occurred while saving the game";
+        }
+        notify(latest, report);
+    }
+
+    private static void notify(Pending pending, String report) {
+        for (Consumer<String> callback : pending.callbacks()) {
+            try {
+                callback.accept(report);
+            } catch (Exception e) {
+                System.err.println("Save callback failed: " + e.getMessage());
+            }
+        }
+    }
+}
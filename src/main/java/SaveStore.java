@@ -0,0 +1,47 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@code SaveStore} is the place where the saves are kept. Saves are opaque byte arrays identified by a key,
+ * the serialization is done by {@link S3bucket}.
+ *
+ * @see LocalSaveStore
+ * @see MemorySaveStore
+ * @see S3SaveStore
+ */
+public interface SaveStore {
+    /**
+     * Stores a save, replacing the previous one with the same key
+     *
+     * @param key the key of the save
+     * @param content the save
+     * @throws IOException if the save could not be stored
+     */
+    void put(String key, byte[] content) throws IOException;
+
+    /**
+     * Returns a save
+     *
+     * @param key the key of the save
+     * @return the save, or {@code null} if there is no save with that key
+     * @throws IOException if the save could not be read
+     */
+    byte[] get(String key) throws IOException;
+
+    /**
+     * Returns the keys of all the saves
+     *
+     * @return the keys of all the saves
+     * @throws IOException if the saves could not be listed
+     */
+    List<String> list() throws IOException;
+
+    /**
+     * Deletes a save
+     *
+     * @param key the key of the save
+     * @return {@code true} if a save has been deleted, {@code false} if there was none
+     * @throws IOException if the save could not be deleted
+     */
+    boolean delete(String key) throws IOException;
+}
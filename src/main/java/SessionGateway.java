@@ -0,0 +1,406 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code SessionGateway} hosts players with the same line protocol as {@link GameServer}, but without a thread
+ * per connection. A single selector thread accepts the connections, reads the bytes into a buffer per
+ * connection and writes the responses with gathering writes. Complete lines are handed to a small pool of
+ * workers that run the commands on the {@link HeadlessOutput} session of the connection.
+ * <p>
+ * Clients can send several commands without waiting for the responses: the commands of a connection are
+ * queued and run one after the other by at most one worker at a time, so every session sees its commands,
+ * and the client its responses, in order. A connection is not read while responses wait to be written or
+ * {@value #MAX_QUEUED_COMMANDS} commands wait to be run, so a client that sends commands without reading the
+ * responses is slowed down by TCP instead of filling the memory of the gateway.
+ *
+ * @see GameServer
+ */
+public class SessionGateway implements Closeable {
+    /**
+     * Longest command accepted, in bytes. A connection sending a longer line is closed.
+     */
+    public static final int MAX_LINE_LENGTH = 4096;
+    /**
+     * Most commands of a connection waiting to be run. The lines read after them stay in the buffer.
+     */
+    public static final int MAX_QUEUED_COMMANDS = 16;
+    private static final byte[] END_OF_RESPONSE = (GameServer.END_OF_RESPONSE + "\n").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NEW_LINE_END_OF_RESPONSE = ("\n" + GameServer.END_OF_RESPONSE + "\n").getBytes(StandardCharsets.UTF_8);
+    private static final int READ_BUFFER_SIZE = 512;
+
+    private final int port;
+    private final S3bucket bucket;
+    private final ExecutorService workers;
+    private final Selector selector;
+    private final Queue<Connection> toFlush = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger unsent = new AtomicInteger();
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    /**
+     * Constructor of the class. The gateway does nothing until {@link #start()} is called.
+     *
+     * @param port the port to listen on, {@code 0} for any free port
+     * @param bucket where the players' games are saved, or {@code null} if saves are not available
+     * @param workerCount the number of threads running the commands
+     * @throws IOException if the selector can't be opened
+     */
+    public SessionGateway(int port, S3bucket bucket, int workerCount) throws IOException {
+        this.port = port;
+        this.bucket = bucket;
+        this.workers = Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "gateway-worker-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Opens the port and starts the selector thread
+     *
+     * @throws IOException if the port can't be opened
+     */
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        Thread.ofPlatform().name("gateway-selector").start(this::selectLoop);
+        System.out.println("Session gateway listening on port " + getPort());
+    }
+
+    /**
+     * Returns the port the gateway listens on
+     *
+     * @return the local port
+     * @throws IOException if the port can't be read
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Returns the number of players connected
+     *
+     * @return the number of open connections
+     */
+    public int getSessionCount() {
+        return sessions.get();
+    }
+
+    /**
+     * Returns the number of commands read and not run yet, for all the connections
+     *
+     * @return the number of commands waiting for a worker
+     */
+    public int getQueuedCommands() {
+        return queued.get();
+    }
+
+    /**
+     * Returns the number of responses being written and not fully sent yet, for all the connections. A
+     * connection holds at most {@value #MAX_QUEUED_COMMANDS} of them, plus the one of the command running when
+     * it stopped reading.
+     *
+     * @return the number of responses waiting for the clients
+     */
+    public int getUnsentResponses() {
+        return unsent.get();
+    }
+
+    private static boolean endsResponse(ByteBuffer buffer) {
+        return buffer.array() == END_OF_RESPONSE || buffer.array() == NEW_LINE_END_OF_RESPONSE;
+    }
+
+    /**
+     * Closes every connection and stops the gateway
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select();
+                Connection connection;
+                while ((connection = toFlush.poll()) != null)
+                    connection.flush();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable())
+                        accept();
+                    else {
+                        Connection target = (Connection) key.attachment();
+                        if (key.isReadable())
+                            target.read();
+                        if (key.isValid() && key.isWritable())
+                            target.flush();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Session gateway stopped: " + e.getMessage());
+        } finally {
+            // the workers stop after the selector, which is the only thread handing them commands
+            workers.shutdown();
+            for (SelectionKey key : selector.keys())
+                closeQuietly(key.channel());
+            closeQuietly(selector);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            sessions.incrementAndGet();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // nothing left to do
+        }
+    }
+
+    /**
+     * State of one client. The buffers and the key are only used by the selector thread, the commands and the
+     * responses are the queues shared with the workers. Both queues are bounded: the selector stops reading
+     * while they are full, see {@link #updateInterest()}.
+     */
+    private class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private final Queue<String> commands = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Queue<ByteBuffer> responses = new ConcurrentLinkedQueue<>();
+        private final ArrayDeque<ByteBuffer> writing = new ArrayDeque<>();
+        private HeadlessOutput session;
+        private volatile boolean finished;
+        private boolean inputDone;
+        /**
+         * Complete lines are left in the input buffer because enough commands are queued
+         */
+        private boolean linesLeft;
+        private boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Reads what the client sent and queues the complete lines. Once the client has shut down its side,
+         * the last line is queued even without a new line, and the connection is closed when every command
+         * queued before has been answered.
+         */
+        void read() {
+            if (!writing.isEmpty() || !responses.isEmpty()) {
+                // a worker has answered since the interest was set, the connection is read again once it's sent
+                updateInterest();
+                return;
+            }
+            int read;
+            try {
+                read = channel.read(input);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (read < 0)
+                inputDone = true;
+            linesLeft = queueLines();
+            if (!linesLeft && !input.hasRemaining()) {
+                if (input.capacity() >= MAX_LINE_LENGTH) {
+                    close();
+                    return;
+                }
+                ByteBuffer larger = ByteBuffer.allocate(input.capacity() * 2);
+                input.flip();
+                larger.put(input);
+                input = larger;
+            }
+            schedule();
+            if (inputDone)
+                flush();
+            else
+                updateInterest();
+        }
+
+        /**
+         * Queues the complete lines of the input buffer until {@value #MAX_QUEUED_COMMANDS} commands wait
+         *
+         * @return {@code true} if complete lines are left in the buffer
+         */
+        private boolean queueLines() {
+            input.flip();
+            int start = input.position();
+            int room = MAX_QUEUED_COMMANDS - commands.size();
+            boolean left = false;
+            for (int i = start; i < input.limit() && !left; i++) {
+                if (input.get(i) == '\n') {
+                    if (room == 0) {
+                        left = true;
+                    } else {
+                        int end = i > start && input.get(i - 1) == '\r' ? i - 1 : i;
+                        queue(new String(input.array(), start, end - start, StandardCharsets.UTF_8));
+                        room--;
+                        start = i + 1;
+                    }
+                }
+            }
+            if (!left && inputDone && start < input.limit()) {
+                if (room == 0) {
+                    left = true;
+                } else {
+                    queue(new String(input.array(), start, input.limit() - start, StandardCharsets.UTF_8));
+                    start = input.limit();
+                }
+            }
+            input.position(start);
+            input.compact();
+            return left;
+        }
+
+        private void queue(String command) {
+            commands.add(command);
+            queued.incrementAndGet();
+        }
+
+        /**
+         * Reads the connection only when nothing waits to be written and fewer than
+         * {@value #MAX_QUEUED_COMMANDS} commands wait to be run, and writes it while a response is not fully sent
+         */
+        private void updateInterest() {
+            int ops = writing.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+            if (!inputDone && !linesLeft && writing.isEmpty() && responses.isEmpty()
+                    && commands.size() < MAX_QUEUED_COMMANDS)
+                ops |= SelectionKey.OP_READ;
+            key.interestOps(ops);
+        }
+
+        private void schedule() {
+            if (!commands.isEmpty() && scheduled.compareAndSet(false, true))
+                workers.execute(this::runCommands);
+        }
+
+        /**
+         * Runs the queued commands in order, on a worker. Only one worker at a time runs the commands
+         * of a connection.
+         */
+        void runCommands() {
+            String command;
+            while (!finished && (command = commands.poll()) != null) {
+                queued.decrementAndGet();
+                if (session == null) {
+                    if (command.isBlank()) {
+                        finished = true;
+                        break;
+                    }
+                    session = new HeadlessOutput(command.trim(), bucket);
+                } else {
+                    session.read(command);
+                }
+                String text = session.drain();
+                responses.add(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+                responses.add(ByteBuffer.wrap(text.endsWith("\n") ? END_OF_RESPONSE : NEW_LINE_END_OF_RESPONSE));
+                // set once the last response is queued, so the selector doesn't close the connection before sending it
+                finished = session.isClosed();
+            }
+            scheduled.set(false);
+            // a line may have been queued after the loop ended but before the flag was cleared
+            if (!finished && !commands.isEmpty() && scheduled.compareAndSet(false, true))
+                workers.execute(this::runCommands);
+            // flushed once the flag is cleared, so the selector sees when a closed input has been answered
+            toFlush.add(this);
+            selector.wakeup();
+        }
+
+        /**
+         * Writes as many responses as the socket accepts, on the selector thread. Once every response is sent,
+         * the lines left in the input buffer are queued if the workers have run enough commands since.
+         */
+        void flush() {
+            if (closed)
+                return;
+            ByteBuffer response;
+            while ((response = responses.poll()) != null) {
+                writing.add(response);
+                if (endsResponse(response))
+                    unsent.incrementAndGet();
+            }
+            try {
+                while (!writing.isEmpty()) {
+                    channel.write(writing.toArray(new ByteBuffer[0]));
+                    while (!writing.isEmpty() && !writing.peekFirst().hasRemaining())
+                        if (endsResponse(writing.pollFirst()))
+                            unsent.decrementAndGet();
+                    if (!writing.isEmpty()) {
+                        updateInterest();
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (linesLeft && responses.isEmpty() && commands.size() < MAX_QUEUED_COMMANDS) {
+                linesLeft = queueLines();
+                schedule();
+            }
+            if (responses.isEmpty() && (finished || inputDone && !linesLeft && commands.isEmpty() && !scheduled.get()))
+                close();
+            else
+                updateInterest();
+        }
+
+        void close() {
+            if (closed)
+                return;
+            closed = true;
+            finished = true;
+            while (commands.poll() != null)
+                queued.decrementAndGet();
+            responses.clear();
+            for (ByteBuffer left : writing)
+                if (endsResponse(left))
+                    unsent.decrementAndGet();
+            writing.clear();
+            key.cancel();
+            sessions.decrementAndGet();
+            closeQuietly(channel);
+        }
+    }
+}
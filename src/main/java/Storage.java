@@ -1,14 +1,42 @@
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
 import java.util.*;
 
 /**
- * {@code Storage} is the storage used in every Location and for the player's inventory
+ * {@code Storage} is the storage used in every Location and for the player's inventory.
+ * <p>
+ * The storage keeps the number of its items and, apart, the items visible to the player, which
+ * {@link Item#setVisible(boolean)} keeps up to date. Weighing the storage or listing what the player sees
+ * therefore never goes through the hidden items. Items are listed in the order their names were first added,
+ * visible items in the order they became visible.
  *
  * @see Item
  */
 public class Storage{
     public final static double WEIGHT_UNLIMITED = 15;
     private final double maxWeight;
+    /**
+     * The items by name. A name with a single item, the usual case, maps to an immutable list, replaced by an
+     * {@code ArrayList} when a second item with the same name is added.
+     */
     private Map<String, List<Item>> stor;
+    private transient int count;
+    /**
+     * The visible items, in the order they became visible. An item the storage holds several times is listed as
+     * many times, next to each other.
+     */
+    private transient List<Item> visible;
+    /**
+     * The map counted in {@link #count} and {@link #visible}, which differs from {@link #stor} once the map has
+     * been replaced, e.g. in a storage read by reflection
+     */
+    private transient Map<String, List<Item>> indexed;
+    /**
+     * The storage of a room shared by every game of a world, which cannot change
+     */
+    private transient boolean shared;
 
     /**
      * First constructor used for the Location as it create an unlimited weight storage
@@ -24,7 +52,91 @@ public class Storage{
      */
     public Storage(double maxWeight) {
         this.maxWeight = maxWeight;
-        this.stor = new HashMap<>();
+        this.stor = new LinkedHashMap<>(8);
+        this.visible = new ArrayList<>(0);
+        this.indexed = stor;
+    }
+
+    /**
+     * Marks the storage as shared by every game of its world, after which no item can be added or removed
+     *
+     * @see Location#share()
+     */
+    void share() {
+        shared = true;
+    }
+
+    private void checkNotShared() {
+        if (shared)
+            throw new IllegalStateException("The storage is shared by every game, its room has to be copied before it changes");
+    }
+
+    /**
+     * Builds the count and the visible items of a storage whose items were set without {@link #add(Item)}
+     */
+    private void index() {
+        if (indexed == stor)
+            return;
+        indexed = stor;
+        visible = new ArrayList<>(0);
+        count = 0;
+        for (List<Item> items : stor.values())
+            for (Item item : items) {
+                count++;
+                item.setStorage(this);
+                if (item.isVisible())
+                    show(item);
+            }
+    }
+
+    /**
+     * Lists a visible item once more, next to the times it is already listed
+     *
+     * @param item the item
+     */
+    private void show(Item item) {
+        int last = lastIndexOf(visible, item);
+        visible.add(last < 0 ? visible.size() : last + 1, item);
+    }
+
+    private static int lastIndexOf(List<Item> items, Item item) {
+        for (int i = items.size() - 1; i >= 0; i--)
+            if (items.get(i) == item)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Updates the visible items when an item of the storage is shown or hidden
+     *
+     * @param item the item whose visibility changed
+     * @see Item#setVisible(boolean)
+     */
+    void visibilityChanged(Item item) {
+        if (indexed != stor)
+            return;
+        visible.removeIf(listed -> listed == item);
+        if (item.isVisible())
+            for (Item held : stor.getOrDefault(item.getName(), List.of()))
+                if (held == item)
+                    visible.add(item);
+    }
+
+    private void added(Item item) {
+        count++;
+        item.setStorage(this);
+        if (item.isVisible())
+            show(item);
+    }
+
+    private Item removed(Item item) {
+        count--;
+        if (!holds(stor.getOrDefault(item.getName(), List.of()), item))
+            item.leaveStorage(this);
+        int last = lastIndexOf(visible, item);
+        if (last >= 0)
+            visible.remove(last);
+        return item;
     }
 
     /**
@@ -42,11 +154,8 @@ public class Storage{
      * @return how many items are stored in the storage
      */
     public int getWeight() {
-        int weight = 0;
-        for(String key : stor.keySet()) {
-            weight += stor.get(key).size();
-        }
-        return weight;
+        index();
+        return count;
     }
 
     /**
@@ -60,41 +169,59 @@ public class Storage{
     }
 
     /**
-     * Adds a new item to the storage
+     * Adds a new item to the storage. An item already held by the storage is not added again.
      *
      * @param item the item to add
-     * @return the {@code item} added if the operation ended correctly, {@code null} otherwise
+     * @return the {@code item} added if the operation ended correctly, {@code null} if the storage is full or
+     *         already holds the item
+     * @throws IllegalStateException if the storage is shared by every game of a world
      */
     public Item add(Item item) {
+        checkNotShared();
         if (getWeight() < maxWeight) {
-            if (stor.containsKey(item.getName())) {
-                stor.get(item.getName()).add(item);
+            List<Item> items = stor.get(item.getName());
+            if (items != null && holds(items, item))
+                return null;
+            if (items == null) {
+                stor.put(item.getName(), List.of(item));
             }
             else{
-                List<Item> items = new ArrayList<>();
+                if (!(items instanceof ArrayList)) {
+                    items = new ArrayList<>(items);
+                    stor.put(item.getName(), items);
+                }
                 items.add(item);
-                stor.put(item.getName(), items);
             }
+            added(item);
             return item;
         }
         return null;
     }
 
+    private static boolean holds(List<Item> items, Item item) {
+        for (Item held : items)
+            if (held.isSameAs(item))
+                return true;
+        return false;
+    }
+
     /**
      * Removes the item from the storage
      *
      * @param itemName the name of the item to remove
      * @return the removed {@code Item}, or {@code null} if no items with the specified name exist
+     * @throws IllegalStateException if the storage is shared by every game of a world
      */
     public Item remove(String itemName) {
+        checkNotShared();
         if (!stor.containsKey(itemName)) {
             return null;
         }
         List<Item> items = stor.get(itemName);
-        Item removed=items.removeLast();
-        if (items.isEmpty())
-            stor.remove(itemName);
-        return removed;
+        index();
+        if (items.size() == 1)
+            return removed(stor.remove(itemName).getFirst());
+        return removed(items.removeLast());
     }
 
     /**
@@ -102,17 +229,27 @@ public class Storage{
      *
      * @param item the item to remove
      * @return the removed {@code Item}, or {@code null} if {@code item} does not exist
+     * @throws IllegalStateException if the storage is shared by every game of a world
      */
     public Item removeItem(Item item) {
+        checkNotShared();
         String name = item.getName();
         if (!stor.containsKey(name)) {
             return null;
         }
+        index();
         List<Item> items = stor.get(name);
+        if (items.size() == 1) {
+            if (!items.getFirst().isSameAs(item))
+                return null;
+            return removed(stor.remove(name).getFirst());
+        }
         Item removed=null;
         for (int i=0; i< items.size(); i++){
-            if (items.get(i).getId().equals(item.getId()))
-                removed = items.remove(i);
+            if (items.get(i).isSameAs(item)) {
+                removed = removed(items.remove(i));
+                break;
+            }
         }
         if (items.isEmpty())
             stor.remove(name);
@@ -141,6 +278,18 @@ public class Storage{
         return items.getFirst();
     }
 
+    /**
+     * Returns every item in the storage, visible or not, in the order their names were first added
+     *
+     * @return a new list with all the items stored in the storage
+     */
+    public List<Item> getItems() {
+        List<Item> items = new ArrayList<>();
+        for (List<Item> list : stor.values())
+            items.addAll(list);
+        return items;
+    }
+
     /**
      * Returns all the items stored in the storage
      *
@@ -150,13 +299,67 @@ public class Storage{
         if (this.stor.isEmpty()) {
             return "No items in here, search somewhere else...";
         }
+        index();
         StringBuilder content = new StringBuilder();
-        for (String key : stor.keySet()){
-            for (Item item : stor.get(key)) {
-                if (item.isVisible())
-                    content.append("- ").append(item.getName()).append("\n");
+        for (Item item : visible)
+            content.append("- ").append(item.getName()).append("\n");
+        return content.toString();
+    }
+
+    /**
+     * {@code StorageAdapter} streams a {@code Storage} as its maximum weight and the ids of the items it contains.
+     * The items themselves are written once in the save and put back in the storage by {@link SaveGraph#fillStorages()}.
+     *
+     * @see SaveGraph
+     */
+    public static class StorageAdapter extends TypeAdapter<Storage> {
+        private final SaveGraph graph;
+
+        /**
+         * Constructor of the adapter
+         *
+         * @param graph the graph of the save being written or read
+         */
+        public StorageAdapter(SaveGraph graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        public void write(JsonWriter out, Storage storage) throws IOException {
+            out.beginObject();
+            out.name("maxWeight").value(storage.getMaxWeight());
+            out.name("items").beginArray();
+            for (List<Item> items : storage.stor.values())
+                for (Item item : items)
+                    out.value(item.getId().toString());
+            out.endArray();
+            out.endObject();
+        }
+
+        @Override
+        public Storage read(JsonReader in) throws IOException {
+            double maxWeight = WEIGHT_UNLIMITED;
+            List<UUID> ids = new ArrayList<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "maxWeight":
+                        maxWeight = in.nextDouble();
+                        break;
+                    case "items":
+                        in.beginArray();
+                        while (in.hasNext())
+                            ids.add(UUID.fromString(in.nextString()));
+                        in.endArray();
+                        break;
+                    default:
+                        in.skipValue();
+                }
             }
+            in.endObject();
+            Storage storage = new Storage(maxWeight);
+            graph.fillLater(storage, ids);
+            return storage;
         }
-        return content.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,142 @@
+import java.util.Map;
+
+/**
+ * {@code WordTable} maps words to values ignoring the case of the words looked up. A word can be looked up
+ * as a region of a longer text, e.g. one word of a command, so it doesn't have to be copied first.
+ * <p>
+ * The table is written rarely and read often, by any thread: every new word publishes a new copy of the
+ * table, lookups never lock and never allocate.
+ *
+ * @param <V> the type of the values
+ * @see CommandTokens
+ */
+public class WordTable<V> {
+    /**
+     * Keys, lowercase, at even indexes and their values at the following odd indexes
+     */
+    private volatile Object[] slots = new Object[32];
+    private int size;
+
+    /**
+     * Returns the value of a word
+     *
+     * @param word the word, in any case
+     * @return the value of the word, or {@code null} if the word is not in the table
+     */
+    public V get(CharSequence word) {
+        return get(word, 0, word.length());
+    }
+
+    /**
+     * Returns the value of the word written in a region of a text
+     *
+     * @param text the text containing the word
+     * @param start the index of the first character of the word
+     * @param end the index after the last character of the word
+     * @return the value of the word, or {@code null} if the word is not in the table
+     */
+    @SuppressWarnings("unchecked")
+    public V get(CharSequence text, int start, int end) {
+        Object[] table = slots;
+        int mask = (table.length >> 1) - 1;
+        for (int i = hash(text, start, end) & mask; ; i = (i + 1) & mask) {
+            String key = (String) table[i << 1];
+            if (key == null)
+                return null;
+            if (matches(key, text, start, end))
+                return (V) table[(i << 1) + 1];
+        }
+    }
+
+    /**
+     * Adds a word to the table, unless it is already there
+     *
+     * @param word the word, stored lowercase
+     * @param value the value of the word
+     * @return the value already in the table for the word, or {@code value} if the word has been added
+     */
+    public synchronized V putIfAbsent(String word, V value) {
+        V existing = get(word);
+        if (existing != null)
+            return existing;
+        Object[] table = slots;
+        // the table is kept at most half full, so the probes stay short and always reach an empty slot
+        Object[] copy = new Object[(size + 1) * 4 > table.length ? table.length * 2 : table.length];
+        for (int i = 0; i < table.length; i += 2)
+            if (table[i] != null)
+                insert(copy, (String) table[i], table[i + 1]);
+        insert(copy, word.toLowerCase(), value);
+        size++;
+        slots = copy;
+        return value;
+    }
+
+    /**
+     * Adds many words to the table, those already there keeping their value. The table is copied once for all
+     * the words, so filling it this way takes a time linear in its size.
+     *
+     * @param words the words, stored lowercase, and their values
+     */
+    public synchronized void putAllAbsent(Map<String, V> words) {
+        Object[] table = slots;
+        int capacity = table.length;
+        while ((size + words.size()) * 4 > capacity)
+            capacity *= 2;
+        Object[] copy = new Object[capacity];
+        for (int i = 0; i < table.length; i += 2)
+            if (table[i] != null)
+                insert(copy, (String) table[i], table[i + 1]);
+        int added = 0;
+        for (Map.Entry<String, V> entry : words.entrySet()) {
+            String word = entry.getKey().toLowerCase();
+            if (find(copy, word) < 0) {
+                insert(copy, word, entry.getValue());
+                added++;
+            }
+        }
+        size += added;
+        slots = copy;
+    }
+
+    /**
+     * Returns the number of words in the table
+     *
+     * @return the number of words
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private static int find(Object[] table, String key) {
+        int mask = (table.length >> 1) - 1;
+        for (int i = hash(key, 0, key.length()) & mask; table[i << 1] != null; i = (i + 1) & mask)
+            if (table[i << 1].equals(key))
+                return i;
+        return -1;
+    }
+
+    private static void insert(Object[] table, String key, Object value) {
+        int mask = (table.length >> 1) - 1;
+        int i = hash(key, 0, key.length()) & mask;
+        while (table[i << 1] != null)
+            i = (i + 1) & mask;
+        table[i << 1] = key;
+        table[(i << 1) + 1] = value;
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++)
+            hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String key, CharSequence text, int start, int end) {
+        if (key.length() != end - start)
+            return false;
+        for (int i = 0; i < key.length(); i++)
+            if (key.charAt(i) != Character.toLowerCase(text.charAt(start + i)))
+                return false;
+        return true;
+    }
+}
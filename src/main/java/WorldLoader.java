@@ -0,0 +1,265 @@
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * {@code WorldLoader} reads the definition of a world, i.e. its rooms and items, from a JSON file such as
+ * {@value #CASTLE}:
+ * <pre>
+ * {
+ *   "rooms": [
+ *     {"name": "hall", "description": "...", "unlocked": true,
+ *      "exits": {"kitchen": "kitchen", "east": "kitchen"}, "items": ["note", "door"]}
+ *   ],
+ *   "items": [
+ *     {"id": "note", "type": "item", "name": "note", "description": "...", "visible": true, "collectable": true},
+ *     {"id": "soup", "type": "container", ..., "contains": "key-kitchen", "altDescription": "..."},
+ *     {"id": "door", "type": "locked", ..., "requires": ["key-studio", "key-kitchen"], "opensRoom": "lab",
+ *      "action": "...", "altDescription": "..."}
+ *   ]
+ * }
+ * </pre>
+ * Every exit of a room, a direction or the name of a room, leads to the room it is mapped to. Items refer to each
+ * other by id, which defaults to the name of the item; a locked item opens either a room ({@code opensRoom}) or an
+ * item ({@code opensItem}).
+ * <p>
+ * The file is streamed once, then every reference is checked and the items are built in an order where each
+ * one comes after the items it refers to, so the time taken is linear in the size of the world.
+ *
+ * @see WorldPrototype
+ */
+public class WorldLoader {
+    /**
+     * The resource holding the castle
+     */
+    public static final String CASTLE = "/castle.json";
+
+    private record RoomDefinition(String name, String description, boolean unlocked, Map<String, String> exits,
+                                  List<String> items) {
+    }
+
+    private record ItemDefinition(String id, String type, String name, String description, boolean visible,
+                                  boolean collectable, String contains, List<String> requires, String opensRoom,
+                                  String opensItem, String action, String altDescription) {
+    }
+
+    private final List<RoomDefinition> roomDefinitions = new ArrayList<>();
+    private final Map<String, ItemDefinition> itemDefinitions = new LinkedHashMap<>();
+    private final Map<String, Location> rooms = new HashMap<>();
+    private final Map<String, Item> items = new HashMap<>();
+
+    private WorldLoader() {
+    }
+
+    /**
+     * Loads a world from a resource of the class path
+     *
+     * @param resource the name of the resource, e.g. {@value #CASTLE}
+     * @return the world
+     * @throws UncheckedIOException if the resource cannot be read
+     * @throws JsonParseException if the definition is not valid
+     */
+    public static WorldPrototype loadResource(String resource) {
+        InputStream stream = WorldLoader.class.getResourceAsStream(resource);
+        if (stream == null)
+            throw new UncheckedIOException(new FileNotFoundException("No world found at " + resource));
+        try (Reader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            return load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Loads a world
+     *
+     * @param reader the definition of the world
+     * @return the world
+     * @throws IOException if the definition cannot be read
+     * @throws JsonParseException if the definition is not valid
+     */
+    public static WorldPrototype load(Reader reader) throws IOException {
+        WorldLoader loader = new WorldLoader();
+        loader.read(new JsonReader(reader));
+        return loader.build();
+    }
+
+    private void read(JsonReader in) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "rooms":
+                    in.beginArray();
+                    while (in.hasNext())
+                        roomDefinitions.add(readRoom(in));
+                    in.endArray();
+                    break;
+                case "items":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        ItemDefinition item = readItem(in);
+                        if (itemDefinitions.putIfAbsent(item.id(), item) != null)
+                            throw new JsonParseException("Two items have the id " + item.id());
+                    }
+                    in.endArray();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    private static RoomDefinition readRoom(JsonReader in) throws IOException {
+        String name = null, description = "";
+        boolean unlocked = true;
+        Map<String, String> exits = new LinkedHashMap<>();
+        List<String> items = new ArrayList<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name" -> name = in.nextString();
+                case "description" -> description = in.nextString();
+                case "unlocked" -> unlocked = in.nextBoolean();
+                case "exits" -> {
+                    in.beginObject();
+                    while (in.hasNext())
+                        exits.put(in.nextName(), in.nextString());
+                    in.endObject();
+                }
+                case "items" -> readStrings(in, items);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (name == null)
+            throw new JsonParseException("A room has no name at " + in.getPath());
+        return new RoomDefinition(name, description, unlocked, exits, items);
+    }
+
+    private static ItemDefinition readItem(JsonReader in) throws IOException {
+        String id = null, type = "item", name = null, description = "", contains = null, opensRoom = null,
+                opensItem = null, action = "", altDescription = "";
+        boolean visible = true, collectable = false;
+        List<String> requires = new ArrayList<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id" -> id = in.nextString();
+                case "type" -> type = in.nextString();
+                case "name" -> name = in.nextString();
+                case "description" -> description = in.nextString();
+                case "visible" -> visible = in.nextBoolean();
+                case "collectable" -> collectable = in.nextBoolean();
+                case "contains" -> contains = in.nextString();
+                case "requires" -> readStrings(in, requires);
+                case "opensRoom" -> opensRoom = in.nextString();
+                case "opensItem" -> opensItem = in.nextString();
+                case "action" -> action = in.nextString();
+                case "altDescription" -> altDescription = in.nextString();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (name == null)
+            throw new JsonParseException("An item has no name at " + in.getPath());
+        if (!type.equals("item") && !type.equals("container") && !type.equals("locked"))
+            throw new JsonParseException("Unknown type of item: " + type);
+        if (opensRoom != null && opensItem != null)
+            throw new JsonParseException(name + " opens both a room and an item");
+        return new ItemDefinition(id == null ? name : id, type, name, description, visible, collectable, contains,
+                requires, opensRoom, opensItem, action, altDescription);
+    }
+
+    private static void readStrings(JsonReader in, List<String> strings) throws IOException {
+        in.beginArray();
+        while (in.hasNext())
+            strings.add(in.nextString());
+        in.endArray();
+    }
+
+    private WorldPrototype build() {
+        Map<String, Map<String, String>> directions = new HashMap<>();
+        for (RoomDefinition room : roomDefinitions) {
+            if (rooms.containsKey(room.name()))
+                throw new JsonParseException("Two rooms are named " + room.name());
+            rooms.put(room.name(), new Location(room.name(), room.description(),
+                    new Storage(Math.max(Storage.WEIGHT_UNLIMITED, room.items().size())),
+                    List.copyOf(room.exits().keySet()), room.unlocked()));
+            directions.put(room.name(), room.exits());
+        }
+        for (RoomDefinition room : roomDefinitions)
+            for (String target : room.exits().values())
+                if (!rooms.containsKey(target))
+                    throw new JsonParseException("An exit of " + room.name() + " leads to an unknown room: " + target);
+
+
+        Set<String> path = new HashSet<>();
+        for (ItemDefinition item : itemDefinitions.values())
+            build(item, path);
+
+        Set<String> placed = new HashSet<>();
+        List<Location> world = new ArrayList<>(roomDefinitions.size());
+        for (RoomDefinition room : roomDefinitions) {
+            Location location = rooms.get(room.name());
+            for (String id : room.items()) {
+                if (!placed.add(id))
+                    throw new JsonParseException(id + " is placed twice");
+                location.getStorage().add(item(id, room.name()));
+            }
+            world.add(location);
+        }
+        return new WorldPrototype(world, directions);
+    }
+
+    /**
+     * Builds an item after the items it refers to
+     */
+    private Item build(ItemDefinition definition, Set<String> path) {
+        Item built = items.get(definition.id());
+        if (built != null)
+            return built;
+        if (!path.add(definition.id()))
+            throw new JsonParseException(definition.id() + " refers to itself through other items");
+        Item item = switch (definition.type()) {
+            case "container" -> new ContainerItem(definition.name(), definition.description(), definition.visible(),
+                    definition.collectable(), definition.contains() == null ? null : reference(definition.contains(), definition, path),
+                    definition.altDescription());
+            case "locked" -> {
+                List<Item> objects = new ArrayList<>(definition.requires().size());
+                for (String id : definition.requires())
+                    objects.add(reference(id, definition, path));
+                Object blocked = null;
+                if (definition.opensRoom() != null) {
+                    blocked = rooms.get(definition.opensRoom());
+                    if (blocked == null)
+                        throw new JsonParseException(definition.id() + " opens an unknown room: " + definition.opensRoom());
+                } else if (definition.opensItem() != null) {
+                    blocked = reference(definition.opensItem(), definition, path);
+                }
+                yield new LockedItem(definition.name(), definition.description(), definition.collectable(),
+                        definition.visible(), objects, blocked, definition.action(), definition.altDescription());
+            }
+            default -> new Item(definition.name(), definition.description(), definition.visible(), definition.collectable());
+        };
+        path.remove(definition.id());
+        items.put(definition.id(), item);
+        return item;
+    }
+
+    private Item reference(String id, ItemDefinition from, Set<String> path) {
+        ItemDefinition definition = itemDefinitions.get(id);
+        if (definition == null)
+            throw new JsonParseException(from.id() + " refers to an unknown item: " + id);
+        return build(definition, path);
+    }
+
+    private Item item(String id, String room) {
+        Item item = items.get(id);
+        if (item == null)
+            throw new JsonParseException(room + " holds an unknown item: " + id);
+        return item;
+    }
+}
@@ -0,0 +1,311 @@
+import java.util.*;
+
+/**
+ * {@code WorldPrototype} is a world built once, whose rooms and items are shared by every game of the world.
+ * The prototype keeps its items in an order where every item comes after the items it refers to, and its
+ * references as indexes, so copying a room or an item never looks anything up.
+ * <p>
+ * A game reads the shared rooms and items, which cannot change, and copies them only to change them: see
+ * {@link GameMap#GameMap(WorldPrototype)}. The rooms are copied by units, a unit being the rooms whose items
+ * refer to each other, so a copied item never refers to an item the game still shares. The objects a game
+ * copies don't get random ids, they are numbered from one random number drawn by the game.
+ *
+ * @see GameMap
+ */
+public class WorldPrototype {
+    private static final int ITEM = 0;
+    private static final int CONTAINER = 1;
+    private static final int LOCKED = 2;
+    private static final int NONE = Integer.MIN_VALUE;
+
+    private static WorldPrototype castle;
+
+    private final Location[] rooms;
+    private final Item[] items;
+    private final int[] kinds;
+    /**
+     * For a container, the index of the item contained; for a locked item, of the item blocked, or
+     * {@code -1 - room} for a room blocked; {@link #NONE} if there is none
+     */
+    private final int[] targets;
+    private final int[][] contents;
+    private final Map<Item, Integer> itemIndex;
+    /**
+     * For every item, a room of its unit, or {@code -1} if no room holds the item or an item referring to it
+     */
+    private final int[] anchors;
+    /**
+     * For every room, the rooms of its unit, the room included
+     */
+    private final int[][] units;
+    private final RoomGraph roomGraph;
+    private final PuzzleGraph puzzleGraph;
+
+    /**
+     * First constructor of the class, for a world whose exits are all names of rooms
+     *
+     * @param rooms the rooms of the world
+     * @throws IllegalArgumentException if an item refers to a room which is not part of the world, items
+     *                                  refer to each other in a cycle, or the locked items cannot be compiled
+     */
+    public WorldPrototype(List<Location> rooms) {
+        this(rooms, Map.of());
+    }
+
+    /**
+     * Second constructor of the class. The rooms and their items are shared from then on: they cannot change,
+     * a game copies them first.
+     *
+     * @param rooms the rooms of the world
+     * @param directions for every room, the name of the room each of its directions leads to
+     * @throws IllegalArgumentException if an item refers to a room which is not part of the world, items
+     *                                  refer to each other in a cycle, or the locked items cannot be compiled
+     * @see PuzzleGraph#compile(List)
+     */
+    public WorldPrototype(List<Location> rooms, Map<String, Map<String, String>> directions) {
+        this.rooms = rooms.toArray(new Location[0]);
+        Map<Location, Integer> roomIndex = new IdentityHashMap<>();
+        for (int i = 0; i < this.rooms.length; i++)
+            roomIndex.put(this.rooms[i], i);
+        roomGraph = RoomGraph.compile(rooms, directions);
+        puzzleGraph = PuzzleGraph.compile(rooms);
+
+        Map<Item, Integer> index = new IdentityHashMap<>();
+        List<Item> ordered = new ArrayList<>();
+        Set<Item> path = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Location room : this.rooms)
+            for (Item item : room.getStorage().getItems())
+                visit(item, index, ordered, path);
+        items = ordered.toArray(new Item[0]);
+
+        kinds = new int[items.length];
+        targets = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] instanceof ContainerItem container) {
+                kinds[i] = CONTAINER;
+                targets[i] = container.getItemContained() == null ? NONE : index.get(container.getItemContained());
+            } else if (items[i] instanceof LockedItem locked) {
+                kinds[i] = LOCKED;
+                if (locked.getItemBlocked() instanceof Location location) {
+                    Integer room = roomIndex.get(location);
+                    if (room == null)
+                        throw new IllegalArgumentException(locked.getName() + " opens a room which is not part of the world");
+                    targets[i] = -1 - room;
+                } else {
+                    targets[i] = locked.getItemBlocked() == null ? NONE : index.get((Item) locked.getItemBlocked());
+                }
+            }
+        }
+
+        contents = new int[this.rooms.length][];
+        for (int i = 0; i < this.rooms.length; i++)
+            contents[i] = this.rooms[i].getStorage().getItems().stream().mapToInt(index::get).toArray();
+        itemIndex = index;
+        anchors = new int[items.length];
+        units = new int[this.rooms.length][];
+        groupUnits();
+
+        for (Location room : this.rooms)
+            room.share();
+        for (Item item : items)
+            item.share();
+    }
+
+    /**
+     * Groups the rooms and the items linked by a storage, a container or a locked item revealing an item, and
+     * keeps the rooms of every group as a unit
+     */
+    private void groupUnits() {
+        int[] parents = new int[rooms.length + items.length];
+        for (int i = 0; i < parents.length; i++)
+            parents[i] = i;
+        for (int room = 0; room < rooms.length; room++)
+            for (int item : contents[room])
+                union(parents, room, rooms.length + item);
+        for (int item = 0; item < items.length; item++)
+            if (kinds[item] != ITEM && targets[item] >= 0)
+                union(parents, rooms.length + item, rooms.length + targets[item]);
+
+        Map<Integer, List<Integer>> groups = new HashMap<>();
+        for (int room = 0; room < rooms.length; room++)
+            groups.computeIfAbsent(find(parents, room), root -> new ArrayList<>()).add(room);
+        for (List<Integer> group : groups.values()) {
+            int[] unit = group.stream().mapToInt(Integer::intValue).toArray();
+            for (int room : unit)
+                units[room] = unit;
+        }
+        for (int item = 0; item < items.length; item++) {
+            List<Integer> group = groups.get(find(parents, rooms.length + item));
+            anchors[item] = group == null ? -1 : group.getFirst();
+        }
+    }
+
+    private static int find(int[] parents, int node) {
+        while (parents[node] != node)
+            node = parents[node] = parents[parents[node]];
+        return node;
+    }
+
+    private static void union(int[] parents, int first, int second) {
+        parents[find(parents, first)] = find(parents, second);
+    }
+
+    /**
+     * Adds an item to the order, after the items it refers to
+     */
+    private static void visit(Item item, Map<Item, Integer> index, List<Item> ordered, Set<Item> path) {
+        if (index.containsKey(item))
+            return;
+        if (!path.add(item))
+            throw new IllegalArgumentException(item.getName() + " refers to itself through other items");
+        if (item instanceof ContainerItem container && container.getItemContained() != null)
+            visit(container.getItemContained(), index, ordered, path);
+        if (item instanceof LockedItem locked) {
+            for (Item object : locked.getObjects())
+                visit(object, index, ordered, path);
+            if (locked.getItemBlocked() instanceof Item blocked)
+                visit(blocked, index, ordered, path);
+        }
+        path.remove(item);
+        index.put(item, ordered.size());
+        ordered.add(item);
+    }
+
+    /**
+     * Returns the prototype of the castle, loaded the first time it is needed
+     *
+     * @return the prototype shared by every new game
+     */
+    public static synchronized WorldPrototype castle() {
+        if (castle == null)
+            castle = WorldLoader.loadResource(WorldLoader.CASTLE);
+        return castle;
+    }
+
+    /**
+     * Returns the number of rooms of the world
+     *
+     * @return the number of rooms
+     */
+    public int rooms() {
+        return rooms.length;
+    }
+
+    /**
+     * Returns the number of items of the world
+     *
+     * @return the number of items
+     */
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * Returns a room of the world, shared by every game
+     *
+     * @param index the index of the room
+     * @return the room
+     */
+    Location room(int index) {
+        return rooms[index];
+    }
+
+    /**
+     * Returns an item of the world, shared by every game
+     *
+     * @param index the index of the item
+     * @return the item
+     */
+    Item item(int index) {
+        return items[index];
+    }
+
+    /**
+     * Returns the index of an item of the world
+     *
+     * @param item an item
+     * @return the index of the item, or {@code -1} if it is not an item of the world
+     */
+    int indexOf(Item item) {
+        Integer index = itemIndex.get(item);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns a room to copy before an item is copied, so that the copy of the item is the one its room holds
+     *
+     * @param item the index of the item
+     * @return the index of a room of the unit of the item, or {@code -1} if the item can be copied alone
+     */
+    int anchor(int item) {
+        return anchors[item];
+    }
+
+    /**
+     * Returns the rooms copied together with a room
+     *
+     * @param room the index of the room
+     * @return the indexes of the rooms of its unit, the room included
+     */
+    int[] unit(int room) {
+        return units[room];
+    }
+
+    /**
+     * Returns the graph of the rooms of the world
+     *
+     * @return the graph shared by the copies of the world
+     */
+    public RoomGraph getRoomGraph() {
+        return roomGraph;
+    }
+
+    /**
+     * Returns the graph of the locked items of the world
+     *
+     * @return the graph shared by the copies of the world
+     */
+    public PuzzleGraph getPuzzleGraph() {
+        return puzzleGraph;
+    }
+
+    /**
+     * Copies a room, with the items it holds
+     *
+     * @param index the index of the room
+     * @param map the map of the copy, where the items are copied
+     * @return the copy of the room
+     */
+    Location copyRoom(int index, GameMap map) {
+        Location room = rooms[index];
+        Location copy = new Location(map.id(index), room.getTemplate(), new Storage(room.getStorage().getMaxWeight()),
+                room.isUnlocked());
+        for (int item : contents[index])
+            copy.getStorage().add(map.copy(item));
+        return copy;
+    }
+
+    /**
+     * Copies an item. The item it contains or reveals is copied too. A locked item keeps the room it opens and
+     * the objects it requires shared, it reads them through the state of the puzzles of the game.
+     *
+     * @param index the index of the item
+     * @param map the map of the copy
+     * @return the copy of the item
+     */
+    Item copyItem(int index, GameMap map) {
+        Item item = items[index];
+        UUID id = map.id(rooms.length + index);
+        int target = targets[index];
+        return switch (kinds[index]) {
+            case CONTAINER -> new ContainerItem(id, item.getTemplate(), item.isVisible(), item.isCollectable(),
+                    target == NONE ? null : map.copy(target));
+            case LOCKED -> {
+                Object blocked = target == NONE ? null : target < 0 ? rooms[-1 - target] : map.copy(target);
+                yield new LockedItem(id, item.getTemplate(), item.isVisible(), item.isCollectable(),
+                        ((LockedItem) item).getObjects(), blocked);
+            }
+            default -> new Item(id, item.getTemplate(), item.isVisible(), item.isCollectable());
+        };
+    }
+}
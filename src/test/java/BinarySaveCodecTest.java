@@ -0,0 +1,102 @@
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySaveCodecTest {
+    private final BinarySaveCodec codec = new BinarySaveCodec();
+    private final Gson gson = new GsonBuilder().registerTypeAdapter(Game.class, new Game.GameAdapter()).create();
+    private Game game;
+
+    @BeforeEach
+    void setUp() {
+        game = new Game(new GameMap(), new Player("Bob"), null, false);
+        game.getPlayer().setLocation(game.getMap().get("hall"));
+        game.getPlayer().setLocation(game.getMap().get("kitchen"));
+        game.getPlayer().pick("recipe");
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        Game loaded = codec.decode(codec.encode(game));
+
+        assertEquals("kitchen", loaded.getPlayer().getLocation().getName());
+        assertSame(loaded.getMap().get("kitchen"), loaded.getPlayer().getLocation());
+        ContainerItem cookbook = (ContainerItem) loaded.getMap().get("kitchen").getStorage().getItem("cookbook");
+        assertSame(loaded.getMap().get("kitchen").getStorage().getItem("recipe"), cookbook.getItemContained());
+        assertEquals(gson.toJson(game), gson.toJson(loaded));
+    }
+
+    @Test
+    void testBinaryIsSmallerThanJson() {
+        byte[] binary = codec.encode(game);
+        byte[] json = gson.toJson(game).getBytes(StandardCharsets.UTF_8);
+        assertTrue(binary.length * 4 < json.length, binary.length + " bytes vs " + json.length);
+    }
+
+    @Test
+    void testFormatIsDetected() {
+        assertTrue(BinarySaveCodec.isBinary(codec.encode(game)));
+        assertFalse(BinarySaveCodec.isBinary(gson.toJson(game).getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IOException.class, () -> codec.decode("{}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testBucketLoadsBothFormats() {
+        S3bucket bucket = new S3bucket(new MemorySaveStore(), null);
+        bucket.saveGameState("Bob.json", game);
+        bucket.setSaveFormat(S3bucket.SaveFormat.BINARY);
+        bucket.saveGameState("Bob.bin", game);
+
+        Game fromJson = bucket.loadGameState("Bob.json", Game.class);
+        Game fromBinary = bucket.loadGameState("Bob.bin", Game.class);
+        assertEquals(gson.toJson(fromJson), gson.toJson(fromBinary));
+    }
+
+    @Test
+    void testTextsMissingFromTheDictionaryAreKeptInTheSave() throws IOException {
+        BinarySaveCodec withoutDictionary = new BinarySaveCodec(List.of());
+        Game loaded = withoutDictionary.decode(withoutDictionary.encode(game));
+        assertEquals(gson.toJson(game), gson.toJson(loaded));
+    }
+
+    @Test
+    void testSaveLoadsAfterTextsAreAdded() throws IOException {
+        List<String> texts = dictionary();
+        BinarySaveCodec older = new BinarySaveCodec(texts.subList(0, texts.size() / 2));
+        List<String> appended = new ArrayList<>(texts);
+        appended.add("A description added by a later version of the castle");
+        BinarySaveCodec newer = new BinarySaveCodec(appended);
+
+        Game loaded = newer.decode(older.encode(game));
+        assertEquals(gson.toJson(game), gson.toJson(loaded));
+    }
+
+    @Test
+    void testSaveIsRejectedWhenTheDictionaryChanged() {
+        List<String> texts = dictionary();
+        List<String> changed = new ArrayList<>(texts);
+        changed.set(0, "a text edited in place");
+        byte[] save = new BinarySaveCodec(texts).encode(game);
+        assertThrows(IOException.class, () -> new BinarySaveCodec(changed).decode(save));
+    }
+
+    private static List<String> dictionary() {
+        try (Reader reader = new InputStreamReader(
+                BinarySaveCodec.class.getResourceAsStream(BinarySaveCodec.DICTIONARY), StandardCharsets.UTF_8)) {
+            return Arrays.asList(new Gson().fromJson(reader, String[].class));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
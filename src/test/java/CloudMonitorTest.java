@@ -0,0 +1,45 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CloudMonitorTest {
+
+    @Test
+    void testStateIsCachedBetweenProbes() {
+        AtomicInteger probes = new AtomicInteger();
+        CloudMonitor monitor = new CloudMonitor(() -> {
+            probes.incrementAndGet();
+            return true;
+        }, 3600);
+        monitor.start();
+        for (int i = 0; i < 10; i++)
+            assertTrue(monitor.isOnline());
+        assertEquals(1, probes.get());
+        monitor.stop();
+    }
+
+    @Test
+    void testProbeUpdatesState() {
+        AtomicBoolean reachable = new AtomicBoolean(true);
+        CloudMonitor monitor = new CloudMonitor(reachable::get, 3600);
+        monitor.start();
+        assertTrue(monitor.isOnline());
+        reachable.set(false);
+        assertFalse(monitor.probeNow());
+        assertFalse(monitor.isOnline());
+        monitor.stop();
+    }
+
+    @Test
+    void testFailingProbeMeansOffline() {
+        CloudMonitor monitor = new CloudMonitor(() -> {
+            throw new IllegalStateException("no network");
+        }, 3600);
+        monitor.start();
+        assertFalse(monitor.isOnline());
+        monitor.stop();
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code CommandBenchmark} times {@link CommandReader#read} on a headless session. A script of commands is played
+ * over and over; every script leaves the game as it found it, so the rounds all do the same work:
+ * <ul>
+ *     <li>{@code mixed}: verbs and aliases of every kind, moves, looks and items that are not there</li>
+ *     <li>{@code misses}: unknown verbs and suffixes, where the time is mostly the lookup of the command</li>
+ * </ul>
+ * It only uses the headless session, so it also runs on the trees before the dispatch table. It is part of the
+ * test sources and is run with the test classpath:
+ * <pre>
+ * java CommandBenchmark [rounds] [mixed|misses]
+ * </pre>
+ */
+public class CommandBenchmark {
+    private static final Map<String, List<String>> SCRIPTS = Map.of(
+            "mixed", List.of("look around", "lk", "status", "st", "help", "interact note", "go east", "go back",
+                    "pk spoon", "dp spoon", "ic fridge", "use nothing"),
+            "misses", List.of("dance", "look up", "goo", "pick", "exit now", "sv game", "jump around", "st please"));
+
+    /**
+     * Outcome of a run
+     *
+     * @param script the name of the script played
+     * @param commands the number of commands read
+     * @param nanosPerCommand the mean time of a command
+     */
+    public record Result(String script, int commands, long nanosPerCommand) {
+        @Override
+        public String toString() {
+            return String.format("%-6s %8d commands: %d ns per command", script, commands, nanosPerCommand);
+        }
+    }
+
+    /**
+     * Plays a script of commands
+     *
+     * @param rounds the number of times the script is played
+     * @param script {@code mixed} or {@code misses}
+     * @return the mean time of a command
+     */
+    public Result run(int rounds, String script) {
+        List<String> commands = SCRIPTS.get(script);
+        if (commands == null)
+            throw new IllegalArgumentException("Unknown script " + script);
+        HeadlessOutput session = new HeadlessOutput("benchmark");
+        int length = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++)
+            for (String command : commands) {
+                session.read(command);
+                length += session.drain().length();
+            }
+        long elapsed = System.nanoTime() - start;
+        if (length == 0)
+            throw new IllegalStateException("The commands answered nothing");
+        int count = rounds * commands.size();
+        return new Result(script, count, elapsed / count);
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args the number of rounds, then the script, both optional
+     */
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        List<String> scripts = args.length > 1 ? List.of(args[1]) : List.of("mixed", "misses");
+        CommandBenchmark benchmark = new CommandBenchmark();
+        for (String script : scripts)
+            benchmark.run(rounds / 10, script);   // warm up
+        for (String script : scripts)
+            System.out.println(benchmark.run(rounds, script));
+    }
+}
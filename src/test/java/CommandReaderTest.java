@@ -54,6 +54,22 @@ public class CommandReaderTest
         assertEquals("door",game.lastItemUsed.getName());
     }
 
+    @Test
+    public void testReadAlias()
+    {
+        commandReader.read("pk candlestick");
+        assertEquals("pk",commandReader.lastCommandUsed);
+        assertTrue(game.getPlayer().getInventory().hasItem("candlestick"));
+    }
+
+    @Test
+    public void testReadUnknownSuffix()
+    {
+        commandReader.read("exit now");
+        assertEquals("",commandReader.lastCommandUsed);
+        assertEquals("Command not found, help will show a list of all the commands",controller.getLastMessage());
+    }
+
     @Test
     public void testUpdateLastCommand()
     {
@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class CommandTokensTest {
+
+    @Test
+    void testParse() {
+        CommandTokens tokens = new CommandTokens();
+        tokens.parse("  Look Around ");
+        assertTrue(tokens.hasItem());
+        assertTrue(tokens.restEquals("around"));
+        assertTrue(tokens.lineEquals("look around"));
+        assertEquals("look around", tokens.line());
+
+        tokens.parse("help");
+        assertFalse(tokens.hasItem());
+        assertNull(tokens.item(new WordTable<>()));
+        assertTrue(tokens.restEquals(""));
+    }
+
+    @Test
+    void testItemIsTheSecondWord() {
+        CommandTokens tokens = new CommandTokens();
+        tokens.parse("pick Ghost now");
+        assertEquals("ghost", tokens.item(new WordTable<>()));
+        assertTrue(tokens.restEquals("ghost now"));
+
+        tokens.parse("pick  ghost");
+        assertEquals("", tokens.item(new WordTable<>()));
+    }
+
+    @Test
+    void testWordsOfTheWorldAreShared() {
+        Item lantern = new Item("Lantern", "A lantern", true, true);
+        Location hall = new Location("hall", "A hall", new Storage(), List.of("north"), true);
+        hall.getStorage().add(lantern);
+        WordTable<String> vocabulary = RoomGraph.compile(List.of(hall), Map.of()).vocabulary();
+        CommandTokens tokens = new CommandTokens();
+        tokens.parse("pick LANTERN");
+        assertSame(lantern.getName(), tokens.item(vocabulary));
+        tokens.parse("go North");
+        assertSame(hall.getExit().get(0), tokens.item(vocabulary));
+        tokens.parse("go back");
+        assertSame(tokens.item(vocabulary), tokens.item(vocabulary));
+    }
+
+    @Test
+    void testNewItemsDoNotGrowTheVocabulary() {
+        WordTable<String> vocabulary = WorldPrototype.castle().getRoomGraph().vocabulary();
+        int size = vocabulary.size();
+        new Item("Unknown-" + System.nanoTime(), "Made after the world", true, true);
+        assertEquals(size, vocabulary.size());
+    }
+
+    @Test
+    void testReadAllocatesNothing() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        GameOutput quiet = new GameOutput() {
+            @Override public void show(String text) {}
+            @Override public void update(String text) {}
+            @Override public void showImage(String text) {}
+            @Override public void restart() {}
+            @Override public void save() {}
+            @Override public void close() {}
+        };
+        CommandReader reader = new CommandReader(quiet, new Game(quiet, "Bob"));
+        // every command answers with a constant text, so nothing has to be allocated
+        String[] commands = {"help", "  HELP ", "go north", "Go East", "go back", "foo bar", "pick", "exit now"};
+
+        for (int i = 0; i < 50_000; i++)
+            for (String command : commands)
+                reader.read(command);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 10_000; i++)
+            for (String command : commands)
+                reader.read(command);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // some slack for a late compilation, far from one object per command
+        assertTrue(allocated < 10_000, allocated + " bytes allocated by 80000 commands");
+    }
+}
@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialStoreTest {
+    @TempDir
+    Path dir;
+
+    private static String hash(String value) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
+    @Test
+    void testValidCredentials() throws Exception {
+        Path file = dir.resolve("config.dat");
+        Files.writeString(file, "access\nsecret\nbucket\n");
+        CredentialStore store = new CredentialStore(file,
+                Map.of("key", hash("access"), "secretKey", hash("secret"), "bucketName", hash("bucket")));
+        assertTrue(store.isAvailable());
+        assertEquals("access", store.get("key"));
+        assertEquals("secret", store.get("secretKey"));
+        assertEquals("bucket", store.get("bucketName"));
+        assertNull(store.get("unknown"));
+    }
+
+    @Test
+    void testInvalidCredentialIsRejected() throws Exception {
+        Path file = dir.resolve("config.dat");
+        Files.writeString(file, "access\nwrong\n");
+        CredentialStore store = new CredentialStore(file,
+                Map.of("key", hash("access"), "secretKey", hash("secret"), "bucketName", hash("bucket")));
+        assertEquals("access", store.get("key"));
+        assertNull(store.get("secretKey"));
+        assertNull(store.get("bucketName"));
+    }
+
+    @Test
+    void testModifiedFileIsReadAgain() throws Exception {
+        Path file = dir.resolve("config.dat");
+        Files.writeString(file, "access\nwrong\n");
+        CredentialStore store = new CredentialStore(file,
+                Map.of("key", hash("access"), "secretKey", hash("secret"), "bucketName", hash("bucket")), 0);
+        assertNull(store.get("secretKey"));
+        long version = store.getVersion();
+
+        Files.writeString(file, "access\nsecret\nbucket\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 60_000));
+        assertEquals("secret", store.get("secretKey"));
+        assertEquals("bucket", store.get("bucketName"));
+        assertEquals(version + 1, store.getVersion());
+        assertEquals(version + 1, store.getVersion());
+    }
+
+    @Test
+    void testMissingFile() {
+        CredentialStore store = new CredentialStore(dir.resolve("missing.dat"), Map.of());
+        assertFalse(store.isAvailable());
+        assertNull(store.get("key"));
+    }
+}
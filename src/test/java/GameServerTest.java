@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameServerTest {
+    private GameServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new GameServer(0, new S3bucket(new MemorySaveStore(), null));
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void testPlayOverTheSocket() throws IOException {
+        try (Socket socket = new Socket("localhost", server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write("Bob\ngo east\n");
+            out.flush();
+            assertTrue(readResponse(in).startsWith("Welcome to my castle Bob"));
+            assertTrue(readResponse(in).startsWith("You are now in the kitchen"));
+
+            out.write("exit\nexit\n");
+            out.flush();
+            assertTrue(readResponse(in).startsWith("Save game?"));
+            readResponse(in);
+            assertNull(in.readLine());
+        }
+    }
+
+    @Test
+    void testLongLineClosesTheConnection() throws IOException {
+        try (Socket socket = new Socket("localhost", server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write("Bob\n");
+            out.flush();
+            assertTrue(readResponse(in).startsWith("Welcome to my castle Bob"));
+            out.write("a".repeat(SessionGateway.MAX_LINE_LENGTH + 1));
+            out.flush();
+            assertNull(in.readLine());
+        }
+    }
+
+    @Test
+    void testManyPlayersAtOnce() throws InterruptedException {
+        LoadGenerator.Result result = new LoadGenerator("localhost", server.getPort()).run(200, 2, 100);
+        assertEquals(0, result.failures());
+        assertEquals(200 * 2 * 6, result.commands());
+    }
+
+    private static String readResponse(BufferedReader in) throws IOException {
+        StringBuilder text = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(GameServer.END_OF_RESPONSE))
+            text.append(line).append('\n');
+        return text.toString();
+    }
+}
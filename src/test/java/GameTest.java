@@ -1,3 +1,5 @@
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -21,7 +23,7 @@ class GameTest {
     @Test
     void testConstructor(){
         Game gameTest = new Game(controller,"test");
-        assertNotNull(gameTest.controller);
+        assertNotNull(gameTest.output);
         assertNotNull(gameTest.getMap());
         assertNotNull(gameTest.getPlayer());
     }
@@ -170,4 +172,37 @@ class GameTest {
         game.victory();
         assertTrue(game.isWinCondition());
     }
+
+    @Test
+    void testSaveSizeDoesNotRepeatRooms() {
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(Game.class, new Game.GameAdapter())
+                .create();
+        String before = gson.toJson(game);
+        for (int i = 0; i < 50; i++) {
+            game.go("east");
+            game.go("west");
+        }
+        String after = gson.toJson(game);
+        int descriptions = after.split("You are now in the kitchen", -1).length - 1;
+        assertEquals(1, descriptions);
+        assertEquals(before.length(), after.length());
+    }
+
+    @Test
+    void testSaveRoundTrip() {
+        game.go("east");
+        game.getPlayer().pick("recipe");
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(Game.class, new Game.GameAdapter())
+                .create();
+        Game loaded = gson.fromJson(gson.toJson(game), Game.class);
+
+        assertEquals("kitchen", loaded.getPlayer().getLocation().getName());
+        assertSame(loaded.getMap().get("kitchen"), loaded.getPlayer().getLocation());
+        assertEquals(game.getPlayer().getLastLocations().size(), loaded.getPlayer().getLastLocations().size());
+        ContainerItem cookbook = (ContainerItem) loaded.getMap().get("kitchen").getStorage().getItem("cookbook");
+        assertSame(loaded.getMap().get("kitchen").getStorage().getItem("recipe"), cookbook.getItemContained());
+        assertEquals(gson.toJson(game), gson.toJson(loaded));
+    }
 }
@@ -0,0 +1,50 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeadlessOutputTest {
+
+    @Test
+    void testCommandsWriteToTheBuffer() {
+        HeadlessOutput session = new HeadlessOutput("Bob");
+        assertTrue(session.drain().startsWith("Welcome to my castle Bob"));
+        assertEquals("", session.drain());
+
+        session.read("go east");
+        assertTrue(session.drain().startsWith("You are now in the kitchen"));
+        assertEquals("kitchen", session.getImage());
+    }
+
+    @Test
+    void testRestartStartsANewGame() {
+        HeadlessOutput session = new HeadlessOutput("Bob");
+        Game first = session.getGame();
+        session.read("go east");
+        session.read("restart");
+        assertNotSame(first, session.getGame());
+        assertEquals("hall", session.getGame().getPlayer().getLocation().getName());
+    }
+
+    @Test
+    void testSaveAndExit() {
+        HeadlessOutput session = new HeadlessOutput("Bob", new S3bucket(new MemorySaveStore(), null));
+        session.read("exit");
+        assertFalse(session.isClosed());
+        session.read("save");
+        assertTrue(session.drain().endsWith("Game state saved locally due to no internet connection."));
+        assertTrue(session.isClosed());
+    }
+
+    @Test
+    void testSameNameSavesUnderDifferentKeys() {
+        MemorySaveStore store = new MemorySaveStore();
+        HeadlessOutput first = new HeadlessOutput("Bob", new S3bucket(store, null));
+        HeadlessOutput second = new HeadlessOutput("Bob", new S3bucket(store, null));
+        first.save();
+        second.save();
+        assertNotEquals(first.getSaveKey(), second.getSaveKey());
+        assertNotNull(store.get(first.getSaveKey()));
+        assertNotNull(store.get(second.getSaveKey()));
+        assertTrue(new HeadlessOutput("../Bob").getSaveKey().startsWith("___Bob-"));
+    }
+}
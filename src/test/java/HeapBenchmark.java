@@ -0,0 +1,92 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code HeapBenchmark} measures the heap kept by live games. It creates many games, or many headless sessions
+ * with their command reader and buffer, keeps them all reachable and divides the growth of the used heap, after
+ * a few garbage collections, by their number. It is part of the test sources and is run with the test classpath:
+ * <pre>
+ * java HeapBenchmark [count] [games|sessions|walked|played]
+ * </pre>
+ * {@code walked} sessions go through every room, which they only read, so they still share the castle;
+ * {@code played} sessions copy every room first, as a save does, so each of them holds its own copy.
+ */
+public class HeapBenchmark {
+
+    /**
+     * Outcome of a run
+     *
+     * @param kind what was kept alive
+     * @param count the number of games or sessions kept alive
+     * @param bytesPerGame the growth of the used heap divided by the count
+     */
+    public record Result(String kind, int count, long bytesPerGame) {
+        @Override
+        public String toString() {
+            return String.format("%7d %s: %d bytes each", count, kind, bytesPerGame);
+        }
+    }
+
+    /**
+     * Keeps games alive and measures the heap they use
+     *
+     * @param count the number of games or sessions
+     * @param kind {@code games}, {@code sessions}, {@code walked} or {@code played}
+     * @return the heap used by each of them
+     */
+    public Result run(int count, String kind) {
+        List<Object> alive = new ArrayList<>(count);
+        long before = usedHeap();
+        for (int i = 0; i < count; i++)
+            alive.add(create(kind, "player" + i));
+        long after = usedHeap();
+        if (alive.size() != count)
+            throw new IllegalStateException("Games were lost");
+        return new Result(kind, count, (after - before) / count);
+    }
+
+    private static Object create(String kind, String name) {
+        switch (kind) {
+            case "games":
+                return new Game((GameOutput) null, name);
+            case "sessions":
+                return new HeadlessOutput(name);
+            case "walked":
+                HeadlessOutput walker = new HeadlessOutput(name);
+                Game game = walker.getGame();
+                RoomGraph rooms = game.getMap().getRoomGraph();
+                for (int i = 0; i < rooms.size(); i++)
+                    game.getPlayer().setLocation(game.getMap().get(rooms.name(i)));
+                return walker;
+            case "played":
+                HeadlessOutput session = new HeadlessOutput(name);
+                session.getGame().getMap().getRooms();
+                return session;
+            default:
+                throw new IllegalArgumentException("Unknown kind " + kind);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args the number of games, then what to keep alive, both optional
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        HeapBenchmark benchmark = new HeapBenchmark();
+        benchmark.run(100, "played");   // warm up, the shared world is built here
+        if (args.length > 1)
+            System.out.println(benchmark.run(count, args[1]));
+        else
+            for (String kind : List.of("games", "sessions", "walked", "played"))
+                System.out.println(benchmark.run(count, kind));
+    }
+}
@@ -0,0 +1,195 @@
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code LoadGenerator} plays many games at the same time against a {@link GameServer}.
+ * Every simulated player connects, optionally stays idle, then sends a short walk through the castle
+ * a number of times and leaves. When the commands are pipelined, a whole walk is sent at once and the responses
+ * are read afterwards. It is part of the test sources and can be run, with the test classpath, against a local
+ * {@link GameServer} or {@link SessionGateway}:
+ * <pre>
+ * java LoadGenerator [host] [port] [players] [rounds] [idleSeconds] [pipelined]
+ * </pre>
+ */
+public class LoadGenerator {
+    private static final List<String> WALK = List.of("look", "go east", "status", "go back", "go west", "go back");
+
+    /**
+     * Outcome of a run
+     *
+     * @param players the number of simulated players
+     * @param commands the number of commands answered
+     * @param failures the number of players that could not finish
+     * @param elapsedMillis the duration of the run
+     * @param latencyMicros the response time of every command, sorted
+     */
+    public record Result(int players, int commands, int failures, long elapsedMillis, long[] latencyMicros) {
+        /**
+         * Returns the number of commands answered per second
+         *
+         * @return the throughput of the run
+         */
+        public double commandsPerSecond() {
+            return commands * 1000.0 / Math.max(1, elapsedMillis);
+        }
+
+        /**
+         * Returns a percentile of the response time
+         *
+         * @param percentile the percentile, between 0 and 100
+         * @return the response time, in microseconds
+         */
+        public long latencyPercentile(double percentile) {
+            if (latencyMicros.length == 0)
+                return 0;
+            int index = (int) Math.ceil(percentile / 100 * latencyMicros.length) - 1;
+            return latencyMicros[Math.max(0, Math.min(index, latencyMicros.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d players, %d commands in %d ms (%.0f commands/s), p50 %d us, p99 %d us, %d failures",
+                    players, commands, elapsedMillis, commandsPerSecond(), latencyPercentile(50),
+                    latencyPercentile(99), failures);
+        }
+    }
+
+    private final String host;
+    private final int port;
+
+    /**
+     * Constructor of the class
+     *
+     * @param host the host of the server
+     * @param port the port of the server
+     */
+    public LoadGenerator(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Runs the simulated players, each one on its own virtual thread, and waits for all of them.
+     * Every player waits for the response of a command before sending the next one.
+     *
+     * @param players the number of players
+     * @param rounds how many times every player walks through the castle
+     * @param idleMillis how long every player stays connected before playing, once all of them are connected
+     * @return the outcome of the run
+     * @throws InterruptedException if interrupted while waiting for the players
+     */
+    public Result run(int players, int rounds, long idleMillis) throws InterruptedException {
+        return run(players, rounds, idleMillis, false);
+    }
+
+    /**
+     * Runs the simulated players, each one on its own virtual thread, and waits for all of them
+     *
+     * @param players the number of players
+     * @param rounds how many times every player walks through the castle
+     * @param idleMillis how long every player stays connected before playing, once all of them are connected
+     * @param pipelined if every walk is sent at once, the latency of a command being then the time of the
+     *                  walk divided by its number of commands
+     * @return the outcome of the run
+     * @throws InterruptedException if interrupted while waiting for the players
+     */
+    public Result run(int players, int rounds, long idleMillis, boolean pipelined) throws InterruptedException {
+        CountDownLatch connected = new CountDownLatch(players);
+        AtomicInteger failures = new AtomicInteger();
+        List<long[]> latencies = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < players; i++) {
+            long[] latency = new long[rounds * WALK.size()];
+            latencies.add(latency);
+            String name = "player" + i;
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    play(name, rounds, latency, connected, idleMillis, pipelined);
+                } catch (IOException | InterruptedException e) {
+                    failures.incrementAndGet();
+                    connected.countDown();
+                }
+            }));
+        }
+        for (Thread thread : threads)
+            thread.join();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).filter(l -> l > 0).sorted().toArray();
+        return new Result(players, all.length, failures.get(), elapsed, all);
+    }
+
+    private void play(String name, int rounds, long[] latency, CountDownLatch connected, long idleMillis,
+                      boolean pipelined) throws IOException, InterruptedException {
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            send(out, name);
+            readResponse(in);
+            connected.countDown();
+            if (idleMillis > 0) {
+                connected.await();
+                Thread.sleep(idleMillis);
+            }
+            int n = 0;
+            for (int round = 0; round < rounds; round++) {
+                if (pipelined) {
+                    long start = System.nanoTime();
+                    send(out, String.join("\n", WALK));
+                    for (int i = 0; i < WALK.size(); i++)
+                        readResponse(in);
+                    long each = Math.max(1, (System.nanoTime() - start) / 1000 / WALK.size());
+                    for (int i = 0; i < WALK.size(); i++)
+                        latency[n++] = each;
+                    continue;
+                }
+                for (String command : WALK) {
+                    long start = System.nanoTime();
+                    send(out, command);
+                    readResponse(in);
+                    latency[n++] = Math.max(1, (System.nanoTime() - start) / 1000);
+                }
+            }
+            send(out, "exit");
+            readResponse(in);
+            send(out, "exit");
+        }
+    }
+
+    private static void send(Writer out, String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+    }
+
+    private static void readResponse(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null)
+            if (line.equals(GameServer.END_OF_RESPONSE))
+                return;
+        throw new EOFException("Connection closed by the server");
+    }
+
+    /**
+     * Runs the load generator from the command line
+     *
+     * @param args host, port, players, rounds, idle seconds and {@code pipelined}, all optional
+     * @throws InterruptedException if interrupted while waiting for the players
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+        int players = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        long idleMillis = args.length > 4 ? Long.parseLong(args[4]) * 1000 : 0;
+        boolean pipelined = args.length > 5 && args[5].equals("pipelined");
+        System.out.println(new LoadGenerator(host, port).run(players, rounds, idleMillis, pipelined));
+    }
+}
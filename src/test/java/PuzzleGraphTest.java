@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PuzzleGraphTest {
+    private static final Item KEY = new Item("key", "description", true, true);
+
+    @Test
+    void testCastle() {
+        PuzzleGraph graph = PuzzleGraph.castle();
+        assertEquals(6, graph.size());
+        assertEquals("machine", graph.unlocks("computer"));
+        assertEquals("acid", graph.unlocks("machine"));
+        assertEquals(List.of("machine", "gate"), graph.dependents("computer"));
+        assertEquals(List.of(), graph.dependents("door"));
+        assertEquals(List.of("key", "key"), graph.node("door").requirements());
+    }
+
+    @Test
+    void testGamesShareTheGraph() {
+        Game first = new Game(null, "first");
+        Game second = new Game(null, "second");
+        LockedItem door = first.getMap().own((LockedItem) first.getMap().get("hall").getStorage().getItem("door"));
+
+        assertEquals("key used successfully", door.unlockItem(KEY));
+        assertEquals(1, door.objectsSize());
+        assertEquals(1, door.getObjects().size());
+        assertEquals(2, ((LockedItem) second.getMap().get("hall").getStorage().getItem("door")).objectsSize());
+
+        assertTrue(door.unlockItem(KEY).startsWith("key used successfully\n"));
+        assertNull(door.unlockItem(KEY));
+        assertEquals(0, door.getObjects().size());
+        assertTrue(first.getMap().get("lab").isUnlocked());
+        assertFalse(second.getMap().get("lab").isUnlocked());
+    }
+
+    @Test
+    void testUnlockReachesTheItemsLeftOpen() {
+        Item acid = new Item("acid", "description", true, false);
+        LockedItem machine = new LockedItem("machine", "description", false, false, new ArrayList<>(), acid, "action", "alt");
+        LockedItem computer = new LockedItem("computer", "description", false, true,
+                new ArrayList<>(List.of(new Item("recipe", "description", true, true))), machine, "action", "alt");
+        PuzzleState state = PuzzleState.attach(List.of(room(computer)));
+
+        assertEquals(List.of("computer"), state.blocked());
+        assertNotNull(computer.unlockItem(new Item("recipe", "description", true, true)));
+        assertTrue(machine.isVisible());
+        assertTrue(acid.isVisible());
+        assertTrue(state.isUnlocked("computer"));
+        assertEquals(List.of(), state.blocked());
+    }
+
+    @Test
+    void testCycleIsRejected() {
+        Item a = new Item("a", "description", true, false);
+        Item b = new Item("b", "description", true, false);
+        LockedItem first = new LockedItem("first", "description", false, true, new ArrayList<>(List.of(a)), b, "", "");
+        LockedItem second = new LockedItem("second", "description", false, true, new ArrayList<>(List.of(b)), a, "", "");
+        assertThrows(IllegalArgumentException.class, () -> PuzzleGraph.compile(List.of(room(first, second))));
+    }
+
+    private static Location room(Item... items) {
+        Storage storage = new Storage();
+        for (Item item : items)
+            storage.add(item);
+        return new Location("room", "description", storage, null, true);
+    }
+}
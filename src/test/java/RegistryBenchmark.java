@@ -0,0 +1,117 @@
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@code RegistryBenchmark} loads the rooms of a few castles on many threads at once, every loader sharing the
+ * same {@link Registry}. Every room is loaded by every thread, so the loaders keep racing on the same ids.
+ * It counts the loads per second and checks that every load of a room returned the same instance. It is part of
+ * the test sources and is run with the test classpath:
+ * <pre>
+ * java RegistryBenchmark [loads] [threads...]
+ * </pre>
+ */
+public class RegistryBenchmark {
+    private static final int CASTLES = 4;
+
+    /**
+     * Outcome of a run
+     *
+     * @param threads the number of loaders
+     * @param loads the number of rooms loaded
+     * @param duplicates the number of loads that returned another instance than the first load of the room
+     * @param elapsedMillis the duration of the run
+     */
+    public record Result(int threads, int loads, int duplicates, long elapsedMillis) {
+        /**
+         * Returns the number of rooms loaded per second
+         *
+         * @return the throughput of the run
+         */
+        public double loadsPerSecond() {
+            return loads * 1000.0 / Math.max(1, elapsedMillis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%3d threads: %8.0f loads/s, %d duplicates", threads, loadsPerSecond(), duplicates);
+        }
+    }
+
+    /**
+     * Loads rooms on many threads sharing one registry
+     *
+     * @param loads the number of rooms to load, shared by the threads
+     * @param threads the number of loaders
+     * @return the throughput and the number of duplicated rooms
+     * @throws InterruptedException if the run is interrupted
+     */
+    public Result run(int loads, int threads) throws InterruptedException {
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(Item.class, new Item.ItemSerializer())
+                .registerTypeAdapter(Location.class, new Location.LocationSerializer())
+                .create();
+        List<String> rooms = new ArrayList<>();
+        for (int i = 0; i < CASTLES; i++)
+            for (Location room : new GameMap().getRooms())
+                rooms.add(gson.toJson(room, Location.class));
+
+        Registry registry = new Registry();
+        Gson loader = new GsonBuilder()
+                .registerTypeAdapter(Item.class, new Item.ItemDeserializer(registry))
+                .registerTypeAdapter(Location.class, new Location.LocationDeserializer(registry))
+                .create();
+        AtomicReferenceArray<Location> loaded = new AtomicReferenceArray<>(rooms.size());
+        AtomicInteger duplicates = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> loaders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            loaders.add(executor.submit(() -> {
+                start.await();
+                for (int i = first; i < loads; i += threads) {
+                    int room = i % rooms.size();
+                    Location location = loader.fromJson(rooms.get(room), Location.class);
+                    if (!loaded.compareAndSet(room, null, location) && loaded.get(room) != location)
+                        duplicates.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        try {
+            for (Future<?> result : loaders)
+                result.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A loader failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        long elapsed = (System.nanoTime() - begin) / 1_000_000;
+        return new Result(threads, loads, duplicates.get(), elapsed);
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args the number of loads, then the numbers of threads, all optional
+     * @throws InterruptedException if the run is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int loads = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int[] threads = args.length > 1 ? new int[args.length - 1] : new int[]{1, 2, 4, 8, 16, 32, 64};
+        for (int i = 1; i < args.length; i++)
+            threads[i - 1] = Integer.parseInt(args[i]);
+        RegistryBenchmark benchmark = new RegistryBenchmark();
+        benchmark.run(loads, threads[0]);   // warm up
+        for (int count : threads)
+            System.out.println(benchmark.run(loads, count));
+    }
+}
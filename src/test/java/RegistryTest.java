@@ -0,0 +1,104 @@
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistryTest {
+
+    @Test
+    void testSessionsAreIndependent() {
+        Registry first = new Registry();
+        Registry second = new Registry();
+        Item item = new Item("key", "A key", true, true);
+        first.registerItem(item);
+
+        assertSame(item, first.getItem(item.getId()));
+        assertNull(second.getItem(item.getId()));
+        assertEquals(1, first.size());
+        assertEquals(0, second.size());
+    }
+
+    @Test
+    void testLiveRegistryKnowsObjectsInUse() {
+        Location location = new Location("room", "A room", new Storage(), List.of(), true);
+        Item item = new Item("key", "A key", true, true);
+
+        assertSame(location, Registry.live().getLoc(location.getId()));
+        assertSame(item, Registry.live().getItem(item.getId()));
+    }
+
+    @Test
+    void testItemIsRegisteredOnceItsIdIsHandedOut() {
+        Item item = new Item("key", "A key", true, true);
+        Item copy = new Item(item.getId(), "key", "A key", true, true);
+
+        assertSame(item, Registry.live().getItem(item.getId()));
+        assertTrue(item.isSameAs(copy));
+        assertFalse(item.isSameAs(new Item("key", "A key", true, true)));
+    }
+
+    @Test
+    void testLiveRegistryReleasesFinishedGames() throws InterruptedException {
+        UUID id = new Item("key", "A key", true, true).getId();
+        for (int i = 0; i < 100 && Registry.live().getItem(id) != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(Registry.live().getItem(id));
+    }
+
+    @Test
+    void testConcurrentGetOrCreateCreatesOnce() throws Exception {
+        Registry registry = new Registry();
+        UUID id = UUID.randomUUID();
+        AtomicInteger created = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Item>> results = new ArrayList<>();
+        for (int i = 0; i < 64; i++)
+            results.add(executor.submit(() -> {
+                start.await();
+                return registry.getOrCreateItem(id, () -> {
+                    created.incrementAndGet();
+                    return new Item(id, "key", "A key", true, true);
+                });
+            }));
+        start.countDown();
+        Item first = results.getFirst().get();
+        for (Future<Item> result : results)
+            assertSame(first, result.get());
+        executor.shutdown();
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void testConcurrentLoadersShareObjects() throws Exception {
+        Registry registry = new Registry();
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(Item.class, new Item.ItemSerializer())
+                .registerTypeAdapter(Location.class, new Location.LocationSerializer())
+                .create();
+        Gson loader = new GsonBuilder()
+                .registerTypeAdapter(Item.class, new Item.ItemDeserializer(registry))
+                .registerTypeAdapter(Location.class, new Location.LocationDeserializer(registry))
+                .create();
+        String json = gson.toJson(new GameMap().get("kitchen"), Location.class);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Location>> results = new ArrayList<>();
+        for (int i = 0; i < 32; i++)
+            results.add(executor.submit(() -> loader.fromJson(json, Location.class)));
+        Location first = results.getFirst().get();
+        for (Future<Location> result : results)
+            assertSame(first, result.get());
+        executor.shutdown();
+        assertSame(first.getStorage().getItem("cookbook"), registry.getItem(first.getStorage().getItem("cookbook").getId()));
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.*;
+
+/**
+ * {@code RoomGraphBenchmark} builds generated worlds where the rooms form a square grid, every room leading to
+ * its neighbours by the four directions and to the room on its right by name. It times the building of the
+ * world, then a walk through it, where every step lists the directions and follows one of them. It is part of the
+ * test sources and is run with the test classpath:
+ * <pre>
+ * java RoomGraphBenchmark [steps] [rooms...]
+ * </pre>
+ */
+public class RoomGraphBenchmark {
+    private static final String[] DIRECTIONS = {"north", "south", "east", "west"};
+
+    /**
+     * Outcome of a run in one world
+     *
+     * @param rooms the number of rooms of the world
+     * @param buildMillis the time taken to build the world and its graph
+     * @param steps the number of steps of the walk
+     * @param stepNanos the mean time of a step
+     */
+    public record Result(int rooms, long buildMillis, int steps, long stepNanos) {
+        @Override
+        public String toString() {
+            return String.format("%7d rooms: built in %d ms, %d ns per step", rooms, buildMillis, stepNanos);
+        }
+    }
+
+    /**
+     * Builds a grid of rooms
+     *
+     * @param rooms the number of rooms, rounded down to a square
+     * @param directions filled with the rooms the directions lead to
+     * @return the rooms of the world
+     */
+    static List<Location> grid(int rooms, Map<String, Map<String, String>> directions) {
+        int side = Math.max(1, (int) Math.sqrt(rooms));
+        List<Location> grid = new ArrayList<>(side * side);
+        for (int row = 0; row < side; row++)
+            for (int column = 0; column < side; column++) {
+                Map<String, String> ways = new HashMap<>();
+                if (row > 0) ways.put("north", name(row - 1, column));
+                if (row < side - 1) ways.put("south", name(row + 1, column));
+                if (column < side - 1) ways.put("east", name(row, column + 1));
+                if (column > 0) ways.put("west", name(row, column - 1));
+                List<String> exits = new ArrayList<>(ways.keySet());
+                if (column < side - 1)
+                    exits.add(name(row, column + 1));
+                directions.put(name(row, column), ways);
+                grid.add(new Location(name(row, column), "description", new Storage(), exits, true));
+            }
+        return grid;
+    }
+
+    private static String name(int row, int column) {
+        return "room-" + row + "-" + column;
+    }
+
+    /**
+     * Builds a world and walks through it
+     *
+     * @param rooms the number of rooms of the world
+     * @param steps the number of steps of the walk
+     * @return the time of the build and of a step
+     */
+    public Result run(int rooms, int steps) {
+        long start = System.nanoTime();
+        Map<String, Map<String, String>> directions = new HashMap<>();
+        GameMap map = new GameMap(new WorldPrototype(grid(rooms, directions), directions));
+        long built = System.nanoTime();
+
+        Random random = new Random(42);
+        Location location = map.get(name(0, 0));
+        int length = 0;
+        long walk = System.nanoTime();
+        for (int i = 0; i < steps; i++) {
+            length += map.printDirections(location).length();
+            Location next = map.getExit(location, DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+            if (next != null)
+                location = next;
+        }
+        long walked = System.nanoTime();
+        if (length == 0)
+            throw new IllegalStateException("The walk listed no direction");
+        return new Result(map.getRoomGraph().size(), (built - start) / 1_000_000, steps, (walked - walk) / steps);
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args the number of steps, then the sizes of the worlds, all optional
+     */
+    public static void main(String[] args) {
+        int steps = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int[] sizes = args.length > 1 ? new int[args.length - 1] : new int[]{1_000, 10_000, 100_000};
+        for (int i = 1; i < args.length; i++)
+            sizes[i - 1] = Integer.parseInt(args[i]);
+        RoomGraphBenchmark benchmark = new RoomGraphBenchmark();
+        benchmark.run(sizes[0], steps);   // warm up
+        for (int size : sizes)
+            System.out.println(benchmark.run(size, steps));
+    }
+}
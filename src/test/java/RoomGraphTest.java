@@ -0,0 +1,95 @@
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomGraphTest {
+
+    @Test
+    void testCastle() {
+        RoomGraph graph = WorldPrototype.castle().getRoomGraph();
+        int hall = graph.index("hall");
+        assertEquals(5, graph.size());
+        assertEquals("dungeons", graph.name(graph.exit(hall, "north")));
+        assertEquals("lab", graph.name(graph.exit(hall, "lab")));
+        assertEquals(hall, graph.exit(graph.index("studio"), "east"));
+        assertEquals(-1, graph.exit(graph.index("studio"), "west"));
+        assertEquals(-1, graph.exit(hall, "up"));
+        assertEquals(-1, graph.index("attic"));
+    }
+
+    @Test
+    void testAnyLayout() {
+        Map<String, Map<String, String>> directions = Map.of(
+                "first", Map.of("east", "second"),
+                "second", Map.of("east", "third", "west", "first"),
+                "third", Map.of("west", "second"));
+        GameMap map = new GameMap(new WorldPrototype(List.of(
+                room("first", List.of("east", "third")),
+                room("second", List.of("east", "west")),
+                room("third", List.of("west", "nowhere"))), directions));
+
+        Location second = map.getExit(map.get("first"), "east");
+        assertEquals("second", second.getName());
+        assertEquals("third", map.getExit(second, "east").getName());
+        assertEquals("third", map.getExit(map.get("first"), "third").getName());
+        assertNull(map.getExit(second, "north"));
+        assertNull(map.getExit(map.get("third"), "nowhere"));
+        assertEquals("You can go:\nwest\n", map.printDirections(map.get("third")));
+    }
+
+    @Test
+    void testRestoredMapUsesTheDirectionsOfTheCastle() {
+        GameMap map = new GameMap(new GameMap().getRooms());
+        assertEquals("dungeons", map.getExit(map.get("hall"), "north").getName());
+        assertEquals("hall", map.getExit(map.get("lab"), "north").getName());
+    }
+
+    @Test
+    void testSavedGameKeepsTheDirectionsOfItsWorld() throws IOException {
+        Map<String, Map<String, String>> directions = Map.of(
+                "first", Map.of("east", "second"),
+                "second", Map.of("west", "first"));
+        Game game = new Game(new GameMap(new WorldPrototype(List.of(
+                room("first", List.of("east")),
+                room("second", List.of("west"))), directions)), new Player("Bob"), null, false);
+        game.getPlayer().setLocation(game.getMap().get("first"));
+
+        Gson gson = new GsonBuilder().registerTypeAdapter(Game.class, new Game.GameAdapter()).create();
+        GameMap json = gson.fromJson(gson.toJson(game), Game.class).getMap();
+        assertEquals("second", json.getExit(json.get("first"), "east").getName());
+        assertEquals("first", json.getExit(json.get("second"), "west").getName());
+
+        BinarySaveCodec codec = new BinarySaveCodec();
+        GameMap binary = codec.decode(codec.encode(game)).getMap();
+        assertEquals("second", binary.getExit(binary.get("first"), "east").getName());
+        assertEquals("first", binary.getExit(binary.get("second"), "west").getName());
+    }
+
+    @Test
+    void testTwoRoomsWithTheSameNameAreRejected() {
+        List<Location> rooms = List.of(room("first", List.of()), room("first", List.of()));
+        assertThrows(IllegalArgumentException.class, () -> RoomGraph.compile(rooms, Map.of()));
+    }
+
+    @Test
+    void testGridOfTheBenchmark() {
+        Map<String, Map<String, String>> directions = new HashMap<>();
+        List<Location> grid = RoomGraphBenchmark.grid(9, directions);
+        RoomGraph graph = RoomGraph.compile(grid, directions);
+        assertEquals(graph.index("room-1-1"), graph.exit(graph.index("room-0-1"), "south"));
+        assertEquals(graph.index("room-1-2"), graph.exit(graph.index("room-1-1"), "room-1-2"));
+        assertEquals(-1, graph.exit(graph.index("room-0-0"), "north"));
+        assertEquals(9, graph.size());
+    }
+
+    private static Location room(String name, List<String> exits) {
+        return new Location(name, "description", new Storage(), exits, true);
+    }
+}
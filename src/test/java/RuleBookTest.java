@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleBookTest {
+    private Player player;
+    private Storage room;
+
+    @BeforeEach
+    void setUp() {
+        player = new Player("TestPlayer");
+        room = new Storage();
+        player.setLocation(new Location("room", "description", room, null, true));
+    }
+
+    @Test
+    void testNoRule() {
+        Item note = new Item("note", "description", true, true);
+        assertSame(RuleBook.Outcome.NONE, RuleBook.castle().apply(RuleBook.Trigger.INTERACT, player, note, null));
+        assertEquals(3, player.getLifePoints());
+    }
+
+    @Test
+    void testConditionAndOtherwise() {
+        LockedItem cell = new LockedItem("right-cell", "description", false, true, new ArrayList<>(),
+                new Item("claudio", "", true, false), "action", "alt");
+        Item hammer = new Item("hammer", "description", true, true);
+
+        RuleBook.Outcome outcome = RuleBook.castle().apply(RuleBook.Trigger.USE, player, hammer, cell);
+        assertEquals(1, player.getLifePoints());
+        assertFalse(((Item) cell.getItemBlocked()).isVisible());
+        assertTrue(outcome.returnsItem());
+        assertTrue(outcome.message().startsWith("You just lost two life points"));
+
+        player.getInventory().add(new Item("sword", "description", true, true));
+        outcome = RuleBook.castle().apply(RuleBook.Trigger.USE, player, hammer, cell);
+        assertEquals(1, player.getLifePoints());
+        assertEquals("Luckily you had the sword to defend yourself!!!", outcome.message());
+    }
+
+    @Test
+    void testMessageNamesTheTarget() {
+        Item computer = new Item("computer", "description", true, false);
+        Item hammer = new Item("hammer", "description", true, true);
+        RuleBook.Outcome outcome = RuleBook.castle().apply(RuleBook.Trigger.USE, player, hammer, computer);
+        assertEquals("You lost a life point because you damaged the computer. Remember, brute force is not always the solution!",
+                outcome.message());
+        assertEquals(2, player.getLifePoints());
+    }
+
+    @Test
+    void testVictoryOnlyWhenChichibioIsFree() {
+        Item gateway = new Item("gateway", "description", true, false);
+        Item chichibio = new Item("Chichibio", "", false, false);
+        room.add(chichibio);
+        assertFalse(RuleBook.castle().apply(RuleBook.Trigger.INTERACT, player, gateway, null).victory());
+        chichibio.setVisible(true);
+        assertTrue(RuleBook.castle().apply(RuleBook.Trigger.INTERACT, player, gateway, null).victory());
+    }
+
+    @Test
+    void testInteractingWithGlovesKeepsThemWhereTheyAre() {
+        Game game = new Game(new GameMap(), player, null, false);
+        game.output = new HeadlessOutput("TestPlayer");
+        Item gloves = new Item("gloves", "description", true, true);
+
+        player.getInventory().add(gloves);
+        game.interact("gloves");
+        assertEquals(1, player.getInventory().getWeight());
+        assertEquals(0, room.getWeight());
+
+        player.getInventory().removeItem(gloves);
+        room.add(gloves);
+        game.interact("gloves");
+        assertEquals(0, player.getInventory().getWeight());
+        assertEquals(1, room.getWeight());
+        assertEquals("- gloves\n", room.printItems());
+    }
+
+    @Test
+    void testRulesOfTheSameCommandAreCombined() {
+        RuleBook book = new RuleBook(List.of(
+                new RuleBook.Rule(RuleBook.Trigger.USE, "key", "chest", RuleBook.always(),
+                        EnumSet.of(RuleBook.Effect.HIDE_TARGET), 0, "The chest is gone", null),
+                new RuleBook.Rule(RuleBook.Trigger.USE, RuleBook.ANY, "chest", RuleBook.lacking("map"),
+                        EnumSet.of(RuleBook.Effect.LOSE_LIFE), 1, "You are lost", "You found your way"),
+                new RuleBook.Rule(RuleBook.Trigger.USE, "key", RuleBook.ANY, RuleBook.always(),
+                        EnumSet.of(RuleBook.Effect.RETURN_ITEM), 0, null, null)));
+        Item key = new Item("key", "description", true, true);
+        Item chest = new Item("chest", "description", true, false);
+
+        RuleBook.Outcome outcome = book.apply(RuleBook.Trigger.USE, player, key, chest);
+        assertEquals("The chest is gone\nYou are lost", outcome.message());
+        assertTrue(outcome.returnsItem());
+        assertFalse(chest.isVisible());
+        assertEquals(2, player.getLifePoints());
+        assertSame(RuleBook.Outcome.NONE, book.apply(RuleBook.Trigger.PICK, player, key, null));
+    }
+}
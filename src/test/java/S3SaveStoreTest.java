@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class S3SaveStoreTest {
+    private final Map<String, byte[]> objects = new HashMap<>();
+    private final List<String> transfers = new ArrayList<>();
+    private MemorySaveStore cache;
+    private MemorySaveStore eTags;
+    private S3SaveStore store;
+
+    /**
+     * A bucket in memory whose ETag is the content itself, answering 304 like S3 does
+     */
+    private class FakeS3 implements S3Client {
+        @Override
+        public PutObjectResponse putObject(PutObjectRequest request, RequestBody body) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ResponseBytes<GetObjectResponse> getObjectAsBytes(GetObjectRequest request) {
+            byte[] content = objects.get(request.key());
+            if (content == null)
+                throw NoSuchKeyException.builder().statusCode(404).build();
+            String eTag = eTag(content);
+            if (eTag.equals(request.ifNoneMatch())) {
+                transfers.add("304 " + request.key());
+                throw (S3Exception) S3Exception.builder().statusCode(304).build();
+            }
+            transfers.add("200 " + request.key());
+            return ResponseBytes.fromByteArray(GetObjectResponse.builder().eTag(eTag).build(), content);
+        }
+
+        @Override
+        public String serviceName() {
+            return "s3";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static String eTag(byte[] content) {
+        return "\"" + new String(content, StandardCharsets.UTF_8) + "\"";
+    }
+
+    @BeforeEach
+    void setUp() {
+        cache = new MemorySaveStore();
+        eTags = new MemorySaveStore();
+        store = new S3SaveStore(new FakeS3(), "bucket", cache, eTags);
+    }
+
+    @Test
+    void testRepeatedLoadUsesCachedCopy() throws Exception {
+        objects.put("bob.json", "v1".getBytes(StandardCharsets.UTF_8));
+        assertEquals("v1", new String(store.get("bob.json"), StandardCharsets.UTF_8));
+        assertEquals("v1", new String(store.get("bob.json"), StandardCharsets.UTF_8));
+        assertEquals("v1", new String(store.get("bob.json"), StandardCharsets.UTF_8));
+        assertEquals(List.of("200 bob.json", "304 bob.json", "304 bob.json"), transfers);
+    }
+
+    @Test
+    void testChangedObjectIsDownloadedAgain() throws Exception {
+        objects.put("bob.json", "v1".getBytes(StandardCharsets.UTF_8));
+        store.get("bob.json");
+        objects.put("bob.json", "v2".getBytes(StandardCharsets.UTF_8));
+        assertEquals("v2", new String(store.get("bob.json"), StandardCharsets.UTF_8));
+        assertEquals(List.of("200 bob.json", "200 bob.json"), transfers);
+    }
+
+    @Test
+    void testMissingObjectClearsCache() throws Exception {
+        objects.put("bob.json", "v1".getBytes(StandardCharsets.UTF_8));
+        store.get("bob.json");
+        objects.remove("bob.json");
+        assertNull(store.get("bob.json"));
+        assertTrue(cache.list().isEmpty());
+        assertTrue(eTags.list().isEmpty());
+    }
+
+    @Test
+    void testCacheListsOnlyTheSaves() throws Exception {
+        objects.put("bob.json", "v1".getBytes(StandardCharsets.UTF_8));
+        objects.put("alice.json", "v1".getBytes(StandardCharsets.UTF_8));
+        store.get("bob.json");
+        store.get("alice.json");
+        assertEquals(List.of("alice.json", "bob.json"), cache.list().stream().sorted().toList());
+        assertEquals("\"v1\"", new String(eTags.get("bob.json"), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,119 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class S3bucketTest {
+    private final AtomicInteger writes = new AtomicInteger();
+    private S3bucket bucket;
+    private Game game;
+
+    @BeforeEach
+    void setUp() {
+        MemorySaveStore store = new MemorySaveStore() {
+            @Override
+            public void put(String key, byte[] content) {
+                writes.incrementAndGet();
+                super.put(key, content);
+            }
+        };
+        bucket = new S3bucket(store, null);
+        game = new Game(new GameMap(), new Player("Bob"), null, false);
+        game.getPlayer().setLocation(game.getMap().get("hall"));
+    }
+
+    @Test
+    void testUnchangedSaveIsSkipped() {
+        bucket.saveGameState("Bob.json", game);
+        bucket.saveGameState("Bob.json", game);
+        bucket.saveGameState("Bob.json", game);
+        assertEquals(1, writes.get());
+        assertEquals(3, bucket.getMetrics().getSaves());
+        assertEquals(0, bucket.getMetrics().getSkippedUploads());
+    }
+
+    @Test
+    void testLocalBucketNeverReportsTheCloud() {
+        bucket.saveGameState("Bob.json", game);
+        assertFalse(bucket.isCloudOn());
+        assertNotNull(bucket.loadGameState("Bob.json", Game.class));
+        assertFalse(bucket.isCloudOn());
+    }
+
+    @Test
+    void testChangedSaveIsWritten() {
+        bucket.saveGameState("Bob.json", game);
+        game.getPlayer().setLocation(game.getMap().get("kitchen"));
+        bucket.saveGameState("Bob.json", game);
+        assertEquals(2, writes.get());
+        assertEquals(0, bucket.getMetrics().getSkippedUploads());
+    }
+
+    @Test
+    void testSaveAfterLoadIsSkipped() {
+        bucket.saveGameState("Bob.json", game);
+        Game loaded = bucket.loadGameState("Bob.json", Game.class);
+        bucket.saveGameState("Bob.json", loaded);
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    void testCompressedSaveIsSmallerAndLoads() {
+        bucket.saveGameState("Bob.json", game);
+        long uncompressed = bucket.getMetrics().getLastStoredSize();
+        bucket.setCompressed(true);
+        bucket.saveGameState("Bob.gz", game);
+        assertEquals(uncompressed, bucket.getMetrics().getLastUncompressedSize());
+        assertTrue(bucket.getMetrics().getLastStoredSize() * 2 < uncompressed);
+
+        Game loaded = bucket.loadGameState("Bob.gz", Game.class);
+        assertEquals("hall", loaded.getPlayer().getLocation().getName());
+    }
+
+    @Test
+    void testUncompressedSaveLoadsWithCompressionOn() {
+        bucket.saveGameState("Bob.json", game);
+        bucket.setCompressed(true);
+        assertNotNull(bucket.loadGameState("Bob.json", Game.class));
+        bucket.setSaveFormat(S3bucket.SaveFormat.BINARY);
+        bucket.saveGameState("Bob.bin", game);
+        assertEquals("hall", bucket.loadGameState("Bob.bin", Game.class).getPlayer().getLocation().getName());
+    }
+
+    @Test
+    void testClientIsRebuiltWhenCredentialsChange(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("config.dat");
+        Files.writeString(file, "access\nsecret\nbucket\n");
+        CredentialStore credentials = new CredentialStore(file,
+                Map.of("key", hash("access"), "secretKey", hash("secret"), "bucketName", hash("bucket")), 0);
+        S3Client first = S3bucket.getClient(S3bucket.DEFAULT_REGION, credentials);
+        assertNotNull(first);
+        assertSame(first, S3bucket.getClient(S3bucket.DEFAULT_REGION, credentials));
+
+        Files.writeString(file, "access\nrotated\nbucket\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 60_000));
+        assertNull(S3bucket.getClient(S3bucket.DEFAULT_REGION, credentials));
+
+        Files.writeString(file, "access\nsecret\nbucket\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 120_000));
+        S3Client rebuilt = S3bucket.getClient(S3bucket.DEFAULT_REGION, credentials);
+        assertNotNull(rebuilt);
+        assertNotSame(first, rebuilt);
+    }
+
+    private static String hash(String value) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+}
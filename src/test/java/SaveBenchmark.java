@@ -0,0 +1,136 @@
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * {@code SaveBenchmark} times the save and the load of a game, and counts the bytes allocated by each of them,
+ * for every way a game can be written:
+ * <ul>
+ *     <li>{@code stream}: the streaming adapters write on the {@code JsonWriter} and read from the
+ *     {@code JsonReader}, as {@link S3bucket} does</li>
+ *     <li>{@code tree}: the same adapters, but the save goes through a {@code JsonElement} tree and is
+ *     pretty printed, the way the saves were written before the streaming adapters</li>
+ *     <li>{@code binary}: the {@link BinarySaveCodec}</li>
+ * </ul>
+ * It is part of the test sources and is run with the test classpath:
+ * <pre>
+ * java SaveBenchmark [operations] [stream|tree|binary]
+ * </pre>
+ */
+public class SaveBenchmark {
+    private final Gson compact = new GsonBuilder().registerTypeAdapter(Game.class, new Game.GameAdapter()).create();
+    private final Gson pretty = new GsonBuilder().registerTypeAdapter(Game.class, new Game.GameAdapter())
+            .setPrettyPrinting().create();
+    private final BinarySaveCodec codec = new BinarySaveCodec();
+
+    /**
+     * Outcome of a run
+     *
+     * @param format the way the game was written
+     * @param operations the number of saves and of loads
+     * @param size the size of the save, in bytes
+     * @param saveNanos the mean time of a save
+     * @param saveBytes the mean number of bytes allocated by a save
+     * @param loadNanos the mean time of a load
+     * @param loadBytes the mean number of bytes allocated by a load
+     */
+    public record Result(String format, int operations, int size, long saveNanos, long saveBytes,
+                         long loadNanos, long loadBytes) {
+        @Override
+        public String toString() {
+            return String.format("%-6s %6d bytes: save %d us, %d KB allocated, load %d us, %d KB allocated",
+                    format, size, saveNanos / 1000, saveBytes / 1024, loadNanos / 1000, loadBytes / 1024);
+        }
+    }
+
+    /**
+     * Saves and loads a game that has been played a little
+     *
+     * @param operations the number of saves, then of loads
+     * @param format {@code stream}, {@code tree} or {@code binary}
+     * @return the mean time and allocation of a save and of a load
+     */
+    public Result run(int operations, String format) {
+        Game game = new Game(new GameMap(), new Player("benchmark"), null, false);
+        game.getPlayer().setLocation(game.getMap().get("hall"));
+        game.getPlayer().setLocation(game.getMap().get("kitchen"));
+        game.getPlayer().pick("recipe");
+
+        byte[] save = null;
+        long start = System.nanoTime();
+        long allocated = allocatedBytes();
+        for (int i = 0; i < operations; i++)
+            save = save(game, format);
+        long saveBytes = (allocatedBytes() - allocated) / operations;
+        long saveNanos = (System.nanoTime() - start) / operations;
+
+        Game loaded = null;
+        start = System.nanoTime();
+        allocated = allocatedBytes();
+        for (int i = 0; i < operations; i++)
+            loaded = load(save, format);
+        long loadBytes = (allocatedBytes() - allocated) / operations;
+        long loadNanos = (System.nanoTime() - start) / operations;
+        if (loaded == null || !"kitchen".equals(loaded.getPlayer().getLocation().getName()))
+            throw new IllegalStateException("The game was not loaded back");
+        return new Result(format, operations, save.length, saveNanos, saveBytes, loadNanos, loadBytes);
+    }
+
+    private byte[] save(Game game, String format) {
+        switch (format) {
+            case "stream":
+                return compact.toJson(game).getBytes(StandardCharsets.UTF_8);
+            case "tree":
+                JsonElement tree = compact.toJsonTree(game);
+                return pretty.toJson(tree).getBytes(StandardCharsets.UTF_8);
+            case "binary":
+                return codec.encode(game);
+            default:
+                throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+
+    private Game load(byte[] save, String format) {
+        switch (format) {
+            case "stream":
+                return compact.fromJson(new String(save, StandardCharsets.UTF_8), Game.class);
+            case "tree":
+                JsonElement tree = JsonParser.parseString(new String(save, StandardCharsets.UTF_8));
+                return compact.fromJson(tree, Game.class);
+            case "binary":
+                try {
+                    return codec.decode(save);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            default:
+                throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args the number of operations, then the format, both optional
+     */
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        List<String> formats = args.length > 1 ? List.of(args[1]) : List.of("tree", "stream", "binary");
+        SaveBenchmark benchmark = new SaveBenchmark();
+        for (String format : formats)
+            benchmark.run(operations, format);   // warm up
+        for (String format : formats)
+            System.out.println(benchmark.run(operations, format));
+    }
+}
@@ -0,0 +1,67 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveQueueTest {
+
+    @Test
+    void testSavesForTheSamePlayerAreCoalesced() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> written = new CopyOnWriteArrayList<>();
+        SaveQueue queue = new SaveQueue((key, content) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String text = new String(content, StandardCharsets.UTF_8);
+            written.add(key + "=" + text);
+            return "saved " + text;
+        }, 8);
+
+        List<String> reports = new CopyOnWriteArrayList<>();
+        queue.submit("blocker.json", bytes("0"), reports::add);
+        for (int i = 1; i <= 100; i++)
+            queue.submit("bob.json", bytes(String.valueOf(i)), reports::add);
+        release.countDown();
+        assertTrue(queue.shutdown(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of("blocker.json=0", "bob.json=100"), written);
+        assertEquals(101, reports.size());
+        assertEquals(100, reports.stream().filter("saved 100"::equals).count());
+    }
+
+    @Test
+    void testFullQueueRejectsSave() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        SaveQueue queue = new SaveQueue((key, content) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "saved";
+        }, 1);
+
+        List<String> reports = new CopyOnWriteArrayList<>();
+        queue.submit("a.json", bytes("a"), reports::add);
+        // wait for the writer to take the first save, leaving the queue empty
+        while (queue.pendingCount() > 0)
+            Thread.sleep(1);
+        queue.submit("b.json", bytes("b"), reports::add);
+        queue.submit("c.json", bytes("c"), reports::add);
+        assertEquals(List.of("Too many saves in progress, the game was not saved"), reports);
+        release.countDown();
+        assertTrue(queue.shutdown(5, TimeUnit.SECONDS));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveStoreTest {
+    @TempDir
+    Path dir;
+
+    private static void checkStore(SaveStore store) throws IOException {
+        assertNull(store.get("bob.json"));
+        store.put("bob.json", "first".getBytes(StandardCharsets.UTF_8));
+        store.put("bob.json", "second".getBytes(StandardCharsets.UTF_8));
+        store.put("alice.json", "alice".getBytes(StandardCharsets.UTF_8));
+        assertEquals("second", new String(store.get("bob.json"), StandardCharsets.UTF_8));
+        assertEquals(List.of("alice.json", "bob.json"), store.list().stream().sorted().toList());
+        assertTrue(store.delete("bob.json"));
+        assertFalse(store.delete("bob.json"));
+        assertNull(store.get("bob.json"));
+        assertEquals(List.of("alice.json"), store.list());
+    }
+
+    @Test
+    void testLocalSaveStore() throws IOException {
+        checkStore(new LocalSaveStore(dir.resolve("saves")));
+    }
+
+    @Test
+    void testLocalSaveStoreRejectsPaths() {
+        LocalSaveStore store = new LocalSaveStore(dir);
+        assertThrows(IllegalArgumentException.class, () -> store.put("../bob.json", new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> store.get(LocalSaveStore.TEMP_PREFIX + "bob.json"));
+    }
+
+    @Test
+    void testLocalSaveStoreDoesNotListTemporaryFiles() throws IOException {
+        Path saves = dir.resolve("saves");
+        LocalSaveStore store = new LocalSaveStore(saves);
+        store.put("bob.json", "bob".getBytes(StandardCharsets.UTF_8));
+        // a write interrupted before its file was moved
+        Files.write(saves.resolve(LocalSaveStore.TEMP_PREFIX + "42.tmp"), new byte[1]);
+        assertEquals(List.of("bob.json"), store.list());
+    }
+
+    @Test
+    void testMemorySaveStore() throws IOException {
+        checkStore(new MemorySaveStore());
+    }
+
+    @Test
+    void testSaveAndLoadThroughStore() {
+        MemorySaveStore store = new MemorySaveStore();
+        S3bucket bucket = new S3bucket(store, null);
+        Game game = new Game(new GameMap(), new Player("Bob"), null, false);
+        game.getPlayer().setLocation(game.getMap().get("kitchen"));
+
+        assertEquals("Game state saved locally due to no internet connection.", bucket.saveGameState("Bob.json", game));
+        Game loaded = bucket.loadGameState("Bob.json", Game.class);
+        assertNotNull(loaded);
+        assertEquals("kitchen", loaded.getPlayer().getLocation().getName());
+        assertNull(bucket.loadGameState("Alice.json", Game.class));
+    }
+}
@@ -0,0 +1,102 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionGatewayTest {
+    private SessionGateway gateway;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        gateway = new SessionGateway(0, new S3bucket(new MemorySaveStore(), null), 2);
+        gateway.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.close();
+    }
+
+    @Test
+    void testPipelinedCommandsAnswerInOrder() throws IOException {
+        try (Socket socket = new Socket("localhost", gateway.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write("Bob\ngo east\ngo back\ngo west\r\nexit\nexit\n");
+            out.flush();
+            assertTrue(readResponse(in).startsWith("Welcome to my castle Bob"));
+            assertTrue(readResponse(in).startsWith("You are now in the kitchen"));
+            assertTrue(readResponse(in).startsWith("You are now in the hall"));
+            assertTrue(readResponse(in).startsWith("You are now in the studio"));
+            assertTrue(readResponse(in).startsWith("Save game?"));
+            readResponse(in);
+            assertNull(in.readLine());
+        }
+    }
+
+    @Test
+    void testPipelinedCommandsAreAnsweredAfterHalfClose() throws IOException {
+        try (Socket socket = new Socket("localhost", gateway.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            socket.getOutputStream().write("Bob\ngo east\ngo back\ngo west".getBytes(StandardCharsets.UTF_8));
+            socket.shutdownOutput();
+            assertTrue(readResponse(in).startsWith("Welcome to my castle Bob"));
+            assertTrue(readResponse(in).startsWith("You are now in the kitchen"));
+            assertTrue(readResponse(in).startsWith("You are now in the hall"));
+            assertTrue(readResponse(in).startsWith("You are now in the studio"));
+            assertNull(in.readLine());
+        }
+        assertEquals(0, gateway.getSessionCount());
+    }
+
+    @Test
+    void testCommandsSentWithoutReadingStayBounded() throws IOException, InterruptedException {
+        int count = 20_000;
+        try (Socket socket = new Socket()) {
+            // a small window, so the responses the client doesn't read pile up in the gateway
+            socket.setReceiveBufferSize(8192);
+            socket.connect(new InetSocketAddress("localhost", gateway.getPort()));
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            byte[] commands = ("Bob\n" + "help\n".repeat(count)).getBytes(StandardCharsets.UTF_8);
+            Thread writer = Thread.ofPlatform().start(() -> {
+                try {
+                    socket.getOutputStream().write(commands);
+                } catch (IOException e) {
+                    // the responses read below are then missing
+                }
+            });
+            long end = System.currentTimeMillis() + 500;
+            while (System.currentTimeMillis() < end) {
+                assertTrue(gateway.getQueuedCommands() <= SessionGateway.MAX_QUEUED_COMMANDS);
+                assertTrue(gateway.getUnsentResponses() <= SessionGateway.MAX_QUEUED_COMMANDS + 1);
+                Thread.sleep(1);
+            }
+            assertTrue(readResponse(in).startsWith("Welcome to my castle Bob"));
+            for (int i = 0; i < count; i++)
+                assertTrue(readResponse(in).startsWith("The possible commands are"));
+            writer.join();
+        }
+        assertEquals(0, gateway.getQueuedCommands());
+    }
+
+    @Test
+    void testManyPlayersAtOnce() throws IOException, InterruptedException {
+        LoadGenerator.Result result = new LoadGenerator("localhost", gateway.getPort()).run(200, 2, 100, true);
+        assertEquals(0, result.failures());
+        assertEquals(200 * 2 * 6, result.commands());
+    }
+
+    private static String readResponse(BufferedReader in) throws IOException {
+        StringBuilder text = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(GameServer.END_OF_RESPONSE))
+            text.append(line).append('\n');
+        return text.toString();
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.List;
+
+/**
+ * {@code StorageBenchmark} times the commands reading a {@link Storage} in rooms holding more and more items.
+ * Every room holds a few visible items among thousands of hidden ones, and a player picks one, checks the
+ * status, drops it back and looks around, over and over. The time of a command should not depend on the size
+ * of the room. It is part of the test sources and is run with the test classpath:
+ * <pre>
+ * java StorageBenchmark [rounds] [items...]
+ * </pre>
+ */
+public class StorageBenchmark {
+    private static final int VISIBLE = 5;
+
+    /**
+     * Outcome of a run in one room
+     *
+     * @param items the number of items of the room
+     * @param rounds the number of times the commands were played
+     * @param pickNanos the mean time of a pick
+     * @param dropNanos the mean time of a drop
+     * @param statusNanos the mean time of a status
+     * @param lookNanos the mean time of a look around
+     */
+    public record Result(int items, int rounds, long pickNanos, long dropNanos, long statusNanos, long lookNanos) {
+        @Override
+        public String toString() {
+            return String.format("%7d items: pick %d ns, drop %d ns, status %d ns, look %d ns",
+                    items, pickNanos, dropNanos, statusNanos, lookNanos);
+        }
+    }
+
+    /**
+     * Plays the commands in a room
+     *
+     * @param items the number of items of the room, at least {@value #VISIBLE}
+     * @param rounds the number of times the commands are played
+     * @return the mean time of every command
+     */
+    public Result run(int items, int rounds) {
+        Storage storage = new Storage(items);
+        for (int i = 0; i < items - VISIBLE; i++)
+            storage.add(new Item("hidden" + i, "description", false, true));
+        for (int i = 0; i < VISIBLE; i++)
+            storage.add(new Item("tool" + i, "description", true, true));
+        Player player = new Player("benchmark");
+        player.setLocation(new Location("room", "description", storage, List.of(), true));
+
+        long pick = 0, drop = 0, status = 0, look = 0;
+        int length = 0;
+        for (int i = 0; i < rounds; i++) {
+            String tool = "tool" + i % VISIBLE;
+            long start = System.nanoTime();
+            player.pick(tool);
+            long picked = System.nanoTime();
+            length += player.status().length();
+            long checked = System.nanoTime();
+            player.drop(tool);
+            long dropped = System.nanoTime();
+            length += player.lookAround().length();
+            long looked = System.nanoTime();
+            pick += picked - start;
+            status += checked - picked;
+            drop += dropped - checked;
+            look += looked - dropped;
+        }
+        if (length == 0)
+            throw new IllegalStateException("The commands answered nothing");
+        return new Result(items, rounds, pick / rounds, drop / rounds, status / rounds, look / rounds);
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args the number of rounds, then the sizes of the rooms, all optional
+     */
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int[] sizes = args.length > 1 ? new int[args.length - 1] : new int[]{10, 1_000, 10_000, 100_000};
+        for (int i = 1; i < args.length; i++)
+            sizes[i - 1] = Integer.parseInt(args[i]);
+        StorageBenchmark benchmark = new StorageBenchmark();
+        benchmark.run(sizes[0], rounds);   // warm up
+        for (int size : sizes)
+            System.out.println(benchmark.run(size, rounds));
+    }
+}
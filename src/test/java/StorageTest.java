@@ -0,0 +1,82 @@
+import com.google.gson.Gson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageTest {
+    private Storage storage;
+    private Item note;
+    private Item key;
+    private Item sword;
+
+    @BeforeEach
+    void setUp() {
+        storage = new Storage();
+        note = new Item("note", "description", true, true);
+        key = new Item("key", "description", false, true);
+        sword = new Item("sword", "description", true, true);
+        storage.add(note);
+        storage.add(key);
+        storage.add(sword);
+    }
+
+    @Test
+    void testItemsAreListedInInsertionOrder() {
+        assertEquals(List.of(note, key, sword), storage.getItems());
+        assertEquals("- note\n- sword\n", storage.printItems());
+    }
+
+    @Test
+    void testWeightFollowsAddAndRemove() {
+        Item otherKey = new Item("key", "description", true, true);
+        storage.add(otherKey);
+        assertEquals(4, storage.getWeight());
+        assertSame(otherKey, storage.removeItem(otherKey));
+        assertSame(note, storage.remove("note"));
+        assertNull(storage.remove("note"));
+        assertEquals(2, storage.getWeight());
+        assertFalse(storage.isEmpty());
+    }
+
+    @Test
+    void testVisibilityChangesTheListing() {
+        key.setVisible(true);
+        assertEquals("- note\n- sword\n- key\n", storage.printItems());
+        note.setVisible(false);
+        assertEquals("- sword\n- key\n", storage.printItems());
+    }
+
+    @Test
+    void testRemovedItemNoLongerChangesTheListing() {
+        storage.removeItem(key);
+        Storage inventory = new Storage(2);
+        inventory.add(key);
+        key.setVisible(true);
+        assertEquals("- note\n- sword\n", storage.printItems());
+        assertEquals("- key\n", inventory.printItems());
+    }
+
+    @Test
+    void testItemAddedTwiceIsHeldOnce() {
+        assertNull(storage.add(note));
+        assertEquals(3, storage.getWeight());
+        assertEquals("- note\n- sword\n", storage.printItems());
+        assertSame(note, storage.removeItem(note));
+        assertEquals(2, storage.getWeight());
+        assertEquals("- sword\n", storage.printItems());
+        assertNull(storage.removeItem(note));
+    }
+
+    @Test
+    void testStorageReadByReflectionIsIndexed() {
+        Gson gson = new Gson();
+        Storage copy = gson.fromJson(gson.toJson(storage), Storage.class);
+        assertEquals(3, copy.getWeight());
+        assertEquals("- note\n- sword\n", copy.printItems());
+        copy.getItem("key").setVisible(true);
+        assertEquals("- note\n- sword\n- key\n", copy.printItems());
+    }
+}
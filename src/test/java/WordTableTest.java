@@ -0,0 +1,60 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordTableTest {
+
+    @Test
+    void testGetIgnoresCase() {
+        WordTable<Integer> table = new WordTable<>();
+        assertEquals(1, table.putIfAbsent("Look", 1));
+        assertEquals(1, table.get("look"));
+        assertEquals(1, table.get("LOOK"));
+        assertNull(table.get("lookaround"));
+    }
+
+    @Test
+    void testGetRegion() {
+        WordTable<Integer> table = new WordTable<>();
+        table.putIfAbsent("pick", 1);
+        assertEquals(1, table.get("  PICK candlestick", 2, 6));
+        assertNull(table.get("  PICK candlestick", 2, 7));
+    }
+
+    @Test
+    void testPutIfAbsentKeepsTheFirstValue() {
+        WordTable<Integer> table = new WordTable<>();
+        table.putIfAbsent("go", 1);
+        assertEquals(1, table.putIfAbsent("GO", 2));
+        assertEquals(1, table.get("go"));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void testGrows() {
+        WordTable<Integer> table = new WordTable<>();
+        for (int i = 0; i < 1000; i++)
+            table.putIfAbsent("word" + i, i);
+        assertEquals(1000, table.size());
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, table.get("WORD" + i));
+    }
+
+    @Test
+    void testPutAllAbsentKeepsTheValuesAlreadyThere() {
+        WordTable<Integer> table = new WordTable<>();
+        table.putIfAbsent("go", 1);
+        Map<String, Integer> words = new LinkedHashMap<>();
+        words.put("GO", 2);
+        for (int i = 0; i < 1000; i++)
+            words.put("word" + i, i);
+        table.putAllAbsent(words);
+        assertEquals(1001, table.size());
+        assertEquals(1, table.get("go"));
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, table.get("Word" + i));
+    }
+}
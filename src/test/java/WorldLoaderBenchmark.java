@@ -0,0 +1,113 @@
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+/**
+ * {@code WorldLoaderBenchmark} times {@link WorldLoader} on generated worlds of growing size. The rooms form a
+ * line, each one holding a coin hidden in a box, a chest the coin opens and the gem in the chest. The time per
+ * room should not grow with the size of the world. It is part of the test sources and is run with the test
+ * classpath:
+ * <pre>
+ * java WorldLoaderBenchmark [rooms...]
+ * </pre>
+ */
+public class WorldLoaderBenchmark {
+
+    /**
+     * Outcome of a load
+     *
+     * @param rooms the number of rooms of the world
+     * @param bytes the size of the definition
+     * @param loadMillis the time taken to load the world
+     */
+    public record Result(int rooms, int bytes, long loadMillis) {
+        @Override
+        public String toString() {
+            return String.format("%7d rooms, %6d KB: loaded in %d ms, %.2f us per room",
+                    rooms, bytes / 1024, loadMillis, loadMillis * 1000.0 / rooms);
+        }
+    }
+
+    /**
+     * Writes the definition of a generated world
+     *
+     * @param rooms the number of rooms
+     * @return the definition, in the format read by {@link WorldLoader}
+     */
+    static String generate(int rooms) {
+        StringWriter text = new StringWriter();
+        try (JsonWriter out = new JsonWriter(text)) {
+            out.beginObject();
+            out.name("rooms").beginArray();
+            for (int i = 0; i < rooms; i++) {
+                out.beginObject();
+                out.name("name").value("room" + i);
+                out.name("description").value("You are now in room " + i);
+                out.name("exits").beginObject();
+                if (i > 0)
+                    out.name("west").value("room" + (i - 1));
+                if (i < rooms - 1)
+                    out.name("east").value("room" + (i + 1)).name("room" + (i + 1)).value("room" + (i + 1));
+                out.endObject();
+                out.name("items").beginArray().value("box" + i).value("coin" + i).value("chest" + i).value("gem" + i).endArray();
+                out.endObject();
+            }
+            out.endArray();
+            out.name("items").beginArray();
+            for (int i = 0; i < rooms; i++) {
+                out.beginObject().name("id").value("chest" + i).name("type").value("locked").name("name").value("chest" + i)
+                        .name("description").value("A chest").name("requires").beginArray().value("coin" + i).endArray()
+                        .name("opensItem").value("gem" + i).name("action").value("The chest opens").endObject();
+                out.beginObject().name("id").value("box" + i).name("type").value("container").name("name").value("box" + i)
+                        .name("description").value("A box").name("contains").value("coin" + i).endObject();
+                out.beginObject().name("id").value("coin" + i).name("name").value("coin" + i).name("description").value("A coin")
+                        .name("visible").value(false).name("collectable").value(true).endObject();
+                out.beginObject().name("id").value("gem" + i).name("name").value("gem" + i).name("description").value("A gem")
+                        .name("visible").value(false).name("collectable").value(true).endObject();
+            }
+            out.endArray();
+            out.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Loads a generated world
+     *
+     * @param rooms the number of rooms of the world
+     * @return the time of the load
+     */
+    public Result run(int rooms) {
+        String definition = generate(rooms);
+        long start = System.nanoTime();
+        WorldPrototype world;
+        try {
+            world = WorldLoader.load(new StringReader(definition));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long loaded = System.nanoTime();
+        if (world.rooms() != rooms)
+            throw new IllegalStateException("The world has " + world.rooms() + " rooms instead of " + rooms);
+        return new Result(rooms, definition.length(), (loaded - start) / 1_000_000);
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args the sizes of the worlds, optional
+     */
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0 ? new int[args.length] : new int[]{1_000, 10_000, 100_000};
+        for (int i = 0; i < args.length; i++)
+            sizes[i] = Integer.parseInt(args[i]);
+        WorldLoaderBenchmark benchmark = new WorldLoaderBenchmark();
+        benchmark.run(sizes[0]);   // warm up
+        for (int size : sizes)
+            System.out.println(benchmark.run(size));
+    }
+}
@@ -0,0 +1,77 @@
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorldLoaderTest {
+
+    @Test
+    void testCastle() {
+        GameMap map = new GameMap(WorldLoader.loadResource(WorldLoader.CASTLE));
+        assertEquals(5, map.getRooms().size());
+        assertEquals("dungeons", map.getExit(map.get("hall"), "north").getName());
+        assertFalse(map.get("lab").isUnlocked());
+        LockedItem door = (LockedItem) map.get("hall").getStorage().getItem("door");
+        assertEquals(2, door.objectsSize());
+        assertSame(map.get("lab"), door.getItemBlocked());
+        ContainerItem carpet = (ContainerItem) map.get("studio").getStorage().getItem("carpet");
+        assertSame(map.get("studio").getStorage().getItem("key"), carpet.getItemContained());
+    }
+
+    @Test
+    void testReferencesAreResolved() throws IOException {
+        WorldPrototype world = load("""
+                {"rooms": [{"name": "cellar", "exits": {"up": "attic"}, "items": ["chest", "coin"]},
+                           {"name": "attic", "unlocked": false, "exits": {"down": "cellar"}, "items": ["ladder"]}],
+                 "items": [{"type": "locked", "name": "chest", "requires": ["coin"], "opensRoom": "attic"},
+                           {"name": "coin", "collectable": true},
+                           {"name": "ladder"}]}""");
+        GameMap map = new GameMap(world);
+        LockedItem chest = (LockedItem) map.get("cellar").getStorage().getItem("chest");
+        assertSame(map.get("cellar").getStorage().getItem("coin"), chest.getObject("coin"));
+        assertSame(map.get("attic"), chest.getItemBlocked());
+        assertEquals("attic", map.getExit(map.get("cellar"), "up").getName());
+    }
+
+    @Test
+    void testUnknownReferencesAreRejected() {
+        assertThrows(JsonParseException.class, () -> load("""
+                {"rooms": [{"name": "cellar", "exits": {"up": "attic"}}]}"""));
+        assertThrows(JsonParseException.class, () -> load("""
+                {"rooms": [{"name": "cellar", "items": ["box"]}],
+                 "items": [{"type": "container", "name": "box", "contains": "coin"}]}"""));
+        assertThrows(JsonParseException.class, () -> load("""
+                {"rooms": [{"name": "cellar", "items": ["coin"]}], "items": []}"""));
+        assertThrows(JsonParseException.class, () -> load("""
+                {"rooms": [{"name": "cellar", "items": ["coin", "coin"]}], "items": [{"name": "coin"}]}"""));
+    }
+
+    @Test
+    void testCycleIsRejected() {
+        assertThrows(JsonParseException.class, () -> load("""
+                {"rooms": [{"name": "cellar", "items": ["first"]}],
+                 "items": [{"type": "locked", "name": "first", "requires": ["second"]},
+                           {"type": "locked", "name": "second", "opensItem": "first"}]}"""));
+    }
+
+    @Test
+    void testWorldOfTheBenchmark() throws IOException {
+        WorldPrototype world = load(WorldLoaderBenchmark.generate(500));
+        assertEquals(500, world.rooms());
+        GameMap map = new GameMap(world);
+        Location last = map.get("room499");
+        assertEquals("room498", map.getExit(last, "west").getName());
+        assertNull(map.getExit(last, "east"));
+        ContainerItem box = (ContainerItem) last.getStorage().getItem("box499");
+        LockedItem chest = (LockedItem) last.getStorage().getItem("chest499");
+        assertSame(box.getItemContained(), chest.getObject("coin499"));
+        assertSame(last.getStorage().getItem("gem499"), chest.getItemBlocked());
+    }
+
+    private static WorldPrototype load(String definition) throws IOException {
+        return WorldLoader.load(new StringReader(definition));
+    }
+}
@@ -0,0 +1,130 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorldPrototypeTest {
+
+    @Test
+    void testGamesShareWhatTheyDoNotChange() {
+        GameMap first = new GameMap();
+        GameMap second = new GameMap();
+        Item note = first.get("hall").getStorage().getItem("note");
+
+        assertTrue(note.isShared());
+        assertSame(note, second.get("hall").getStorage().getItem("note"));
+        first.own(first.get("lab")).setUnlocked();
+        assertTrue(first.get("lab").isUnlocked());
+        assertFalse(second.get("lab").isUnlocked());
+        assertTrue(second.get("lab").isShared());
+        assertSame(first.get("hall"), second.get("hall"));
+        assertSame(first.get("hall").getExit(), second.get("hall").getExit());
+    }
+
+    @Test
+    void testReferencesPointInsideTheCopy() {
+        GameMap map = new GameMap();
+        LockedItem computer = map.own((LockedItem) map.get("lab").getStorage().getItem("computer"));
+
+        assertFalse(map.get("lab").isShared());
+        assertSame(computer, map.get("lab").getStorage().getItem("computer"));
+        assertSame(map.get("lab").getStorage().getItem("machine"), computer.getItemBlocked());
+        assertTrue(map.get("kitchen").isShared());
+        assertSame(map.get("kitchen").getStorage().getItem("recipe"), computer.getObject("recipe"));
+
+        ContainerItem cookbook = map.own((ContainerItem) map.get("kitchen").getStorage().getItem("cookbook"));
+        assertFalse(map.get("kitchen").getStorage().getItem("recipe").isShared());
+        assertSame(map.get("kitchen").getStorage().getItem("recipe"), cookbook.getItemContained());
+        assertSame(map.get("kitchen").getStorage().getItem("recipe"), computer.getObject("recipe"));
+
+        LockedItem door = map.own((LockedItem) map.get("hall").getStorage().getItem("door"));
+        assertSame(map.get("lab"), door.getItemBlocked());
+    }
+
+    @Test
+    void testCopiesShareTheTemplates() {
+        GameMap map = new GameMap();
+        Location hall = map.get("hall");
+        ContainerItem drawer = (ContainerItem) map.get("studio").getStorage().getItem("drawer");
+        LockedItem door = (LockedItem) hall.getStorage().getItem("door");
+
+        assertSame(drawer.getTemplate(), map.own(drawer).getTemplate());
+        assertSame(door.getTemplate(), map.own(door).getTemplate());
+        assertSame(hall.getTemplate(), map.get("hall").getTemplate());
+        assertNotSame(hall, map.get("hall"));
+        assertEquals(door.getAltDescription(), map.own(door).getAltDescription());
+        assertEquals(door.getAction(), map.own(door).getAction());
+    }
+
+    @Test
+    void testIdsAreUnique() {
+        Set<UUID> ids = new HashSet<>();
+        for (int i = 0; i < 2; i++)
+            for (Location room : new GameMap().getRooms()) {
+                assertTrue(ids.add(room.getId()));
+                for (Item item : room.getStorage().getItems())
+                    assertTrue(ids.add(item.getId()));
+            }
+        assertEquals(2 * (5 + WorldPrototype.castle().size()), ids.size());
+    }
+
+    @Test
+    void testRoomsAreCopiedOnFirstChange() {
+        GameMap map = new GameMap();
+        Location hall = map.get("hall");
+        Item note = hall.getStorage().getItem("note");
+        LockedItem shared = (LockedItem) hall.getStorage().getItem("door");
+
+        assertEquals(hall.getStorage().printItems(), map.get("hall").getStorage().printItems());
+        assertSame(hall, map.get("hall"));
+        assertThrows(IllegalStateException.class, () -> note.setVisible(!note.isVisible()));
+        assertThrows(IllegalStateException.class, () -> shared.removeObj(new Item("key", "description", true, true)));
+
+        LockedItem door = map.own(shared);
+        assertNotSame(hall, map.get("hall"));
+        assertSame(door, map.get("hall").getStorage().getItem("door"));
+        assertNotSame(note, map.get("hall").getStorage().getItem("note"));
+        assertTrue(map.get("lab").isShared());
+        assertTrue(door.unlockItem(new Item("key", "description", true, true)).startsWith("key used successfully"));
+        assertTrue(map.get("lab").isShared());
+        assertNotNull(door.unlockItem(new Item("key", "description", true, true)));
+        assertFalse(map.get("lab").isShared());
+        assertTrue(map.get("lab").isUnlocked());
+        assertTrue(map.get("kitchen").isShared());
+        assertSame(map.get("lab"), map.getRooms().get(map.getRoomGraph().index("lab")));
+    }
+
+    @Test
+    void testPlayerMovesToTheCopyOfTheRoom() {
+        Game game = new Game(null, "player");
+        Player player = game.getPlayer();
+        Location hall = player.getLocation();
+        Item note = hall.getStorage().getItem("note");
+
+        assertTrue(hall.isShared());
+        assertNotNull(player.pick("note"));
+        assertNotSame(hall, player.getLocation());
+        assertSame(game.getMap().get("hall"), player.getLocation());
+        assertSame(player.getLocation(), player.getLastLocations().getLast());
+        assertFalse(player.getLocation().getStorage().hasItem("note"));
+        assertTrue(hall.getStorage().hasItem("note"));
+        assertNotSame(note, player.getInventory().getItem("note"));
+        assertFalse(player.getInventory().getItem("note").isShared());
+    }
+
+    @Test
+    void testCycleIsRejected() {
+        List<Item> objects = new ArrayList<>();
+        LockedItem chest = new LockedItem("chest", "description", false, true, objects, null, "", "");
+        objects.add(chest);
+        Storage storage = new Storage();
+        storage.add(chest);
+        List<Location> rooms = List.of(new Location("room", "description", storage, List.of(), true));
+        assertThrows(IllegalArgumentException.class, () -> new WorldPrototype(rooms));
+    }
+}